@@ -0,0 +1,49 @@
+package com.apple.springboot.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TextChunkingService#chunkIfNeeded} on copy below the length threshold (returned whole) and on
+ * copy long enough to be split by sentences.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkingBenchmark {
+
+    @Param({"0", "2000", "8000"})
+    public int minLength;
+
+    private final TextChunkingService chunkingService = new TextChunkingService();
+    private List<String> texts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        texts = minLength == 0 ? SyntheticPages.copyTexts() : SyntheticPages.longCopyTexts(minLength);
+    }
+
+    @Benchmark
+    public void chunkIfNeeded(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(chunkingService.chunkIfNeeded(text));
+        }
+    }
+}
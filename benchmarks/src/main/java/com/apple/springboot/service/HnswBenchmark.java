@@ -0,0 +1,216 @@
+package com.apple.springboot.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-process {@link HnswIndex} next to pgvector's hnsw index on the same random 1024-dimension vectors
+ * and with the same m / ef_construction / ef_search: build time, top-k query latency and, printed when each
+ * trial ends, bytes per vector (off-heap vectors plus approximate heap for the graph; table plus index size
+ * for pgvector). The pgvector benchmark needs a database with the vector extension, given as
+ * {@code -Dbench.jdbc.url=jdbc:postgresql://...} with {@code -Dbench.jdbc.user} / {@code -Dbench.jdbc.password};
+ * it only uses a temporary table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HnswBenchmark {
+
+    private static final int DIMENSION = 1024;
+    private static final int QUERIES = 100;
+
+    @Param({"10000", "50000"})
+    public int vectors;
+
+    @Param({"16"})
+    public int m;
+
+    @Param({"100"})
+    public int efConstruction;
+
+    @Param({"64"})
+    public int efSearch;
+
+    @Param({"10"})
+    public int k;
+
+    private List<UUID> ids;
+    private List<float[]> data;
+    private List<float[]> queries;
+    private HnswIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        ids = new ArrayList<>(vectors);
+        data = new ArrayList<>(vectors);
+        for (int i = 0; i < vectors; i++) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+            data.add(randomVector(random));
+        }
+        queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(randomVector(random));
+        }
+
+        long heapBefore = usedHeap();
+        index = build();
+        long heapBytes = usedHeap() - heapBefore;
+        System.out.printf("%nHnswIndex, %d vectors: %d off-heap bytes/vector, ~%d heap bytes/vector%n",
+                index.size(), index.offHeapBytes() / index.size(), heapBytes / index.size());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public HnswIndex build() {
+        HnswIndex built = new HnswIndex(DIMENSION, m, efConstruction);
+        for (int i = 0; i < ids.size(); i++) {
+            built.add(ids.get(i), data.get(i));
+        }
+        return built;
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) {
+        blackhole.consume(index.search(nextQuery(), k, efSearch));
+    }
+
+    @Benchmark
+    public void pgvectorSearch(Pgvector pgvector, Blackhole blackhole) throws SQLException {
+        PreparedStatement query = pgvector.query;
+        query.setString(1, toVectorText(nextQuery()));
+        query.setInt(2, k);
+        try (ResultSet rows = query.executeQuery()) {
+            while (rows.next()) {
+                blackhole.consume(rows.getObject(1));
+                blackhole.consume(rows.getDouble(2));
+            }
+        }
+    }
+
+    private float[] nextQuery() {
+        float[] query = queries.get(next);
+        next = (next + 1) % QUERIES;
+        return query;
+    }
+
+    /**
+     * A temporary table with the benchmark's vectors and an hnsw index built like the local one.
+     */
+    @State(Scope.Benchmark)
+    public static class Pgvector {
+
+        private Connection connection;
+        private PreparedStatement query;
+
+        @Setup(Level.Trial)
+        public void setUp(HnswBenchmark benchmark) throws SQLException {
+            String url = System.getProperty("bench.jdbc.url");
+            if (url == null || url.isBlank()) {
+                throw new IllegalStateException("pgvectorSearch needs -Dbench.jdbc.url (and -Dbench.jdbc.user / -Dbench.jdbc.password)"
+                        + " pointing at a PostgreSQL database with the vector extension");
+            }
+            connection = DriverManager.getConnection(url, System.getProperty("bench.jdbc.user"), System.getProperty("bench.jdbc.password"));
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE EXTENSION IF NOT EXISTS vector");
+                statement.execute("CREATE TEMPORARY TABLE bench_vectors (id uuid PRIMARY KEY, vector vector(" + DIMENSION + "))");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO bench_vectors (id, vector) VALUES (?, CAST(? AS vector))")) {
+                for (int i = 0; i < benchmark.ids.size(); i++) {
+                    insert.setObject(1, benchmark.ids.get(i));
+                    insert.setString(2, toVectorText(benchmark.data.get(i)));
+                    insert.addBatch();
+                    if (i % 1000 == 999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+
+            long start = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX bench_vectors_hnsw ON bench_vectors USING hnsw (vector vector_cosine_ops)"
+                        + " WITH (m = " + benchmark.m + ", ef_construction = " + benchmark.efConstruction + ")");
+                long buildMillis = (System.nanoTime() - start) / 1_000_000;
+                statement.execute("ANALYZE bench_vectors");
+                statement.execute("SET hnsw.ef_search = " + benchmark.efSearch);
+                try (ResultSet size = statement.executeQuery("SELECT pg_total_relation_size('bench_vectors')")) {
+                    size.next();
+                    System.out.printf("%npgvector, %d vectors: index built in %d ms, %d bytes/vector (table + indexes)%n",
+                            benchmark.ids.size(), buildMillis, size.getLong(1) / benchmark.ids.size());
+                }
+            }
+            query = connection.prepareStatement(
+                    "SELECT id, vector <=> CAST(? AS vector) AS distance FROM bench_vectors ORDER BY distance LIMIT ?");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static String toVectorText(float[] vector) {
+        StringBuilder text = new StringBuilder(vector.length * 12).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(vector[i]);
+        }
+        return text.append(']').toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,120 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.Facets;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU-bound part of ingestion: cleansing copy text, hashing items, walking a page and building facets.
+ * DataIngestionService is constructed without repositories or AWS clients; none of these paths use them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+
+    private static final String SOURCE_URI = "s3://benchmark-bucket/benchmark/page.json";
+
+    @Param({"SMALL", "LARGE", "DEEP"})
+    public SyntheticPages.Shape shape;
+
+    private DataIngestionService service;
+    private JsonNode page;
+    private List<String> copyTexts;
+    private List<String[]> hashInputs;
+    private List<byte[]> digests;
+    private List<JsonNode> facetNodes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        service = new DataIngestionService(null, null, null, objectMapper, null, "", null, "", null, null, null);
+        // Production default of app.ingestion.keep-blank-after-cleanse; @Value is not applied outside Spring
+        Field keepBlank = DataIngestionService.class.getDeclaredField("keepBlankAfterCleanse");
+        keepBlank.setAccessible(true);
+        keepBlank.setBoolean(service, true);
+
+        page = SyntheticPages.page(shape);
+        List<Map<String, Object>> items = service.extractItems(page, SOURCE_URI, new DataIngestionService.IngestionCounters());
+        copyTexts = SyntheticPages.copyTexts(page);
+        hashInputs = new ArrayList<>(items.size());
+        digests = new ArrayList<>(items.size());
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        for (Map<String, Object> item : items) {
+            String content = (String) item.get("cleansedContent");
+            String context = objectMapper.writeValueAsString(item.get("context"));
+            hashInputs.add(new String[]{content, context});
+            digests.add(sha256.digest(context.getBytes(StandardCharsets.UTF_8)));
+        }
+        facetNodes = new ArrayList<>();
+        collectObjects(page, facetNodes);
+    }
+
+    @Benchmark
+    public void cleanseCopyText(Blackhole blackhole) {
+        for (String text : copyTexts) {
+            blackhole.consume(DataIngestionService.cleanseCopyText(text));
+        }
+    }
+
+    @Benchmark
+    public void calculateContentHash(Blackhole blackhole) {
+        for (String[] input : hashInputs) {
+            blackhole.consume(service.calculateContentHash(input[0], input[1]));
+        }
+    }
+
+    @Benchmark
+    public void bytesToHex(Blackhole blackhole) {
+        for (byte[] digest : digests) {
+            blackhole.consume(DataIngestionService.bytesToHex(digest));
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> findAndExtractRecursive() {
+        return service.extractItems(page, SOURCE_URI, new DataIngestionService.IngestionCounters());
+    }
+
+    @Benchmark
+    public void buildCurrentFacets(Blackhole blackhole) {
+        Facets facets = new Facets();
+        for (JsonNode node : facetNodes) {
+            facets = service.buildCurrentFacets(node, facets);
+            blackhole.consume(facets);
+        }
+    }
+
+    private static void collectObjects(JsonNode node, List<JsonNode> objects) {
+        if (node.isObject()) {
+            objects.add(node);
+            node.elements().forEachRemaining(child -> collectObjects(child, objects));
+        } else if (node.isArray()) {
+            node.forEach(child -> collectObjects(child, objects));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.model.RefinementChip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facet extraction for refinement chips ({@link RefinementService#aggregateChips}) over search hits whose
+ * contexts come from extracting the LARGE synthetic page, so facet and envelope values look like real ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RefinementBenchmark {
+
+    private static final int MAX_CHIPS = 10;
+    private static final List<String> TAGS = List.of("ipad", "iphone", "mac", "watch", "apple intelligence", "pricing", "legal", "accessibility");
+
+    @Param({"20", "200"})
+    public int hitCount;
+
+    private final RefinementService refinementService = new RefinementService();
+    private List<ChunkSearchResult> hits;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        DataIngestionService ingestion = new DataIngestionService(null, null, null, new ObjectMapper(), null, "", null, "", null, null, null);
+        List<Map<String, Object>> items = ingestion.extractItems(SyntheticPages.page(SyntheticPages.Shape.LARGE),
+                "s3://benchmark-bucket/benchmark/page.json", new DataIngestionService.IngestionCounters());
+        SplittableRandom random = new SplittableRandom(7);
+        hits = new ArrayList<>(hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            Map<String, Object> item = items.get(i % items.size());
+            List<String> tags = List.of(TAGS.get(random.nextInt(TAGS.size())), TAGS.get(random.nextInt(TAGS.size())));
+            List<String> keywords = List.of(TAGS.get(random.nextInt(TAGS.size())));
+            hits.add(new ChunkSearchResult(new UUID(0, i), new UUID(1, i), (String) item.get("cleansedContent"),
+                    (String) item.get("usagePath"), "s3://benchmark-bucket/benchmark/page.json", (String) item.get("cleansedContent"),
+                    (String) item.get("originalFieldName"), tags, keywords, (Map<String, Object>) item.get("context"),
+                    random.nextDouble(0.05, 0.6)));
+        }
+    }
+
+    @Benchmark
+    public List<RefinementChip> aggregateChips() {
+        return refinementService.aggregateChips(hits, MAX_CHIPS);
+    }
+}
@@ -0,0 +1,164 @@
+package com.apple.springboot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Synthetic pages scaled from the sample payloads in src/main/resources/data (read from the application
+ * jar's classpath). Copies get distinct _path and copy values so extraction and hashing see unique items,
+ * as they would on a real page, and the output is deterministic so results compare across commits.
+ */
+public final class SyntheticPages {
+
+    public enum Shape {
+        /** One sample page as-is. */
+        SMALL,
+        /** {@link #LARGE_COPIES} copies of the samples side by side under one root. */
+        LARGE,
+        /** {@link #DEEP_LEVELS} copies of the samples, each nested inside the previous one. */
+        DEEP
+    }
+
+    static final int LARGE_COPIES = 200;
+    static final int DEEP_LEVELS = 64;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final List<JsonNode> SAMPLES = loadSamples();
+
+    private SyntheticPages() {
+    }
+
+    static JsonNode page(Shape shape) {
+        return switch (shape) {
+            case SMALL -> SAMPLES.get(0).deepCopy();
+            case LARGE -> {
+                ObjectNode root = MAPPER.createObjectNode();
+                root.put("_path", "/content/dam/applecom-cms/live/en_US/benchmark/large");
+                root.put("_model", "benchmark-page");
+                ArrayNode items = root.putArray("items");
+                for (int i = 0; i < LARGE_COPIES; i++) {
+                    items.add(variant(i));
+                }
+                yield root;
+            }
+            case DEEP -> {
+                ObjectNode root = variant(0);
+                ObjectNode current = root;
+                for (int i = 1; i < DEEP_LEVELS; i++) {
+                    ObjectNode child = variant(i);
+                    current.set("nested", child);
+                    current = child;
+                }
+                yield root;
+            }
+        };
+    }
+
+    /**
+     * Every copy string found in the samples, for the text-level benchmarks.
+     */
+    static List<String> copyTexts() {
+        List<String> texts = new ArrayList<>();
+        for (JsonNode sample : SAMPLES) {
+            collectCopy(sample, texts);
+        }
+        return texts;
+    }
+
+    /**
+     * Every copy string found on {@code page}.
+     */
+    static List<String> copyTexts(JsonNode page) {
+        List<String> texts = new ArrayList<>();
+        collectCopy(page, texts);
+        return texts;
+    }
+
+    /**
+     * Copy strings repeated and joined until each is at least {@code minLength} characters long.
+     */
+    static List<String> longCopyTexts(int minLength) {
+        List<String> source = copyTexts();
+        List<String> texts = new ArrayList<>(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = i; text.length() < minLength; j++) {
+                text.append(source.get(j % source.size()).replaceAll("\\{%.*?%}", " ").trim()).append(". ");
+            }
+            texts.add(text.toString().trim());
+        }
+        return texts;
+    }
+
+    private static ObjectNode variant(int index) {
+        JsonNode sample = SAMPLES.get(index % SAMPLES.size()).deepCopy();
+        suffix(sample, "-" + index);
+        return (ObjectNode) sample;
+    }
+
+    private static void suffix(JsonNode node, String suffix) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String key = field.getKey();
+                if (field.getValue().isTextual() && ("_path".equals(key) || "copy".equals(key))) {
+                    field.setValue(TextNode.valueOf(field.getValue().asText() + suffix));
+                } else {
+                    suffix(field.getValue(), suffix);
+                }
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                suffix(element, suffix);
+            }
+        }
+    }
+
+    private static void collectCopy(JsonNode node, List<String> texts) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(field -> {
+                if ("copy".equals(field.getKey()) && field.getValue().isTextual()) {
+                    texts.add(field.getValue().asText());
+                } else {
+                    collectCopy(field.getValue(), texts);
+                }
+            });
+        } else if (node.isArray()) {
+            node.forEach(element -> collectCopy(element, texts));
+        }
+    }
+
+    private static List<JsonNode> loadSamples() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:data/*.json");
+            List<JsonNode> samples = new ArrayList<>();
+            for (Resource resource : resources) {
+                try (InputStream in = resource.getInputStream()) {
+                    samples.add(MAPPER.readTree(in));
+                }
+            }
+            if (samples.isEmpty()) {
+                throw new IllegalStateException("No sample pages found under classpath:data/");
+            }
+            // Resource order depends on the jar; sort so every run scales the same samples the same way
+            samples.sort((a, b) -> a.path("_path").asText().compareTo(b.path("_path").asText()));
+            return samples;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sample pages", e);
+        }
+    }
+}
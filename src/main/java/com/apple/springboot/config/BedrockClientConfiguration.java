@@ -3,11 +3,14 @@ package com.apple.springboot.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 
+// The loadtest profile replaces this client with a local stub (see LoadTestConfiguration)
 @Configuration
+@Profile("!loadtest")
 public class BedrockClientConfiguration {
 
     @Value("${aws.region}")
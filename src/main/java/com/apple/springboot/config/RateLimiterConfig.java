@@ -1,6 +1,7 @@
 package com.apple.springboot.config;
 
 import com.google.common.util.concurrent.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,8 +10,8 @@ public class RateLimiterConfig {
 
     @Bean
     @SuppressWarnings("UnstableApiUsage")
-    public RateLimiter bedrockRateLimiter() {
-        // Allow 1 permit per second
-        return RateLimiter.create(1.0);
+    public RateLimiter bedrockRateLimiter(@Value("${app.bedrock.rate-limit.permits-per-second:1.0}") double permitsPerSecond) {
+        // Bedrock calls (enrichment and chunk embeddings) per second; 1 by default
+        return RateLimiter.create(permitsPerSecond);
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.apple.springboot.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+// The loadtest profile replaces this client with a filesystem-backed one (see LoadTestConfiguration)
+@Configuration
+@Profile("!loadtest")
+public class S3ClientConfiguration {
+
+    @Value("${app.s3.region}")
+    private String s3Region;
+
+    @Bean
+    public S3Client s3Client() {
+        if (s3Region == null || s3Region.trim().isEmpty()) {
+            throw new IllegalArgumentException("S3 region must be configured. Please set 'app.s3.region' in application properties.");
+        }
+        return S3Client.builder()
+                .region(Region.of(s3Region))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .build();
+    }
+}
@@ -3,11 +3,14 @@ package com.apple.springboot.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.sqs.SqsClient;
 
+// The loadtest profile replaces this client with an in-memory queue (see LoadTestConfiguration)
 @Configuration
+@Profile("!loadtest")
 public class SqsConfig {
 
     @Value("${aws.region}")
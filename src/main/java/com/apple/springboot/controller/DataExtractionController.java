@@ -1,9 +1,12 @@
     package com.apple.springboot.controller;
 
     import com.apple.springboot.model.CleansedDataStore;
+    import com.apple.springboot.model.EnrichmentPriority;
     import com.apple.springboot.repository.CleansedDataStoreRepository;
     import com.apple.springboot.service.DataIngestionService;
     import com.apple.springboot.service.EnrichmentPipelineService;
+    import com.apple.springboot.service.PipelineExecution;
+    import com.apple.springboot.service.StageTimingService;
     import org.slf4j.Logger;
     import org.slf4j.LoggerFactory;
     import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +18,7 @@
     import java.io.UncheckedIOException;
     import java.util.Arrays;
     import java.util.List;
+    import java.util.Map;
     import java.util.UUID;
 
     @RestController
@@ -27,6 +31,8 @@
         private final EnrichmentPipelineService enrichmentPipelineService;
 
         private final CleansedDataStoreRepository cleansedDataStoreRepository;
+        private final StageTimingService stageTimingService;
+        private final PipelineExecution pipelineExecution;
 
         // List of statuses from DataIngestionService that indicate a fatal error before enrichment stage,
         // or that processing should stop before enrichment.
@@ -43,15 +49,20 @@
 
         @Autowired
         public DataExtractionController(DataIngestionService dataIngestionService,
-                                        EnrichmentPipelineService enrichmentPipelineService, CleansedDataStoreRepository cleansedDataStoreRepository) {
+                                        EnrichmentPipelineService enrichmentPipelineService, CleansedDataStoreRepository cleansedDataStoreRepository,
+                                        StageTimingService stageTimingService, PipelineExecution pipelineExecution) {
             this.dataIngestionService = dataIngestionService;
             this.enrichmentPipelineService = enrichmentPipelineService;
             this.cleansedDataStoreRepository = cleansedDataStoreRepository;
+            this.stageTimingService = stageTimingService;
+            this.pipelineExecution = pipelineExecution;
         }
 
+        // priority=high puts the page in the high-priority enrichment lane (see EnrichmentPriority)
         @GetMapping("/extract-cleanse-enrich-and-store")
         public ResponseEntity<String> extractCleanseEnrichAndStore(
-                @RequestParam(name = "sourceUri", required = false) String sourceUriParam) {
+                @RequestParam(name = "sourceUri", required = false) String sourceUriParam,
+                @RequestParam(name = "priority", required = false) String priorityParam) {
 
             String identifierForServiceCall;
             String identifierForLog;
@@ -68,13 +79,14 @@
             CleansedDataStore cleansedDataEntry = null;
 
             try {
+                EnrichmentPriority priority = EnrichmentPriority.parse(priorityParam);
                 if (identifierForServiceCall != null) {
                     cleansedDataEntry = dataIngestionService.ingestAndCleanseSingleFile(identifierForServiceCall);
                 } else {
                     cleansedDataEntry = dataIngestionService.ingestAndCleanseSingleFile();
                 }
                 // The ingestAndCleanseSingleFile method now returns CleansedDataStore directly or throws an exception.
-                return handleIngestionAndTriggerEnrichment(cleansedDataEntry, identifierForLog);
+                return handleIngestionAndTriggerEnrichment(cleansedDataEntry, identifierForLog, priority);
 
             } catch (IOException | UncheckedIOException e) {
                 logger.error("File I/O error for identifier: {}. Error: {}", identifierForLog, e.getMessage(), e);
@@ -130,19 +142,21 @@
     //    }
 
         @PostMapping("/ingest-json-payload")
-        public ResponseEntity<String> ingestJsonPayload(@RequestBody String jsonPayload) {
+        public ResponseEntity<String> ingestJsonPayload(@RequestBody String jsonPayload,
+                                                        @RequestParam(name = "priority", required = false) String priorityParam) {
             String sourceIdentifier = "api-payload-" + UUID.randomUUID().toString();
             logger.info("Received POST request to process JSON payload. Assigned sourceIdentifier: {}", sourceIdentifier);
             CleansedDataStore cleansedDataEntry = null;
 
             try {
+                EnrichmentPriority priority = EnrichmentPriority.parse(priorityParam);
                 if (jsonPayload == null || jsonPayload.trim().isEmpty()) {
                     logger.warn("Received empty JSON payload for identifier: {}", sourceIdentifier);
                     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("JSON payload cannot be empty.");
                 }
 
                 cleansedDataEntry = dataIngestionService.ingestAndCleanseJsonPayload(jsonPayload, sourceIdentifier);
-                return handleIngestionAndTriggerEnrichment(cleansedDataEntry, sourceIdentifier);
+                return handleIngestionAndTriggerEnrichment(cleansedDataEntry, sourceIdentifier, priority);
 
             } catch (IllegalArgumentException e) {
                 logger.error("Invalid argument processing JSON payload for identifier: {}. Error: {}", sourceIdentifier, e.getMessage(), e);
@@ -160,7 +174,15 @@
                     .orElse("NOT_FOUND");
         }
 
-        private ResponseEntity<String> handleIngestionAndTriggerEnrichment(CleansedDataStore cleansedDataEntry, String identifierForLog) {
+        // Pipeline milestones of one page (enqueuedAt, firstEnrichmentAt, searchableAt) and durations since cleansing
+        @GetMapping("/cleansed-data-timings/{id}")
+        public ResponseEntity<Map<String, Object>> getStageTimings(@PathVariable UUID id) {
+            Map<String, Object> report = stageTimingService.report(id);
+            return report == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(report);
+        }
+
+        private ResponseEntity<String> handleIngestionAndTriggerEnrichment(CleansedDataStore cleansedDataEntry, String identifierForLog,
+                                                                           EnrichmentPriority priority) {
             if (cleansedDataEntry == null || cleansedDataEntry.getId() == null) {
                 String statusMsg = (cleansedDataEntry != null && cleansedDataEntry.getStatus() != null) ?
                         cleansedDataEntry.getStatus() : "Ingestion service returned null or ID-less CleansedDataStore.";
@@ -198,14 +220,14 @@
             logger.info("Proceeding to enrichment for CleansedDataStore ID: {} from identifier: {}", cleansedDataStoreId, identifierForLog);
 
             final CleansedDataStore finalCleansedDataEntry = cleansedDataEntry;
-            new Thread(() -> {
+            pipelineExecution.submit(() -> {
                 try {
                     logger.info("Initiating asynchronous enrichment for CleansedDataStore ID: {}", finalCleansedDataEntry.getId());
-                    enrichmentPipelineService.enrichAndStore(finalCleansedDataEntry);
+                    enrichmentPipelineService.enrichAndStore(finalCleansedDataEntry, priority);
                 } catch (Exception e) {
                     logger.error("Asynchronous enrichment failed for CleansedDataStore ID: {}. Error: {}", finalCleansedDataEntry.getId(), e.getMessage(), e);
                 }
-            }).start();
+            });
 
             String successMessage = String.format("Request for %s accepted. CleansedDataID: %s. Enrichment processing initiated in background. Current status: %s",
                     identifierForLog, cleansedDataStoreId.toString(), currentStatus);
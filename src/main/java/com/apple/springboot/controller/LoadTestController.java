@@ -0,0 +1,41 @@
+package com.apple.springboot.controller;
+
+import com.apple.springboot.loadtest.LoadTestDriver;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Only mapped under the loadtest profile, where Bedrock, SQS and S3 are local fakes
+@RestController
+@RequestMapping("/api/loadtest")
+@Profile("loadtest")
+public class LoadTestController {
+
+    private final LoadTestDriver loadTestDriver;
+
+    public LoadTestController(LoadTestDriver loadTestDriver) {
+        this.loadTestDriver = loadTestDriver;
+    }
+
+    // Blocks until every page is searchable or the timeout passes, then returns items/s and latency percentiles
+    @PostMapping("/run")
+    public Map<String, Object> run(@RequestParam(defaultValue = "50") int pages,
+                                   @RequestParam(defaultValue = "4") int concurrency,
+                                   @RequestParam(defaultValue = "900") long timeoutSeconds) throws InterruptedException {
+        return loadTestDriver.run(pages, concurrency, Duration.ofSeconds(timeoutSeconds));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> handleConflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+}
@@ -1,16 +1,32 @@
 package com.apple.springboot.controller;
 
-import com.apple.springboot.model.ContentChunkWithDistance;
+import com.apple.springboot.model.BatchSearchRequest;
+import com.apple.springboot.model.ChunkSearchResult;
 import com.apple.springboot.model.RefinementChip;
+import com.apple.springboot.model.SearchCursor;
 import com.apple.springboot.model.SearchRequest;
 import com.apple.springboot.model.SearchResultDto;
+import com.apple.springboot.service.BatchSearchService;
+import com.apple.springboot.service.FacetCountService;
+import com.apple.springboot.service.HybridSearchService;
+import com.apple.springboot.service.LocalVectorIndexService;
+import com.apple.springboot.service.QuantizedSearchService;
 import com.apple.springboot.service.RefinementService;
 import com.apple.springboot.service.VectorSearchService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -19,11 +35,26 @@ public class SearchController {
 
     private final RefinementService refinementService;
     private final VectorSearchService vectorSearchService;
+    private final HybridSearchService hybridSearchService;
+    private final QuantizedSearchService quantizedSearchService;
+    private final LocalVectorIndexService localVectorIndexService;
+    private final BatchSearchService batchSearchService;
+    private final FacetCountService facetCountService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public SearchController(RefinementService refinementService, VectorSearchService vectorSearchService) {
+    public SearchController(RefinementService refinementService, VectorSearchService vectorSearchService,
+                            HybridSearchService hybridSearchService, QuantizedSearchService quantizedSearchService,
+                            LocalVectorIndexService localVectorIndexService, BatchSearchService batchSearchService,
+                            FacetCountService facetCountService, ObjectMapper objectMapper) {
         this.refinementService = refinementService;
         this.vectorSearchService = vectorSearchService;
+        this.hybridSearchService = hybridSearchService;
+        this.quantizedSearchService = quantizedSearchService;
+        this.localVectorIndexService = localVectorIndexService;
+        this.batchSearchService = batchSearchService;
+        this.facetCountService = facetCountService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/refine")
@@ -31,25 +62,102 @@ public class SearchController {
         return refinementService.getRefinementChips(query);
     }
 
+    // Recomputes the global facet counts behind /refine from consolidated_enriched_sections
+    @PostMapping("/refine/facets/rebuild")
+    public Map<String, Integer> rebuildFacetCounts() {
+        return Map.of("facetValues", facetCountService.rebuild());
+    }
+
     @PostMapping("/search")
-    public List<SearchResultDto> search(@RequestBody SearchRequest request) throws IOException {
-        List<ContentChunkWithDistance> results = vectorSearchService.search(
+    public ResponseEntity<List<SearchResultDto>> search(@RequestBody SearchRequest request) throws IOException {
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+        if ("hybrid".equalsIgnoreCase(request.getMode())) {
+            HybridSearchService.HybridSearchResult hybrid = hybridSearchService.search(request, limit);
+            // Per-branch latency is reported as response metadata so the body shape stays the same
+            return ResponseEntity.ok()
+                    .header("X-Search-Mode", "hybrid")
+                    .header("X-Search-Vector-Ms", String.valueOf(hybrid.vectorMillis()))
+                    .header("X-Search-Lexical-Ms", String.valueOf(hybrid.lexicalMillis()))
+                    .body(toDtos(hybrid.results()));
+        }
+
+        VectorSearchService.SearchPage page = vectorSearchService.searchPage(
                 request.getQuery(),
                 request.getOriginal_field_name(),
-                10, // limit
+                limit,
                 request.getTags(),
                 request.getKeywords(),
                 request.getContext(),
-                null // No threshold for filtered search
+                null, // No threshold for filtered search
+                request.getCursor() != null ? SearchCursor.decode(request.getCursor()) : null
         );
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header("X-Search-Mode", "vector");
+        if (page.nextCursor() != null) {
+            response.header("X-Next-Cursor", page.nextCursor().encode());
+        }
+        return response.body(toDtos(page.results()));
+    }
+
+    // Many queries with shared filters; results keyed by query string
+    @PostMapping("/search/batch")
+    public Map<String, List<SearchResultDto>> batchSearch(@RequestBody BatchSearchRequest request) throws IOException {
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+        Map<String, List<SearchResultDto>> response = new LinkedHashMap<>();
+        batchSearchService.search(request, limit).forEach((query, results) -> response.put(query, toDtos(results)));
+        return response;
+    }
+
+    // Newline-delimited JSON export of up to app.search.stream.max-limit hits, written as rows are fetched
+    @PostMapping("/search/stream")
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestBody SearchRequest request) throws IOException {
+        // Validate and embed before the response is committed so bad requests and Bedrock failures still get an error status
+        int limit = vectorSearchService.streamLimit(request.getLimit());
+        float[] queryVector = vectorSearchService.embed(request.getQuery());
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        StreamingResponseBody body = out -> {
+            vectorSearchService.streamSearch(queryVector, request.getOriginal_field_name(), limit, request.getTags(),
+                    request.getKeywords(), request.getContext(), null, result -> {
+                        try {
+                            writer.writeValue(out, toDto(result));
+                            out.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
 
-        // Transform the results into the DTO expected by the frontend
-        return results.stream().map(result -> {
-            return new SearchResultDto(
-                    result.getContentChunk().getConsolidatedEnrichedSection().getCleansedText(),
-                    result.getContentChunk().getConsolidatedEnrichedSection().getOriginalFieldName(),
-                    result.getContentChunk().getSectionPath()
-            );
-        }).collect(Collectors.toList());
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    // Recall@k of the configured (possibly quantized) ANN path against exact search
+    @GetMapping("/search/recall")
+    public Map<String, Object> measureRecall(@RequestParam(defaultValue = "50") int samples,
+                                             @RequestParam(defaultValue = "10") int k) {
+        return quantizedSearchService.measureRecall(samples, k);
+    }
+
+    // Size and readiness of the in-process hot-locale indexes
+    @GetMapping("/search/local-index")
+    public Map<String, Map<String, Object>> localIndexStats() {
+        return localVectorIndexService.stats();
+    }
+
+    // Transform the results into the DTO expected by the frontend
+    private List<SearchResultDto> toDtos(List<ChunkSearchResult> results) {
+        return results.stream().map(SearchController::toDto).collect(Collectors.toList());
+    }
+
+    private static SearchResultDto toDto(ChunkSearchResult result) {
+        return new SearchResultDto(
+                result.getCleansedText(),
+                result.getOriginalFieldName(),
+                result.getSectionPath()
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+package com.apple.springboot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.model.InternalServerException;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for Bedrock under the loadtest profile. Each call sleeps for the configured latency
+ * (plus uniform jitter) and then fails with a throttle or server error at the configured rates. Otherwise
+ * embedding requests get pseudo-random unit vectors seeded by the input text, and enrichment requests get
+ * {@code standardEnrichments} derived from the &lt;content&gt; of the prompt, so the same item always enriches
+ * and embeds the same way.
+ */
+public class FakeBedrockRuntimeClient implements BedrockRuntimeClient {
+
+    static final int DIMENSION = 1024;
+
+    private static final Pattern CONTENT = Pattern.compile("<content>\\n?(.*?)\\n?</content>", Pattern.DOTALL);
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]{4,}");
+    private static final String[] SENTIMENTS = {"positive", "neutral", "neutral", "negative"};
+    private static final String[] CLASSIFICATIONS = {"product description", "promotional heading", "legal disclaimer", "feature callout"};
+
+    private final ObjectMapper objectMapper;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final double throttleRate;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+
+    public FakeBedrockRuntimeClient(ObjectMapper objectMapper, long latencyMs, long jitterMs, double errorRate, double throttleRate) {
+        this.objectMapper = objectMapper;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+    }
+
+    @Override
+    public InvokeModelResponse invokeModel(InvokeModelRequest request) {
+        calls.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sleep(latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0));
+        double roll = random.nextDouble();
+        if (roll < throttleRate) {
+            throttles.incrementAndGet();
+            throw ThrottlingException.builder()
+                    .message("Too many requests (loadtest stub)")
+                    .statusCode(429)
+                    .awsErrorDetails(errorDetails("ThrottlingException", "Too many requests (loadtest stub)", 429))
+                    .build();
+        }
+        if (roll < throttleRate + errorRate) {
+            errors.incrementAndGet();
+            throw InternalServerException.builder()
+                    .message("Injected model error (loadtest stub)")
+                    .statusCode(500)
+                    .awsErrorDetails(errorDetails("InternalServerException", "Injected model error (loadtest stub)", 500))
+                    .build();
+        }
+
+        try {
+            JsonNode body = objectMapper.readTree(request.body().asUtf8String());
+            JsonNode response = body.has("inputText") ? embeddingResponse(body.get("inputText")) : enrichmentResponse(body);
+            return InvokeModelResponse.builder()
+                    .contentType("application/json")
+                    .body(SdkBytes.fromUtf8String(objectMapper.writeValueAsString(response)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Loadtest stub could not read the request body", e);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("throttles", throttles.get());
+        stats.put("errors", errors.get());
+        return stats;
+    }
+
+    // A batch request (array of texts) gets an array of vectors, matching generateEmbeddingsInBatch
+    private JsonNode embeddingResponse(JsonNode inputText) {
+        ObjectNode response = objectMapper.createObjectNode();
+        if (inputText.isArray()) {
+            ArrayNode vectors = response.putArray("embedding");
+            for (JsonNode text : inputText) {
+                vectors.add(vector(text.asText()));
+            }
+        } else {
+            response.set("embedding", vector(inputText.asText()));
+        }
+        response.put("inputTextTokenCount", inputText.toString().length() / 4);
+        return response;
+    }
+
+    private ArrayNode vector(String text) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        double[] values = new double[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            values[i] = random.nextDouble(-1, 1);
+            norm += values[i] * values[i];
+        }
+        norm = Math.sqrt(norm);
+        ArrayNode vector = objectMapper.createArrayNode();
+        for (double value : values) {
+            vector.add((float) (value / norm));
+        }
+        return vector;
+    }
+
+    private JsonNode enrichmentResponse(JsonNode body) throws IOException {
+        String prompt = body.path("messages").path(0).path("content").asText("");
+        Matcher matcher = CONTENT.matcher(prompt);
+        String content = matcher.find() ? matcher.group(1).trim() : "";
+
+        Set<String> words = new LinkedHashSet<>();
+        Matcher word = WORD.matcher(content.toLowerCase(Locale.ROOT));
+        while (word.find() && words.size() < 10) {
+            words.add(word.group());
+        }
+        List<String> keywords = new ArrayList<>(words);
+        int bucket = Math.floorMod(content.hashCode(), CLASSIFICATIONS.length);
+
+        Map<String, Object> enrichments = new LinkedHashMap<>();
+        enrichments.put("summary", content.length() > 160 ? content.substring(0, 160) : content);
+        enrichments.put("keywords", keywords);
+        enrichments.put("sentiment", SENTIMENTS[bucket]);
+        enrichments.put("classification", CLASSIFICATIONS[bucket]);
+        enrichments.put("tags", keywords.subList(0, Math.min(5, keywords.size())));
+        String text = objectMapper.writeValueAsString(Map.of("standardEnrichments", enrichments));
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("type", "message");
+        response.put("role", "assistant");
+        response.putArray("content").addObject()
+                .put("type", "text")
+                .put("text", text);
+        response.put("stop_reason", "end_turn");
+        return response;
+    }
+
+    private static AwsErrorDetails errorDetails(String code, String message, int status) {
+        return AwsErrorDetails.builder()
+                .errorCode(code)
+                .errorMessage(message)
+                .serviceName(SERVICE_NAME)
+                .sdkHttpResponse(SdkHttpResponse.builder().statusCode(status).build())
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,122 @@
+package com.apple.springboot.loadtest;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Local stand-in for S3 under the loadtest profile: objects are files at {@code <root>/<bucket>/<key>}.
+ * Supports the calls the ingestion path makes (GET and HEAD) plus PUT for the load driver; the ETag is
+ * the MD5 of the content, as for a single-part upload.
+ */
+public class FileSystemS3Client implements S3Client {
+
+    private final Path root;
+
+    public FileSystemS3Client(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        Path file = existing(request.bucket(), request.key());
+        try {
+            GetObjectResponse response = GetObjectResponse.builder()
+                    .contentLength(Files.size(file))
+                    .eTag(eTag(file))
+                    .lastModified(Files.getLastModifiedTime(file).toInstant())
+                    .contentType("application/json")
+                    .build();
+            return new ResponseInputStream<>(response, AbortableInputStream.create(Files.newInputStream(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        Path file = existing(request.bucket(), request.key());
+        try {
+            return HeadObjectResponse.builder()
+                    .contentLength(Files.size(file))
+                    .eTag(eTag(file))
+                    .lastModified(Files.getLastModifiedTime(file).toInstant())
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        Path file = resolve(request.bucket(), request.key());
+        try (InputStream in = requestBody.contentStreamProvider().newStream()) {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), ".upload", null);
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return PutObjectResponse.builder().eTag(eTag(file)).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + file, e);
+        }
+    }
+
+    private Path existing(String bucket, String key) {
+        Path file = resolve(bucket, key);
+        if (!Files.isRegularFile(file)) {
+            throw NoSuchKeyException.builder()
+                    .message("The specified key does not exist: s3://" + bucket + "/" + key)
+                    .statusCode(404)
+                    .build();
+        }
+        return file;
+    }
+
+    private Path resolve(String bucket, String key) {
+        Path file = root.resolve(bucket).resolve(key).normalize();
+        if (!file.startsWith(root.resolve(bucket))) {
+            throw new IllegalArgumentException("Key escapes the bucket directory: " + key);
+        }
+        return file;
+    }
+
+    private static String eTag(Path file) throws IOException {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            return "\"" + HexFormat.of().formatHex(md5.digest(Files.readAllBytes(file))) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 algorithm not found", e);
+        }
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,244 @@
+package com.apple.springboot.loadtest;
+
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiptHandleIsInvalidException;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local stand-in for SQS under the loadtest profile, one in-memory queue per queue URL. It keeps the
+ * semantics the listener depends on: a received message is hidden for the visibility timeout and comes
+ * back if it is not deleted in time, every receive issues a new receipt handle (a stale one cannot delete
+ * or extend the message), long polling waits up to waitTimeSeconds, and ApproximateReceiveCount counts
+ * deliveries. Ordering is best-effort FIFO, as on a standard queue.
+ */
+public class InMemorySqsClient implements SqsClient {
+
+    private static final int MAX_MESSAGES_PER_RECEIVE = 10;
+
+    private final int defaultVisibilityTimeoutSeconds;
+    private final Map<String, InMemoryQueue> queues = new ConcurrentHashMap<>();
+
+    public InMemorySqsClient(int defaultVisibilityTimeoutSeconds) {
+        this.defaultVisibilityTimeoutSeconds = defaultVisibilityTimeoutSeconds;
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest request) {
+        long delayMillis = request.delaySeconds() == null ? 0 : TimeUnit.SECONDS.toMillis(request.delaySeconds());
+        String messageId = queue(request.queueUrl()).add(request.messageBody(), request.messageAttributes(), delayMillis);
+        return SendMessageResponse.builder().messageId(messageId).build();
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest request) {
+        int max = request.maxNumberOfMessages() == null ? 1 : Math.min(request.maxNumberOfMessages(), MAX_MESSAGES_PER_RECEIVE);
+        int visibility = request.visibilityTimeout() == null ? defaultVisibilityTimeoutSeconds : request.visibilityTimeout();
+        long waitMillis = request.waitTimeSeconds() == null ? 0 : TimeUnit.SECONDS.toMillis(request.waitTimeSeconds());
+        try {
+            List<Message> messages = queue(request.queueUrl()).receive(max, TimeUnit.SECONDS.toMillis(visibility), waitMillis);
+            return ReceiveMessageResponse.builder().messages(messages).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ReceiveMessageResponse.builder().messages(List.of()).build();
+        }
+    }
+
+    @Override
+    public DeleteMessageResponse deleteMessage(DeleteMessageRequest request) {
+        queue(request.queueUrl()).delete(request.receiptHandle());
+        return DeleteMessageResponse.builder().build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityResponse changeMessageVisibility(ChangeMessageVisibilityRequest request) {
+        queue(request.queueUrl()).changeVisibility(request.receiptHandle(), TimeUnit.SECONDS.toMillis(request.visibilityTimeout()));
+        return ChangeMessageVisibilityResponse.builder().build();
+    }
+
+    @Override
+    public GetQueueAttributesResponse getQueueAttributes(GetQueueAttributesRequest request) {
+        InMemoryQueue queue = queue(request.queueUrl());
+        Map<QueueAttributeName, String> attributes = new LinkedHashMap<>();
+        attributes.put(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, String.valueOf(queue.visibleCount()));
+        attributes.put(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, String.valueOf(queue.inFlightCount()));
+        attributes.put(QueueAttributeName.VISIBILITY_TIMEOUT, String.valueOf(defaultVisibilityTimeoutSeconds));
+        return GetQueueAttributesResponse.builder().attributes(attributes).build();
+    }
+
+    private InMemoryQueue queue(String queueUrl) {
+        return queues.computeIfAbsent(queueUrl, url -> new InMemoryQueue());
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static final class StoredMessage {
+        final String messageId;
+        final String body;
+        final Map<String, MessageAttributeValue> attributes;
+        final long sentAt;
+        long visibleAt;
+        String receiptHandle;
+        int receiveCount;
+
+        StoredMessage(String messageId, String body, Map<String, MessageAttributeValue> attributes, long sentAt, long visibleAt) {
+            this.messageId = messageId;
+            this.body = body;
+            this.attributes = attributes;
+            this.sentAt = sentAt;
+            this.visibleAt = visibleAt;
+        }
+    }
+
+    private static final class InMemoryQueue {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        // Insertion order is send order; redelivered messages keep their place
+        private final LinkedHashMap<String, StoredMessage> messages = new LinkedHashMap<>();
+        private final Map<String, StoredMessage> byReceiptHandle = new HashMap<>();
+
+        String add(String body, Map<String, MessageAttributeValue> attributes, long delayMillis) {
+            String messageId = UUID.randomUUID().toString();
+            long now = System.currentTimeMillis();
+            lock.lock();
+            try {
+                messages.put(messageId, new StoredMessage(messageId, body, attributes, now, now + delayMillis));
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            return messageId;
+        }
+
+        List<Message> receive(int max, long visibilityMillis, long waitMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + waitMillis;
+            lock.lock();
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    List<Message> received = new ArrayList<>(max);
+                    long nextVisibleAt = Long.MAX_VALUE;
+                    for (StoredMessage stored : messages.values()) {
+                        if (received.size() == max) {
+                            break;
+                        }
+                        if (stored.visibleAt > now) {
+                            nextVisibleAt = Math.min(nextVisibleAt, stored.visibleAt);
+                            continue;
+                        }
+                        if (stored.receiptHandle != null) {
+                            byReceiptHandle.remove(stored.receiptHandle);
+                        }
+                        stored.receiptHandle = UUID.randomUUID().toString();
+                        stored.receiveCount++;
+                        stored.visibleAt = now + visibilityMillis;
+                        byReceiptHandle.put(stored.receiptHandle, stored);
+                        received.add(toMessage(stored));
+                    }
+                    if (!received.isEmpty() || now >= deadline) {
+                        return received;
+                    }
+                    // Woken by a send, or when a hidden message's visibility timeout runs out
+                    changed.await(Math.min(deadline, nextVisibleAt) - now, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void delete(String receiptHandle) {
+            lock.lock();
+            try {
+                StoredMessage stored = byReceiptHandle.remove(receiptHandle);
+                if (stored == null) {
+                    throw ReceiptHandleIsInvalidException.builder()
+                            .message("The receipt handle has expired or was superseded by a later receive")
+                            .statusCode(400)
+                            .build();
+                }
+                messages.remove(stored.messageId);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void changeVisibility(String receiptHandle, long visibilityMillis) {
+            lock.lock();
+            try {
+                StoredMessage stored = byReceiptHandle.get(receiptHandle);
+                if (stored == null) {
+                    throw ReceiptHandleIsInvalidException.builder()
+                            .message("The receipt handle has expired or was superseded by a later receive")
+                            .statusCode(400)
+                            .build();
+                }
+                stored.visibleAt = System.currentTimeMillis() + visibilityMillis;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long visibleCount() {
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                return messages.values().stream().filter(stored -> stored.visibleAt <= now).count();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long inFlightCount() {
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                return messages.values().stream().filter(stored -> stored.visibleAt > now && stored.receiptHandle != null).count();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static Message toMessage(StoredMessage stored) {
+            return Message.builder()
+                    .messageId(stored.messageId)
+                    .receiptHandle(stored.receiptHandle)
+                    .body(stored.body)
+                    .messageAttributes(stored.attributes)
+                    .attributes(Map.of(
+                            MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, String.valueOf(stored.receiveCount),
+                            MessageSystemAttributeName.SENT_TIMESTAMP, String.valueOf(stored.sentAt)))
+                    .build();
+        }
+    }
+}
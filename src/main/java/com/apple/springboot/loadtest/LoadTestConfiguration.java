@@ -0,0 +1,40 @@
+package com.apple.springboot.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+
+/**
+ * In-process replacements for the AWS clients under the loadtest profile (see application-loadtest.properties).
+ * Only Bedrock, SQS and S3 are replaced; the database is still the configured PostgreSQL instance.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+
+    @Bean
+    public FakeBedrockRuntimeClient bedrockRuntimeClient(ObjectMapper objectMapper,
+                                                         @Value("${app.loadtest.bedrock.latency-ms:200}") long latencyMs,
+                                                         @Value("${app.loadtest.bedrock.latency-jitter-ms:100}") long jitterMs,
+                                                         @Value("${app.loadtest.bedrock.error-rate:0.0}") double errorRate,
+                                                         @Value("${app.loadtest.bedrock.throttle-rate:0.0}") double throttleRate) {
+        if (errorRate < 0 || throttleRate < 0 || errorRate + throttleRate > 1) {
+            throw new IllegalArgumentException("app.loadtest.bedrock error-rate and throttle-rate must be between 0 and 1 and sum to at most 1");
+        }
+        return new FakeBedrockRuntimeClient(objectMapper, latencyMs, jitterMs, errorRate, throttleRate);
+    }
+
+    @Bean
+    public InMemorySqsClient sqsClient(@Value("${app.loadtest.sqs.visibility-timeout-seconds:30}") int visibilityTimeoutSeconds) {
+        return new InMemorySqsClient(visibilityTimeoutSeconds);
+    }
+
+    @Bean
+    public FileSystemS3Client s3Client(@Value("${app.loadtest.s3.root:${java.io.tmpdir}/springboot-loadtest-s3}") String root) {
+        return new FileSystemS3Client(Path.of(root));
+    }
+}
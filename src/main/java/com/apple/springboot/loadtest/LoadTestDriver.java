@@ -0,0 +1,295 @@
+package com.apple.springboot.loadtest;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import com.apple.springboot.service.DataIngestionService;
+import com.apple.springboot.service.EnrichmentPipelineService;
+import com.apple.springboot.service.StageTimingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replays synthetic pages through the whole pipeline against the loadtest fakes. Each page is a copy of one
+ * of the samples in src/main/resources/data with run-unique paths and copy (so nothing is deduplicated),
+ * written to the filesystem S3 and ingested from its s3:// URI, then enriched through the in-memory queue.
+ * End-to-end latency runs from the start of ingestion to the page's searchableAt milestone, or to when the
+ * driver saw it reach a final status if no milestone was recorded.
+ */
+@Service
+@Profile("loadtest")
+public class LoadTestDriver {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestDriver.class);
+
+    private static final Set<String> FINAL_STATUSES = Set.of(
+            "ENRICHED_COMPLETE", "PARTIALLY_ENRICHED", "ENRICHMENT_FAILED", "ENRICHED_NO_ITEMS_TO_PROCESS");
+    private static final long POLL_INTERVAL_MS = 250;
+
+    private final DataIngestionService dataIngestionService;
+    private final EnrichmentPipelineService enrichmentPipelineService;
+    private final CleansedDataStoreRepository cleansedDataStoreRepository;
+    private final FileSystemS3Client s3Client;
+    private final FakeBedrockRuntimeClient bedrockClient;
+    private final ObjectMapper objectMapper;
+    private final String bucketName;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LoadTestDriver(DataIngestionService dataIngestionService,
+                          EnrichmentPipelineService enrichmentPipelineService,
+                          CleansedDataStoreRepository cleansedDataStoreRepository,
+                          FileSystemS3Client s3Client,
+                          FakeBedrockRuntimeClient bedrockClient,
+                          ObjectMapper objectMapper,
+                          @Value("${app.s3.bucket-name}") String bucketName) {
+        this.dataIngestionService = dataIngestionService;
+        this.enrichmentPipelineService = enrichmentPipelineService;
+        this.cleansedDataStoreRepository = cleansedDataStoreRepository;
+        this.s3Client = s3Client;
+        this.bedrockClient = bedrockClient;
+        this.objectMapper = objectMapper;
+        this.bucketName = bucketName;
+    }
+
+    private static final class PageRun {
+        final String sourceUri;
+        final OffsetDateTime startedAt;
+        final long startNanos;
+        UUID cleansedDataStoreId;
+        int items;
+        String status;
+        Long latencyMs;
+
+        PageRun(String sourceUri) {
+            this.sourceUri = sourceUri;
+            this.startedAt = OffsetDateTime.now();
+            this.startNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ingests {@code pages} pages with {@code concurrency} threads and waits up to {@code timeout} for all of
+     * them to finish enrichment. Returns throughput, latency percentiles and status counts.
+     */
+    public Map<String, Object> run(int pages, int concurrency, Duration timeout) throws InterruptedException {
+        if (pages < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("pages and concurrency must be at least 1");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A load test is already running");
+        }
+        try {
+            String runId = UUID.randomUUID().toString().substring(0, 8);
+            List<String> sourceUris = writePages(runId, pages);
+            Map<String, Long> bedrockBefore = bedrockClient.stats();
+            logger.info("Load test {}: replaying {} pages with concurrency {}", runId, pages, concurrency);
+
+            long runStart = System.nanoTime();
+            ConcurrentLinkedQueue<PageRun> runs = new ConcurrentLinkedQueue<>();
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency,
+                    new ThreadFactoryBuilder().setNameFormat("loadtest-driver-%d").setDaemon(true).build());
+            try {
+                for (String sourceUri : sourceUris) {
+                    executor.submit(() -> runs.add(ingest(sourceUri)));
+                }
+            } finally {
+                executor.shutdown();
+            }
+            long deadline = runStart + timeout.toNanos();
+            executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            List<PageRun> completed = awaitCompletion(new ArrayList<>(runs), deadline);
+            long runEnd = System.nanoTime();
+
+            Map<String, Object> report = report(runId, pages, concurrency, new ArrayList<>(runs), completed,
+                    runEnd - runStart, bedrockBefore);
+            logger.info("Load test {} finished: {}", runId, report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private PageRun ingest(String sourceUri) {
+        PageRun run = new PageRun(sourceUri);
+        try {
+            CleansedDataStore cleansed = dataIngestionService.ingestAndCleanseSingleFile(sourceUri);
+            run.cleansedDataStoreId = cleansed.getId();
+            run.items = cleansed.getCleansedItems() == null ? 0 : cleansed.getCleansedItems().size();
+            run.status = cleansed.getStatus();
+            if ("CLEANSED_PENDING_ENRICHMENT".equals(cleansed.getStatus())) {
+                enrichmentPipelineService.enrichAndStore(cleansed);
+                run.status = cleansed.getStatus();
+            }
+        } catch (Exception e) {
+            logger.error("Load test page {} failed to ingest: {}", sourceUri, e.getMessage(), e);
+            run.status = "DRIVER_ERROR";
+        }
+        return run;
+    }
+
+    // Polls until every enqueued page reaches a final status or the deadline passes
+    private List<PageRun> awaitCompletion(List<PageRun> runs, long deadline) throws InterruptedException {
+        List<PageRun> pending = new ArrayList<>();
+        List<PageRun> completed = new ArrayList<>();
+        for (PageRun run : runs) {
+            if ("ENRICHMENT_QUEUED".equals(run.status)) {
+                pending.add(run);
+            } else if (run.status != null && FINAL_STATUSES.contains(run.status)) {
+                completed.add(run);
+            }
+        }
+        while (!pending.isEmpty() && System.nanoTime() < deadline) {
+            for (Iterator<PageRun> it = pending.iterator(); it.hasNext(); ) {
+                PageRun run = it.next();
+                String status = cleansedDataStoreRepository.findById(run.cleansedDataStoreId)
+                        .map(CleansedDataStore::getStatus)
+                        .orElse(null);
+                if (status != null && FINAL_STATUSES.contains(status)) {
+                    run.status = status;
+                    run.latencyMs = latencyMs(run);
+                    completed.add(run);
+                    it.remove();
+                }
+            }
+            if (!pending.isEmpty()) {
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        }
+        pending.forEach(run -> run.status = "TIMED_OUT");
+        return completed;
+    }
+
+    private long latencyMs(PageRun run) {
+        Object searchableAt = cleansedDataStoreRepository.findStageTimings(run.cleansedDataStoreId).get(StageTimingService.SEARCHABLE);
+        if (searchableAt instanceof String at) {
+            return Duration.between(run.startedAt, OffsetDateTime.parse(at)).toMillis();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.startNanos);
+    }
+
+    private Map<String, Object> report(String runId, int pages, int concurrency, List<PageRun> runs, List<PageRun> completed,
+                                       long elapsedNanos, Map<String, Long> bedrockBefore) {
+        long items = completed.stream().mapToLong(run -> run.items).sum();
+        double seconds = elapsedNanos / 1e9;
+        long[] latencies = completed.stream()
+                .filter(run -> run.latencyMs != null)
+                .mapToLong(run -> run.latencyMs)
+                .sorted()
+                .toArray();
+
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        runs.forEach(run -> statuses.merge(run.status == null ? "UNKNOWN" : run.status, 1L, Long::sum));
+        Map<String, Long> bedrock = new LinkedHashMap<>();
+        bedrockClient.stats().forEach((key, value) -> bedrock.put(key, value - bedrockBefore.getOrDefault(key, 0L)));
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", percentile(latencies, 50));
+        latency.put("p90", percentile(latencies, 90));
+        latency.put("p95", percentile(latencies, 95));
+        latency.put("p99", percentile(latencies, 99));
+        latency.put("max", latencies.length == 0 ? null : latencies[latencies.length - 1]);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("runId", runId);
+        report.put("pages", pages);
+        report.put("concurrency", concurrency);
+        report.put("pagesCompleted", completed.size());
+        report.put("itemsCompleted", items);
+        report.put("elapsedSeconds", Math.round(seconds * 1000) / 1000.0);
+        report.put("itemsPerSecond", seconds > 0 ? Math.round(items / seconds * 100) / 100.0 : null);
+        report.put("pagesPerSecond", seconds > 0 ? Math.round(completed.size() / seconds * 100) / 100.0 : null);
+        report.put("endToEndLatencyMs", latency);
+        report.put("statuses", statuses);
+        report.put("bedrock", bedrock);
+        return report;
+    }
+
+    // Nearest-rank percentile of sorted values; null when there are none
+    private static Long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return null;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private List<String> writePages(String runId, int pages) {
+        List<JsonNode> samples = loadSamples();
+        List<String> sourceUris = new ArrayList<>(pages);
+        for (int i = 0; i < pages; i++) {
+            JsonNode page = samples.get(i % samples.size()).deepCopy();
+            suffix(page, "-" + runId + "-" + i);
+            String key = "loadtest/" + runId + "/page-" + i + ".json";
+            try {
+                s3Client.putObject(PutObjectRequest.builder().bucket(bucketName).key(key).build(),
+                        RequestBody.fromBytes(objectMapper.writeValueAsBytes(page)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write load test page " + key, e);
+            }
+            sourceUris.add("s3://" + bucketName + "/" + key);
+        }
+        return sourceUris;
+    }
+
+    private List<JsonNode> loadSamples() {
+        try {
+            List<JsonNode> samples = new ArrayList<>();
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:data/*.json")) {
+                try (InputStream in = resource.getInputStream()) {
+                    samples.add(objectMapper.readTree(in));
+                }
+            }
+            if (samples.isEmpty()) {
+                throw new IllegalStateException("No sample pages found under classpath:data/");
+            }
+            return samples;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sample pages", e);
+        }
+    }
+
+    // Makes every _path and copy value unique to this page, so hashes and usage paths never collide
+    private static void suffix(JsonNode node, String suffix) {
+        if (node instanceof ObjectNode object) {
+            for (Iterator<Map.Entry<String, JsonNode>> fields = object.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getValue().isTextual() && ("_path".equals(field.getKey()) || "copy".equals(field.getKey()))) {
+                    field.setValue(TextNode.valueOf(field.getValue().asText() + suffix));
+                } else {
+                    suffix(field.getValue(), suffix);
+                }
+            }
+        } else if (node.isArray()) {
+            node.forEach(element -> suffix(element, suffix));
+        }
+    }
+}
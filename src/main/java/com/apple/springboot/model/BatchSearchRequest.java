@@ -0,0 +1,28 @@
+package com.apple.springboot.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class BatchSearchRequest {
+    private List<String> queries;
+    // Filters and page size shared by every query in the batch
+    private List<String> tags;
+    private List<String> keywords;
+    private Map<String, Object> context;
+    private String original_field_name;
+    private Integer limit;
+
+    // Getters and setters
+    public List<String> getQueries() { return queries; }
+    public void setQueries(List<String> queries) { this.queries = queries; }
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+    public List<String> getKeywords() { return keywords; }
+    public void setKeywords(List<String> keywords) { this.keywords = keywords; }
+    public Map<String, Object> getContext() { return context; }
+    public void setContext(Map<String, Object> context) { this.context = context; }
+    public String getOriginal_field_name() { return original_field_name; }
+    public void setOriginal_field_name(String original_field_name) { this.original_field_name = original_field_name; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+}
@@ -0,0 +1,31 @@
+package com.apple.springboot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Flat projection of a vector search hit: the chunk columns plus the section columns the
+ * search and refinement endpoints read, fetched in the search query itself so no
+ * ContentChunk / ConsolidatedEnrichedSection entities are hydrated.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkSearchResult {
+    private UUID chunkId;
+    private UUID sectionId;
+    private String chunkText;
+    private String sectionPath;
+    private String sourceUri;
+    private String cleansedText;
+    private String originalFieldName;
+    private List<String> tags;
+    private List<String> keywords;
+    private Map<String, Object> context;
+    private double distance;
+}
@@ -37,6 +37,11 @@ public class CleansedDataStore {
     @Column(name = "cleansed_items", nullable = false, columnDefinition = "jsonb")
     private List<Map<String, Object>> cleansedItems;
 
+    // Distinct item contexts keyed by the contextRef of cleansed_items entries
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "context_dictionary", columnDefinition = "jsonb")
+    private Map<String, Map<String, Object>> contextDictionary;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "context", columnDefinition = "jsonb")
     private Map<String, Object> context;
@@ -88,5 +88,18 @@ public class ConsolidatedEnrichedSection {
     @Column(name = "content_hash")
     private String contentHash;
 
+    // Hot context facets copied out of the context jsonb for indexed filtering (db/007_filter_columns.sql)
+    @Column(name = "locale")
+    private String locale;
+
+    @Column(name = "country")
+    private String country;
+
+    @Column(name = "section_model")
+    private String sectionModel;
+
+    @Column(name = "event_type")
+    private String eventType;
+
 
 }
@@ -54,6 +54,19 @@ public class ContentChunk {
     @Column(name = "section_path")
     private String sectionPath;
 
+    // Copied from the chunk's section so filtered vector search need not join it (db/007_filter_columns.sql)
+    @Column(name = "locale")
+    private String locale;
+
+    @Column(name = "country")
+    private String country;
+
+    @Column(name = "section_model")
+    private String sectionModel;
+
+    @Column(name = "event_type")
+    private String eventType;
+
     @JdbcTypeCode(SqlTypes.VECTOR)
     @Array(length = 1024)
     @Column(name = "vector", columnDefinition = "vector(1024)")
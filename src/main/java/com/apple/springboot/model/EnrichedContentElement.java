@@ -78,6 +78,10 @@ public class EnrichedContentElement {
     @Column(name = "version")
     private Integer version;
 
+    // One row per item of a page; unique (db/011_enriched_element_dedup_key.sql)
+    @Column(name = "dedup_key", columnDefinition = "TEXT", unique = true)
+    private String dedupKey;
+
     // @Column(name = "content_hash")
     // private String contentHash;
 
@@ -8,13 +8,23 @@ public class EnrichmentMessage {
 
     private CleansedItemDetail cleansedItemDetail;
     private UUID cleansedDataStoreId;
+    // Absent on messages enqueued before priority lanes; read as NORMAL
+    private EnrichmentPriority priority;
+    // Epoch millis when the message was enqueued, for per-lane latency
+    private long enqueuedAt;
 
     public EnrichmentMessage() {
     }
 
     public EnrichmentMessage(CleansedItemDetail cleansedItemDetail, UUID cleansedDataStoreId) {
+        this(cleansedItemDetail, cleansedDataStoreId, EnrichmentPriority.NORMAL);
+    }
+
+    public EnrichmentMessage(CleansedItemDetail cleansedItemDetail, UUID cleansedDataStoreId, EnrichmentPriority priority) {
         this.cleansedItemDetail = cleansedItemDetail;
         this.cleansedDataStoreId = cleansedDataStoreId;
+        this.priority = priority;
+        this.enqueuedAt = System.currentTimeMillis();
     }
 
     public CleansedItemDetail getCleansedItemDetail() {
@@ -32,4 +42,20 @@ public class EnrichmentMessage {
     public void setCleansedDataStoreId(UUID cleansedDataStoreId) {
         this.cleansedDataStoreId = cleansedDataStoreId;
     }
+
+    public EnrichmentPriority getPriority() {
+        return priority == null ? EnrichmentPriority.NORMAL : priority;
+    }
+
+    public void setPriority(EnrichmentPriority priority) {
+        this.priority = priority;
+    }
+
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public void setEnqueuedAt(long enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
 }
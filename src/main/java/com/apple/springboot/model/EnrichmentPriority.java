@@ -0,0 +1,31 @@
+package com.apple.springboot.model;
+
+import java.util.Locale;
+
+/**
+ * Enrichment lane of a page. HIGH is for urgent publishes: it has its own queue (when configured), its own
+ * pollers and a reserved share of the Bedrock rate budget, so bulk reprocessing in the NORMAL lane cannot
+ * starve it.
+ */
+public enum EnrichmentPriority {
+    HIGH, NORMAL;
+
+    /**
+     * Parses a request parameter; blank means NORMAL.
+     */
+    public static EnrichmentPriority parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NORMAL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown priority '" + value + "'; expected high or normal");
+        }
+    }
+
+    // Metric tag value
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,16 @@
+package com.apple.springboot.model;
+
+import java.util.Comparator;
+
+/**
+ * A refinement facet: chip type (e.g. "Tag", "Context:envelope.locale") and value.
+ */
+public record FacetKey(String type, String value) implements Comparable<FacetKey> {
+
+    private static final Comparator<FacetKey> ORDER = Comparator.comparing(FacetKey::type).thenComparing(FacetKey::value);
+
+    @Override
+    public int compareTo(FacetKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -1,6 +1,7 @@
 package com.apple.springboot.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -21,9 +22,14 @@ public class RawDataStore {
     @Column(name = "source_uri", nullable = false, columnDefinition = "TEXT")
     private String sourceUri;
 
+    // The payload columns hold the stored form; read the payload through RawContentCodec.decode
+    @Getter(AccessLevel.NONE)
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "raw_content_text", columnDefinition = "TEXT")
     private String rawContentText;
 
+    @Getter(AccessLevel.NONE)
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "raw_content_binary", columnDefinition = "bytea")
     private byte[] rawContentBinary;
 
@@ -49,6 +55,24 @@ public class RawDataStore {
     @Column(name = "latest")
     private Boolean latest = true;
 
+    // Null for plain rows; otherwise how raw_content_binary is compressed (see RawContentCodec)
+    @Column(name = "content_encoding", columnDefinition = "TEXT")
+    private String contentEncoding;
+
+    @Column(name = "raw_content_size")
+    private Integer rawContentSize;
+
+    // Version whose decoded payload is the zstd dictionary of a delta-encoded row
+    @Column(name = "delta_base_id")
+    private UUID deltaBaseId;
+
+    @Column(name = "delta_depth")
+    private Integer deltaDepth;
+
+    // S3 ETag, size and last-modified plus the context config hash at ingest; unchanged sources are skipped on it
+    @Column(name = "source_fingerprint", columnDefinition = "TEXT")
+    private String sourceFingerprint;
+
     public RawDataStore() {}
 
     public void setId(UUID id) { this.id = id; }
@@ -59,6 +83,16 @@ public class RawDataStore {
 
     public void setRawContentBinary(byte[] rawContentBinary) { this.rawContentBinary = rawContentBinary; }
 
+    /**
+     * The raw_content_text column as stored; NULL for encoded rows. Use RawContentCodec.decode for the payload.
+     */
+    public String storedContentText() { return rawContentText; }
+
+    /**
+     * The raw_content_binary column as stored, compressed for encoded rows. Use RawContentCodec.decode for the payload.
+     */
+    public byte[] storedContentBinary() { return rawContentBinary; }
+
     public void setSourceMetadata(String sourceMetadata) { this.sourceMetadata = sourceMetadata; }
 
     public void setReceivedAt(OffsetDateTime receivedAt) { this.receivedAt = receivedAt; }
@@ -89,4 +123,14 @@ public class RawDataStore {
     public void setLatest(Boolean latest) {
         this.latest = latest;
     }
+
+    public void setContentEncoding(String contentEncoding) { this.contentEncoding = contentEncoding; }
+
+    public void setRawContentSize(Integer rawContentSize) { this.rawContentSize = rawContentSize; }
+
+    public void setDeltaBaseId(UUID deltaBaseId) { this.deltaBaseId = deltaBaseId; }
+
+    public void setDeltaDepth(Integer deltaDepth) { this.deltaDepth = deltaDepth; }
+
+    public void setSourceFingerprint(String sourceFingerprint) { this.sourceFingerprint = sourceFingerprint; }
 }
\ No newline at end of file
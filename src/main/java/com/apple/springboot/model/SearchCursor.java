@@ -0,0 +1,31 @@
+package com.apple.springboot.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in a vector search ordered by (distance, chunk id): the next page starts strictly
+ * after this row. Serialized as an opaque URL-safe token.
+ */
+public record SearchCursor(double distance, UUID chunkId) {
+
+    public static SearchCursor after(ChunkSearchResult lastResult) {
+        return new SearchCursor(lastResult.getDistance(), lastResult.getChunkId());
+    }
+
+    public String encode() {
+        String raw = Double.toString(distance) + ":" + chunkId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new SearchCursor(Double.parseDouble(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor: " + token, e);
+        }
+    }
+}
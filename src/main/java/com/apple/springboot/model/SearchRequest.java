@@ -9,6 +9,9 @@ public class SearchRequest {
     private List<String> keywords;
     private Map<String, Object> context;
     private String original_field_name;
+    private String mode; // "vector" (default) or "hybrid"
+    private Integer limit; // page size, defaults to 10
+    private String cursor; // X-Next-Cursor of the previous page (vector mode only)
 
     // Getters and setters
     public String getQuery() { return query; }
@@ -21,4 +24,10 @@ public class SearchRequest {
     public void setContext(Map<String, Object> context) { this.context = context; }
     public String getOriginal_field_name() { return original_field_name; }
     public void setOriginal_field_name(String original_field_name) { this.original_field_name = original_field_name; }
+    public String getMode() { return mode; }
+    public void setMode(String mode) { this.mode = mode; }
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface CleansedDataStoreRepository extends JpaRepository<CleansedDataStore, UUID> {
+public interface CleansedDataStoreRepository extends JpaRepository<CleansedDataStore, UUID>, CleansedDataStoreRepositoryCustom {
     Optional<CleansedDataStore> findByRawDataId(UUID rawDataId);
     Optional<CleansedDataStore>findTopByRawDataIdOrderByCleansedAtDesc (UUID rawDataId);
    // Optional<CleansedDataStore> findBySourceUriAndContentHash(String sourceUri, String contentHash);
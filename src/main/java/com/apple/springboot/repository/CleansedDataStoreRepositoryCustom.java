@@ -0,0 +1,77 @@
+package com.apple.springboot.repository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface CleansedDataStoreRepositoryCustom {
+
+    /**
+     * Sets context.stageTimings.&lt;stage&gt; to {@code at} unless it is already set, in one statement, so
+     * concurrent listeners neither race nor overwrite the first value.
+     *
+     * @return true if this call recorded the timing
+     */
+    boolean recordStageTiming(UUID id, String stage, OffsetDateTime at);
+
+    /**
+     * The stored context.stageTimings of a row (ISO-8601 timestamps by stage), empty if none.
+     */
+    Map<String, Object> findStageTimings(UUID id);
+
+    /**
+     * Raises context.dispatchedCount (enrichment items sent to SQS by the fair scheduler) to {@code count}.
+     */
+    void recordDispatchedCount(UUID id, long count);
+
+    /**
+     * Pages still queued for enrichment whose dispatch stopped before all items were sent and that no live
+     * instance is dispatching: they have no context.dispatchOwner, or its heartbeat is older than {@code lease}.
+     */
+    List<UUID> findIdsWithUnfinishedDispatch(Duration lease);
+
+    /**
+     * Makes {@code owner} the dispatcher of a page returned by {@link #findIdsWithUnfinishedDispatch}, in one
+     * statement that re-checks the lease, so that only one instance resumes it.
+     *
+     * @return true if this call claimed it
+     */
+    boolean claimDispatch(UUID id, String owner, Duration lease);
+
+    /**
+     * Refreshes context.dispatchHeartbeatAt of a page dispatched by {@code owner}.
+     *
+     * @return false if another instance has taken the page over
+     */
+    boolean renewDispatchLease(UUID id, String owner);
+
+    /**
+     * Moves a page from ENRICHMENT_QUEUED to ENRICHMENT_FINALIZING in one statement, so that only one of the
+     * deliveries that observe its last item runs finalization. The claim is a lease held by {@code owner}:
+     * context.finalizationClaimedAt is set to the database time, and a page whose claim was not renewed for longer
+     * than {@code lease} (its finalizer died) can be claimed again.
+     *
+     * @return true if this call claimed it
+     */
+    boolean claimFinalization(UUID id, String owner, Duration lease);
+
+    /**
+     * Refreshes context.finalizationClaimedAt of a page whose finalization {@code owner} has claimed.
+     *
+     * @return false if the claim has expired and been taken over, or was released
+     */
+    boolean renewFinalizationLease(UUID id, String owner);
+
+    /**
+     * Returns a page claimed by {@code owner} to ENRICHMENT_QUEUED after its finalization failed or was interrupted,
+     * so that the next delivery of one of its items finalizes it again. A claim since taken over is left alone.
+     */
+    void releaseFinalization(UUID id, String owner);
+
+    /**
+     * Pages in ENRICHMENT_FINALIZING whose claim is older than {@code lease}.
+     */
+    List<UUID> findIdsWithExpiredFinalization(Duration lease);
+}
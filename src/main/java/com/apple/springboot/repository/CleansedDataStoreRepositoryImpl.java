@@ -0,0 +1,157 @@
+package com.apple.springboot.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+public class CleansedDataStoreRepositoryImpl implements CleansedDataStoreRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Finalizing pages whose claim (or a claim from before leases were recorded) is older than :leaseSeconds
+    private static final String EXPIRED_FINALIZATION = "status = 'ENRICHMENT_FINALIZING'"
+            + " AND COALESCE(CAST(context ->> 'finalizationClaimedAt' AS timestamptz), CAST('-infinity' AS timestamptz))"
+            + " < now() - CAST(:leaseSeconds AS bigint) * interval '1 second'";
+    private static final String OWNED_FINALIZATION = "status = 'ENRICHMENT_FINALIZING' AND context ->> 'finalizationOwner' = :owner";
+
+    private static final String UNFINISHED_DISPATCH = "status = 'ENRICHMENT_QUEUED' AND (context -> 'dispatchedCount') IS NOT NULL"
+            + " AND CAST(context ->> 'dispatchedCount' AS bigint) < CAST(context ->> 'expectedEnrichmentCount' AS bigint)";
+
+    // No instance owns the page's dispatch, or its owner stopped renewing the lease for :leaseSeconds
+    private static final String DISPATCH_LEASE_EXPIRED = "(context ->> 'dispatchOwner' IS NULL"
+            + " OR COALESCE(CAST(context ->> 'dispatchHeartbeatAt' AS timestamptz), CAST('-infinity' AS timestamptz))"
+            + " < now() - CAST(:leaseSeconds AS bigint) * interval '1 second')";
+
+    private final ObjectMapper objectMapper;
+
+    public CleansedDataStoreRepositoryImpl(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional
+    public boolean recordStageTiming(UUID id, String stage, OffsetDateTime at) {
+        return entityManager.createNativeQuery("UPDATE cleansed_data_store"
+                        + " SET context = COALESCE(context, CAST('{}' AS jsonb)) || jsonb_build_object('stageTimings',"
+                        + " COALESCE(context -> 'stageTimings', CAST('{}' AS jsonb)) || jsonb_build_object(CAST(:stage AS text), CAST(:at AS text)))"
+                        + " WHERE id = :id AND (context -> 'stageTimings' -> CAST(:stage AS text)) IS NULL")
+                .setParameter("id", id)
+                .setParameter("stage", stage)
+                .setParameter("at", at.toString())
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    public Map<String, Object> findStageTimings(UUID id) {
+        List<?> rows = entityManager.createNativeQuery("SELECT CAST(context -> 'stageTimings' AS text) FROM cleansed_data_store WHERE id = :id")
+                .setParameter("id", id)
+                .getResultList();
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue((String) rows.get(0), new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stageTimings on cleansed_data_store " + id, e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void recordDispatchedCount(UUID id, long count) {
+        entityManager.createNativeQuery("UPDATE cleansed_data_store"
+                        + " SET context = COALESCE(context, CAST('{}' AS jsonb)) || jsonb_build_object('dispatchedCount',"
+                        + " GREATEST(COALESCE(CAST(context ->> 'dispatchedCount' AS bigint), 0), :count))"
+                        + " WHERE id = :id")
+                .setParameter("id", id)
+                .setParameter("count", count)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<UUID> findIdsWithUnfinishedDispatch(Duration lease) {
+        List<?> rows = entityManager.createNativeQuery("SELECT id FROM cleansed_data_store WHERE " + UNFINISHED_DISPATCH
+                        + " AND " + DISPATCH_LEASE_EXPIRED)
+                .setParameter("leaseSeconds", lease.toSeconds())
+                .getResultList();
+        return rows.stream().map(UUID.class::cast).toList();
+    }
+
+    @Override
+    @Transactional
+    public boolean claimDispatch(UUID id, String owner, Duration lease) {
+        return entityManager.createNativeQuery("UPDATE cleansed_data_store"
+                        + " SET context = context || jsonb_build_object('dispatchOwner', CAST(:owner AS text), 'dispatchHeartbeatAt', CAST(now() AS text))"
+                        + " WHERE id = :id AND " + UNFINISHED_DISPATCH + " AND " + DISPATCH_LEASE_EXPIRED)
+                .setParameter("id", id)
+                .setParameter("owner", owner)
+                .setParameter("leaseSeconds", lease.toSeconds())
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean renewDispatchLease(UUID id, String owner) {
+        return entityManager.createNativeQuery("UPDATE cleansed_data_store"
+                        + " SET context = context || jsonb_build_object('dispatchHeartbeatAt', CAST(now() AS text))"
+                        + " WHERE id = :id AND context ->> 'dispatchOwner' = :owner")
+                .setParameter("id", id)
+                .setParameter("owner", owner)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean claimFinalization(UUID id, String owner, Duration lease) {
+        return entityManager.createNativeQuery("UPDATE cleansed_data_store SET status = 'ENRICHMENT_FINALIZING',"
+                        + " context = COALESCE(context, CAST('{}' AS jsonb)) || jsonb_build_object('finalizationOwner', CAST(:owner AS text),"
+                        + " 'finalizationClaimedAt', CAST(now() AS text))"
+                        + " WHERE id = :id AND (status = 'ENRICHMENT_QUEUED' OR (" + EXPIRED_FINALIZATION + "))")
+                .setParameter("id", id)
+                .setParameter("owner", owner)
+                .setParameter("leaseSeconds", lease.toSeconds())
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean renewFinalizationLease(UUID id, String owner) {
+        return entityManager.createNativeQuery("UPDATE cleansed_data_store"
+                        + " SET context = context || jsonb_build_object('finalizationClaimedAt', CAST(now() AS text))"
+                        + " WHERE id = :id AND " + OWNED_FINALIZATION)
+                .setParameter("id", id)
+                .setParameter("owner", owner)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public void releaseFinalization(UUID id, String owner) {
+        entityManager.createNativeQuery("UPDATE cleansed_data_store SET status = 'ENRICHMENT_QUEUED',"
+                        + " context = context - 'finalizationClaimedAt' - 'finalizationOwner'"
+                        + " WHERE id = :id AND " + OWNED_FINALIZATION)
+                .setParameter("id", id)
+                .setParameter("owner", owner)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<UUID> findIdsWithExpiredFinalization(Duration lease) {
+        List<?> rows = entityManager.createNativeQuery("SELECT id FROM cleansed_data_store WHERE " + EXPIRED_FINALIZATION)
+                .setParameter("leaseSeconds", lease.toSeconds())
+                .getResultList();
+        return rows.stream().map(UUID.class::cast).toList();
+    }
+}
@@ -4,6 +4,8 @@ package com.apple.springboot.repository;
 import com.apple.springboot.model.ConsolidatedEnrichedSection;
 import com.apple.springboot.model.EnrichedContentElement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -22,4 +24,21 @@ public interface ConsolidatedEnrichedSectionRepository extends JpaRepository<Con
     List<ConsolidatedEnrichedSection> findAllByCleansedDataId(UUID cleansedDataId);
 
     List<ConsolidatedEnrichedSection> findAllByCleansedDataIdAndVersion(UUID cleansedDataId, Integer version);
+
+    boolean existsByCleansedDataId(UUID cleansedDataId);
+
+    boolean existsByCleansedDataIdAndVersion(UUID cleansedDataId, Integer version);
+
+    /**
+     * Older versions of a source/section/field whose status is not {@code status}. A NULL status counts as
+     * different, like the IS DISTINCT FROM filters of the facet count rebuild.
+     */
+    @Query("SELECT s FROM ConsolidatedEnrichedSection s WHERE s.sourceUri = :sourceUri AND s.sectionPath = :sectionPath"
+            + " AND (s.originalFieldName = :originalFieldName OR (s.originalFieldName IS NULL AND :originalFieldName IS NULL))"
+            + " AND s.version < :version AND (s.status IS NULL OR s.status <> :status)")
+    List<ConsolidatedEnrichedSection> findPreviousVersionsWithStatusNot(@Param("sourceUri") String sourceUri,
+                                                                        @Param("sectionPath") String sectionPath,
+                                                                        @Param("originalFieldName") String originalFieldName,
+                                                                        @Param("version") Integer version,
+                                                                        @Param("status") String status);
 }
@@ -1,8 +1,13 @@
 package com.apple.springboot.repository;
 
-import com.apple.springboot.model.ConsolidatedEnrichedSection;
-import java.util.List;
+import java.util.UUID;
 
 public interface ConsolidatedEnrichedSectionRepositoryCustom {
-    List<ConsolidatedEnrichedSection> findByFullTextSearch(String query);
-}
\ No newline at end of file
+    /**
+     * Copies the hot context facets into the locale/country/section_model/event_type columns for the
+     * next {@code batchSize} sections by id after {@code after} (null to start).
+     *
+     * @return the last id processed, or null when there are no more rows
+     */
+    UUID backfillFilterColumns(UUID after, int batchSize);
+}
@@ -1,12 +1,12 @@
 package com.apple.springboot.repository;
 
-import com.apple.springboot.model.ConsolidatedEnrichedSection;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.UUID;
 
 @Repository
 public class ConsolidatedEnrichedSectionRepositoryImpl implements ConsolidatedEnrichedSectionRepositoryCustom {
@@ -15,21 +15,23 @@ public class ConsolidatedEnrichedSectionRepositoryImpl implements ConsolidatedEn
     private EntityManager entityManager;
 
     @Override
-    public List<ConsolidatedEnrichedSection> findByFullTextSearch(String textQuery) {
-        // This query uses PostgreSQL's full-text search capabilities.
-        // It correctly converts array fields (tags, keywords) to strings before including them in the search vector.
-        String sql = "SELECT * FROM consolidated_enriched_sections " +
-                "WHERE to_tsvector('english', " +
-                "COALESCE(summary, '') || ' ' || " +
-                "COALESCE(cleansed_text, '') || ' ' || " +
-                "COALESCE(array_to_string(tags, ' '), '') || ' ' || " +
-                "COALESCE(array_to_string(keywords, ' '), '')) " +
-                "@@ plainto_tsquery('english', :query)";
-
-        Query query = entityManager.createNativeQuery(sql, ConsolidatedEnrichedSection.class);
-        query.setParameter("query", textQuery);
-        query.setMaxResults(50); // Limit the results to a reasonable number for facet generation
-
-        return query.getResultList();
+    public UUID backfillFilterColumns(UUID after, int batchSize) {
+        Query idQuery = entityManager.createNativeQuery("SELECT id FROM consolidated_enriched_sections"
+                + (after != null ? " WHERE id > :after" : "") + " ORDER BY id LIMIT :batch_size");
+        if (after != null) {
+            idQuery.setParameter("after", after);
+        }
+        List<?> rows = idQuery.setParameter("batch_size", batchSize).getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<UUID> ids = rows.stream().map(id -> id instanceof UUID uuid ? uuid : UUID.fromString(id.toString())).toList();
+        entityManager.createNativeQuery("UPDATE consolidated_enriched_sections SET"
+                        + " locale = context #>> '{envelope,locale}', country = context #>> '{envelope,country}',"
+                        + " section_model = context #>> '{facets,sectionModel}', event_type = context #>> '{facets,eventType}'"
+                        + " WHERE id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return ids.get(ids.size() - 1);
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,15 @@
 package com.apple.springboot.repository;
 
+import com.apple.springboot.model.ChunkSearchResult;
 import com.apple.springboot.model.ContentChunkWithDistance;
+import com.apple.springboot.model.SearchCursor;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 public interface ContentChunkRepositoryCustom {
     List<ContentChunkWithDistance> findSimilar(
@@ -14,4 +21,110 @@ public interface ContentChunkRepositoryCustom {
             Double threshold,
             int limit
     );
-}
\ No newline at end of file
+
+    /**
+     * Same search as {@link #findSimilar}, but returns the chunk and section columns as a
+     * {@link ChunkSearchResult} projection from a single query.
+     */
+    List<ChunkSearchResult> findSimilarProjections(
+            float[] embedding,
+            String original_field_name,
+            String[] tags,
+            String[] keywords,
+            Map<String, Object> contextMap,
+            Double threshold,
+            int limit
+    );
+
+    /**
+     * Keyset page of {@link #findSimilarProjections}: rows ordered by (distance, chunk id), starting
+     * strictly after {@code after} (null for the first page).
+     */
+    List<ChunkSearchResult> findSimilarProjections(
+            float[] embedding,
+            String original_field_name,
+            String[] tags,
+            String[] keywords,
+            Map<String, Object> contextMap,
+            Double threshold,
+            int limit,
+            SearchCursor after
+    );
+
+    /**
+     * Forward-only stream of up to {@code limit} projections, fetched from the database
+     * {@code fetchSize} rows at a time. Must be consumed and closed inside the caller's transaction.
+     */
+    Stream<ChunkSearchResult> streamSimilarProjections(
+            float[] embedding,
+            String original_field_name,
+            String[] tags,
+            String[] keywords,
+            Map<String, Object> contextMap,
+            Double threshold,
+            int limit,
+            int fetchSize
+    );
+
+    /**
+     * Full-text search over the stored section search_vector, with the same filters as
+     * {@link #findSimilar}. Returns one row per section (its first chunk), best rank first;
+     * no vector distance is computed for these rows.
+     */
+    List<ChunkSearchResult> findLexicalProjections(
+            String textQuery,
+            String original_field_name,
+            String[] tags,
+            String[] keywords,
+            Map<String, Object> contextMap,
+            int limit
+    );
+
+    /**
+     * Ids of the {@code limit} chunks nearest to {@code embedding}. With {@code exact} the distance is
+     * computed for every chunk with index scans disabled; otherwise the configured ANN path is used.
+     */
+    List<UUID> findNearestChunkIds(float[] embedding, int limit, boolean exact);
+
+    /**
+     * Up to {@code count} randomly chosen stored chunk vectors by chunk id, used as recall probe queries.
+     */
+    Map<UUID, float[]> sampleVectors(int count);
+
+    /**
+     * Fills vector_half for up to {@code batchSize} rows that predate the quantized column.
+     *
+     * @return number of rows updated; 0 once the backfill is complete
+     */
+    int backfillHalfVectors(int batchSize);
+
+    /**
+     * Search projections for the given chunk ids, in no particular order and with distance 0; used to
+     * hydrate hits found by the in-process vector index.
+     */
+    List<ChunkSearchResult> findProjectionsByChunkIds(List<UUID> chunkIds);
+
+    /**
+     * Streams (chunk id, vector) for every chunk whose section has the given envelope locale and is not
+     * superseded, in batches of {@code batchSize}.
+     */
+    void forEachVectorInLocale(String locale, int batchSize, BiConsumer<UUID, float[]> consumer);
+
+    /**
+     * Ids of the chunks of the given sections.
+     */
+    List<UUID> findIdsBySectionIds(Collection<UUID> sectionIds);
+
+    /**
+     * Those of the given sections that already have chunks.
+     */
+    Set<UUID> findSectionIdsWithChunks(Collection<UUID> sectionIds);
+
+    /**
+     * Copies locale/country/section_model/event_type from their sections onto the next
+     * {@code batchSize} chunks by id after {@code after} (null to start). Run after the section backfill.
+     *
+     * @return the last id processed, or null when there are no more rows
+     */
+    UUID backfillFilterColumns(UUID after, int batchSize);
+}
@@ -1,44 +1,612 @@
 package com.apple.springboot.repository;
 
+import com.apple.springboot.model.ChunkSearchResult;
 import com.apple.springboot.model.ContentChunk;
 import com.apple.springboot.model.ContentChunkWithDistance;
+import com.apple.springboot.model.SearchCursor;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Repository
 public class ContentChunkRepositoryImpl implements ContentChunkRepositoryCustom {
 
+    private static final Logger logger = LoggerFactory.getLogger(ContentChunkRepositoryImpl.class);
+
+    private static final String DISTANCE_EXPR = "(c.vector <=> CAST(:embedding AS vector))";
+
+    // Searches only return current sections; NULL status predates statuses and counts as current
+    private static final String CURRENT_SECTION = " AND s.status IS DISTINCT FROM 'SUPERSEDED'";
+
+    // The same for plans that read chunks without joining their section
+    private static final String CURRENT_SECTION_OF_CHUNK = " AND NOT EXISTS (SELECT 1 FROM consolidated_enriched_sections superseded"
+            + " WHERE superseded.id = c.consolidated_enriched_section_id AND superseded.status = 'SUPERSEDED')";
+
+    /**
+     * How a filtered vector search is executed.
+     * UNFILTERED     - plain ANN scan, no predicates to starve.
+     * EXACT_PREFILTER - filters are selective: resolve the matching sections first (GIN on tags/keywords/context)
+     *                   and compute exact distances over their chunks only.
+     * ITERATIVE_SCAN - filters are broad: ANN scan with pgvector iterative scan and an over-fetched candidate set,
+     *                   then re-rank by exact distance.
+     */
+    enum SearchStrategy { UNFILTERED, EXACT_PREFILTER, ITERATIVE_SCAN }
+
+    /**
+     * Which index the ANN scan runs on (see db/004_quantized_vectors.sql). Quantized scans only pick
+     * candidates; they are always re-ranked by the full-precision distance.
+     * NONE    - HNSW over vector(1024).
+     * HALFVEC - HNSW over the vector_half halfvec(1024) column.
+     * BINARY  - HNSW over binary_quantize(vector), Hamming distance.
+     */
+    enum Quantization { NONE, HALFVEC, BINARY }
+
+    // Section columns read by the search and refinement endpoints; arrays and jsonb come back as JSON text.
+    private static final String PROJECTION_COLUMNS = "c.id AS chunk_id, s.id AS section_id, c.chunk_text, c.section_path, c.source_field, "
+            + "s.cleansed_text, s.original_field_name, CAST(to_json(s.tags) AS text) AS tags_json, "
+            + "CAST(to_json(s.keywords) AS text) AS keywords_json, CAST(s.context AS text) AS context_json";
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> CONTEXT_MAP = new TypeReference<>() {};
+
+    /**
+     * Final SELECT list and row mapping of a search. Candidate selection is identical for every shape;
+     * only the columns read for the ranked rows differ. The distance is always the last column.
+     */
+    private static final class ResultShape<T> {
+        final String columns;
+        final boolean joinSection;
+        final String resultSetMapping;
+        final Function<Object[], T> mapper;
+
+        ResultShape(String columns, boolean joinSection, String resultSetMapping, Function<Object[], T> mapper) {
+            this.columns = columns;
+            this.joinSection = joinSection;
+            this.resultSetMapping = resultSetMapping;
+            this.mapper = mapper;
+        }
+
+        String sectionJoin() {
+            return joinSection ? " JOIN consolidated_enriched_sections s ON c.consolidated_enriched_section_id = s.id" : "";
+        }
+    }
+
+    private final ResultShape<ContentChunkWithDistance> entityShape = new ResultShape<>("c.*", false, "ContentChunkWithDistanceMapping",
+            row -> new ContentChunkWithDistance((ContentChunk) row[0], ((Number) row[1]).doubleValue()));
+
+    private final ResultShape<ChunkSearchResult> projectionShape = new ResultShape<>(PROJECTION_COLUMNS, true, null, this::toSearchResult);
+
+    private final ResultShape<UUID> idShape = new ResultShape<>("c.id", false, null, row -> toUuid(row[0]));
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Upper bound of matching sections for which an exact (brute-force) search is cheaper than the ANN index
+    @Value("${app.search.exact-candidate-limit:2000}")
+    private int exactCandidateLimit;
+
+    @Value("${app.search.min-overfetch-factor:4}")
+    private int minOverfetchFactor;
+
+    @Value("${app.search.max-overfetch-factor:40}")
+    private int maxOverfetchFactor;
+
+    // pgvector >= 0.8; leave blank to disable iterative index scans
+    @Value("${app.search.hnsw.iterative-scan:relaxed_order}")
+    private String hnswIterativeScan;
+
+    @Value("${app.search.hnsw.ef-search:100}")
+    private int hnswEfSearch;
+
+    @Value("${app.search.hnsw.max-scan-tuples:20000}")
+    private int hnswMaxScanTuples;
+
+    private Quantization quantization = Quantization.NONE;
+
+    // Candidates taken from a quantized index per requested row, before the full-precision re-rank
+    @Value("${app.search.quantization.rerank-factor:5}")
+    private int rerankFactor;
+
+    @Value("${app.search.quantization.mode:none}")
+    void setQuantization(String mode) {
+        this.quantization = Quantization.valueOf(mode.trim().toUpperCase());
+    }
+
+    /**
+     * A planned vector search: the strategy chosen, the SQL and its parameters. For ITERATIVE_SCAN the
+     * filter clause is kept so an exact pass can be planned if the index scan comes back short.
+     */
+    private record Plan(SearchStrategy strategy, String sql, Map<String, Object> params, FilterClause filterClause) {
+    }
+
+    /**
+     * Filter predicates (each starting with " AND") on the section alias s, and, when every filter has a
+     * denormalized chunk column, the same filter on alias c so chunk-level plans can skip the section join.
+     */
+    private record FilterClause(String sectionSql, String chunkSql) {
+        boolean isEmpty() {
+            return sectionSql.isEmpty();
+        }
+
+        boolean chunkLevel() {
+            return chunkSql != null && !chunkSql.isEmpty();
+        }
+    }
+
     @Override
     public List<ContentChunkWithDistance> findSimilar(float[] embedding, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Double threshold, int limit) {
-        StringBuilder sql = new StringBuilder("SELECT c.*");
-        if (embedding != null) {
-            sql.append(", (c.vector <=> CAST(:embedding AS vector)) as distance");
+        return search(embedding, originalFieldName, tags, keywords, contextMap, threshold, limit, null, false, entityShape);
+    }
+
+    @Override
+    public List<ChunkSearchResult> findSimilarProjections(float[] embedding, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Double threshold, int limit) {
+        return search(embedding, originalFieldName, tags, keywords, contextMap, threshold, limit, null, false, projectionShape);
+    }
+
+    @Override
+    public List<ChunkSearchResult> findSimilarProjections(float[] embedding, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Double threshold, int limit, SearchCursor after) {
+        return search(embedding, originalFieldName, tags, keywords, contextMap, threshold, limit, after, true, projectionShape);
+    }
+
+    @Override
+    public Stream<ChunkSearchResult> streamSimilarProjections(float[] embedding, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Double threshold, int limit, int fetchSize) {
+        // No short-result fallback here: rows are handed to the caller as they arrive, so the first plan is final.
+        Plan plan = plan(embedding, originalFieldName, tags, keywords, contextMap, threshold, limit, null, false, projectionShape);
+        Query query = entityManager.createNativeQuery(plan.sql());
+        plan.params().forEach(query::setParameter);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        Stream<Object[]> rows = query.getResultStream();
+        return rows.map(projectionShape.mapper);
+    }
+
+    private <T> List<T> search(float[] embedding, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Double threshold, int limit, SearchCursor after, boolean paged, ResultShape<T> shape) {
+        Plan plan = plan(embedding, originalFieldName, tags, keywords, contextMap, threshold, limit, after, paged, shape);
+        List<T> results = execute(plan.sql(), plan.params(), shape);
+        // Unfiltered (paged) scans have no matches to miss: a short page is the end of the results, and the
+        // exact pass would be a distance scan of the whole table.
+        if (plan.strategy() != SearchStrategy.ITERATIVE_SCAN || results.size() >= limit || plan.filterClause().isEmpty()) {
+            return results;
         }
-        sql.append(" FROM content_chunks c JOIN consolidated_enriched_sections s ON c.consolidated_enriched_section_id = s.id WHERE 1=1");
+        // The index scan gave up before finding enough matches; an exact pass guarantees completeness.
+        logger.debug("Iterative scan returned {} of {} rows, falling back to exact pre-filtered search", results.size(), limit);
+        Map<String, Object> exactParams = new HashMap<>(plan.params());
+        exactParams.remove("candidate_limit");
+        return execute(planExactPrefilter(plan.filterClause(), exactParams, shape), exactParams, shape);
+    }
 
+    /**
+     * {@code paged} plans follow the (distance, c.id) keyset order from the first page on, so that later
+     * pages continue exactly where it ended.
+     */
+    private <T> Plan plan(float[] embedding, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Double threshold, int limit, SearchCursor after, boolean paged, ResultShape<T> shape) {
         Map<String, Object> params = new HashMap<>();
+        FilterClause filterClause = buildFilterClause(originalFieldName, tags, keywords, contextMap, params);
+        params.put("limit", limit);
 
-        if (embedding != null) {
-            params.put("embedding", embedding);
+        if (embedding == null) {
+            String sql = "SELECT " + shape.columns + ", CAST(0 AS double precision) AS distance"
+                    + " FROM content_chunks c JOIN consolidated_enriched_sections s ON c.consolidated_enriched_section_id = s.id"
+                    + " WHERE 1=1" + CURRENT_SECTION + filterClause.sectionSql() + " LIMIT :limit";
+            return new Plan(SearchStrategy.UNFILTERED, sql, params, filterClause);
         }
+
+        params.put("embedding", embedding);
         if (threshold != null) {
             params.put("distance_threshold", threshold);
         }
-        if (originalFieldName != null && !originalFieldName.isBlank()) {
-            sql.append(" AND LOWER(s.original_field_name) @> CAST(:original_field_name AS text[])");
-           // sql.append(" AND LOWER(s.original_field_name) = LOWER(:originalFieldName)");
+        if (after != null) {
+            params.put("cursor_distance", after.distance());
+            params.put("cursor_chunk_id", after.chunkId());
+        }
+
+        SearchStrategy strategy = filterClause.isEmpty() ? SearchStrategy.UNFILTERED : SearchStrategy.EXACT_PREFILTER;
+        int overfetchFactor = minOverfetchFactor;
+        if (strategy != SearchStrategy.UNFILTERED) {
+            long matchingSections = countMatchingSections(filterClause.sectionSql(), params, exactCandidateLimit + 1);
+            if (matchingSections > exactCandidateLimit) {
+                strategy = SearchStrategy.ITERATIVE_SCAN;
+                overfetchFactor = estimateOverfetchFactor(matchingSections);
+            }
+        } else if (paged) {
+            // A plain ANN scan stops after ef_search rows; past the first page the keyset predicate needs an iterative scan,
+            // and the first page uses the same plan so its last row is where that scan continues from.
+            strategy = SearchStrategy.ITERATIVE_SCAN;
+        }
+        logger.debug("Vector search strategy: {} (limit={}, overfetchFactor={}, paged={}, cursor={})", strategy, limit, overfetchFactor, paged, after != null);
+
+        switch (strategy) {
+            case UNFILTERED:
+                if (quantization != Quantization.NONE) {
+                    return new Plan(strategy, planCandidateScan(filterClause, params, limit * rerankFactor, shape), params, filterClause);
+                }
+                return new Plan(strategy, planUnfiltered(params, shape), params, filterClause);
+            case ITERATIVE_SCAN:
+                return new Plan(strategy, planCandidateScan(filterClause, params, limit * overfetchFactor, shape), params, filterClause);
+            default:
+                return new Plan(strategy, planExactPrefilter(filterClause, params, shape), params, filterClause);
+        }
+    }
+
+    @Override
+    public List<ChunkSearchResult> findLexicalProjections(String textQuery, String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        FilterClause filterClause = buildFilterClause(originalFieldName, tags, keywords, contextMap, params);
+        params.put("text_query", textQuery);
+        params.put("limit", limit);
+
+        String sql = "SELECT " + PROJECTION_COLUMNS + ", CAST(0 AS double precision) AS distance"
+                + " FROM consolidated_enriched_sections s"
+                + " JOIN LATERAL (SELECT c.id, c.chunk_text, c.section_path, c.source_field FROM content_chunks c"
+                + " WHERE c.consolidated_enriched_section_id = s.id ORDER BY c.created_at LIMIT 1) c ON true"
+                + " WHERE s.search_vector @@ plainto_tsquery('english', :text_query)" + CURRENT_SECTION + filterClause.sectionSql()
+                + " ORDER BY ts_rank_cd(s.search_vector, plainto_tsquery('english', :text_query)) DESC LIMIT :limit";
+        return execute(sql, params, projectionShape);
+    }
+
+    private <T> String planUnfiltered(Map<String, Object> params, ResultShape<T> shape) {
+        // The index scan needs ORDER BY distance alone; the outer query adds the c.id tie-break every plan orders by
+        StringBuilder sql = new StringBuilder("WITH nearest AS MATERIALIZED (SELECT c.id FROM content_chunks c WHERE 1=1")
+                .append(CURRENT_SECTION_OF_CHUNK);
+        if (params.containsKey("distance_threshold")) {
+            sql.append(" AND ").append(DISTANCE_EXPR).append(" < :distance_threshold");
+        }
+        sql.append(" ORDER BY ").append(DISTANCE_EXPR).append(" LIMIT :limit")
+                .append(") SELECT ").append(shape.columns).append(", ").append(DISTANCE_EXPR).append(" AS distance")
+                .append(" FROM nearest n JOIN content_chunks c ON c.id = n.id").append(shape.sectionJoin())
+                .append(" ORDER BY distance, c.id");
+        return sql.toString();
+    }
+
+    private <T> String planExactPrefilter(FilterClause filterClause, Map<String, Object> params, ResultShape<T> shape) {
+        StringBuilder sql;
+        if (filterClause.chunkLevel()) {
+            // Chunk columns answer the filter directly from their own indexes
+            sql = new StringBuilder("WITH candidate_chunks AS MATERIALIZED (")
+                    .append("SELECT c.id FROM content_chunks c WHERE 1=1").append(filterClause.chunkSql()).append(CURRENT_SECTION_OF_CHUNK)
+                    .append(") SELECT ").append(shape.columns).append(", ").append(DISTANCE_EXPR).append(" AS distance")
+                    .append(" FROM content_chunks c JOIN candidate_chunks cc ON c.id = cc.id");
+        } else {
+            sql = new StringBuilder("WITH candidate_sections AS MATERIALIZED (")
+                    .append("SELECT s.id FROM consolidated_enriched_sections s WHERE 1=1").append(filterClause.sectionSql()).append(CURRENT_SECTION)
+                    .append(") SELECT ").append(shape.columns).append(", ").append(DISTANCE_EXPR).append(" AS distance")
+                    .append(" FROM content_chunks c JOIN candidate_sections cs ON c.consolidated_enriched_section_id = cs.id");
+        }
+        sql.append(shape.sectionJoin()).append(" WHERE 1=1");
+        if (params.containsKey("distance_threshold")) {
+            sql.append(" AND ").append(DISTANCE_EXPR).append(" < :distance_threshold");
+        }
+        sql.append(cursorClause(params)).append(" ORDER BY distance, c.id LIMIT :limit");
+        return sql.toString();
+    }
 
+    /**
+     * ANN scan for {@code candidateLimit} candidates on the configured index, then an exact re-rank of
+     * those candidates by full-precision distance. Used for broad filters, cursor pages and quantized indexes.
+     * Adds {@code candidate_limit} to {@code params}.
+     */
+    private <T> String planCandidateScan(FilterClause filterClause, Map<String, Object> params, int candidateLimit, ResultShape<T> shape) {
+        if (quantization != Quantization.NONE) {
+            candidateLimit = Math.max(candidateLimit, (Integer) params.get("limit") * rerankFactor);
+        }
+        applyIndexScanSettings(candidateLimit);
+        params.put("candidate_limit", candidateLimit);
+
+        // relaxed_order and quantized distances both only approximate the true order, so the outer query re-ranks exactly.
+        StringBuilder sql = new StringBuilder("WITH candidates AS MATERIALIZED (")
+                .append("SELECT c.id FROM content_chunks c");
+        String predicates;
+        if (!filterClause.isEmpty() && !filterClause.chunkLevel()) {
+            sql.append(" JOIN consolidated_enriched_sections s ON c.consolidated_enriched_section_id = s.id");
+            predicates = filterClause.sectionSql() + CURRENT_SECTION;
+        } else {
+            predicates = (filterClause.chunkLevel() ? filterClause.chunkSql() : "") + CURRENT_SECTION_OF_CHUNK;
+        }
+        sql.append(" WHERE 1=1").append(predicates).append(cursorClause(params))
+                .append(" ORDER BY ").append(annDistanceExpr()).append(" LIMIT :candidate_limit")
+                .append(") SELECT ").append(shape.columns).append(", ").append(DISTANCE_EXPR).append(" AS distance")
+                .append(" FROM candidates cand JOIN content_chunks c ON c.id = cand.id").append(shape.sectionJoin());
+        if (params.containsKey("distance_threshold")) {
+            sql.append(" WHERE ").append(DISTANCE_EXPR).append(" < :distance_threshold");
+        }
+        sql.append(" ORDER BY distance, c.id LIMIT :limit");
+        return sql.toString();
+    }
+
+    // Keyset predicate for the page after the cursor; (distance, c.id) is also the ORDER BY of every paged plan
+    private static String cursorClause(Map<String, Object> params) {
+        if (!params.containsKey("cursor_distance")) {
+            return "";
+        }
+        return " AND (" + DISTANCE_EXPR + ", c.id) > (:cursor_distance, :cursor_chunk_id)";
+    }
+
+    /**
+     * Distance expression the ANN candidate scan orders by; must match the index expression exactly.
+     */
+    private String annDistanceExpr() {
+        switch (quantization) {
+            case HALFVEC:
+                return "(c.vector_half <=> CAST(CAST(:embedding AS vector) AS halfvec(1024)))";
+            case BINARY:
+                return "(CAST(binary_quantize(c.vector) AS bit(1024)) <~> binary_quantize(CAST(:embedding AS vector)))";
+            default:
+                return DISTANCE_EXPR;
+        }
+    }
+
+    @Override
+    public List<UUID> findNearestChunkIds(float[] embedding, int limit, boolean exact) {
+        if (!exact) {
+            return search(embedding, null, null, null, null, null, limit, null, false, idShape);
+        }
+        // Brute force over full-precision vectors: the ground truth for recall measurements.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            setLocal("enable_indexscan", "off");
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("embedding", embedding);
+        params.put("limit", limit);
+        String sql = "SELECT c.id, " + DISTANCE_EXPR + " AS distance FROM content_chunks c WHERE 1=1" + CURRENT_SECTION_OF_CHUNK
+                + " ORDER BY distance LIMIT :limit";
+        return execute(sql, params, idShape);
+    }
+
+    @Override
+    public Map<UUID, float[]> sampleVectors(int count) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT id, CAST(vector AS text) FROM content_chunks WHERE vector IS NOT NULL ORDER BY random() LIMIT :count")
+                .setParameter("count", count)
+                .getResultList();
+        Map<UUID, float[]> vectors = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            vectors.put(toUuid(row[0]), parseVector((String) row[1]));
+        }
+        return vectors;
+    }
+
+    @Override
+    public int backfillHalfVectors(int batchSize) {
+        return entityManager.createNativeQuery(
+                        "UPDATE content_chunks SET vector_half = CAST(vector AS halfvec(1024)) WHERE id IN ("
+                                + "SELECT id FROM content_chunks WHERE vector_half IS NULL AND vector IS NOT NULL LIMIT :batch_size)")
+                .setParameter("batch_size", batchSize)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<ChunkSearchResult> findProjectionsByChunkIds(List<UUID> chunkIds) {
+        if (chunkIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("chunk_ids", chunkIds);
+        String sql = "SELECT " + PROJECTION_COLUMNS + ", CAST(0 AS double precision) AS distance"
+                + " FROM content_chunks c JOIN consolidated_enriched_sections s ON c.consolidated_enriched_section_id = s.id"
+                + " WHERE c.id IN (:chunk_ids)";
+        return execute(sql, params, projectionShape);
+    }
+
+    @Override
+    public void forEachVectorInLocale(String locale, int batchSize, BiConsumer<UUID, float[]> consumer) {
+        // Keyset pagination on c.id keeps each batch an index range scan regardless of table size
+        String select = "SELECT c.id, CAST(c.vector AS text) FROM content_chunks c"
+                + " JOIN consolidated_enriched_sections s ON c.consolidated_enriched_section_id = s.id"
+                + " WHERE s.context #>> '{envelope,locale}' = :locale AND c.vector IS NOT NULL"
+                + " AND s.status IS DISTINCT FROM 'SUPERSEDED'";
+        UUID after = null;
+        while (true) {
+            Query query = entityManager.createNativeQuery(select + (after != null ? " AND c.id > :after" : "") + " ORDER BY c.id LIMIT :batch_size")
+                    .setParameter("locale", locale)
+                    .setParameter("batch_size", batchSize);
+            if (after != null) {
+                query.setParameter("after", after);
+            }
+            List<Object[]> rows = query.getResultList();
+            for (Object[] row : rows) {
+                consumer.accept(toUuid(row[0]), parseVector((String) row[1]));
+            }
+            if (rows.size() < batchSize) {
+                return;
+            }
+            after = toUuid(rows.get(rows.size() - 1)[0]);
+        }
+    }
+
+    @Override
+    public List<UUID> findIdsBySectionIds(Collection<UUID> sectionIds) {
+        if (sectionIds.isEmpty()) {
+            return List.of();
+        }
+        List<?> rows = entityManager.createNativeQuery(
+                        "SELECT id FROM content_chunks WHERE consolidated_enriched_section_id IN (:section_ids)")
+                .setParameter("section_ids", sectionIds)
+                .getResultList();
+        List<UUID> ids = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            ids.add(toUuid(row));
+        }
+        return ids;
+    }
+
+    @Override
+    public Set<UUID> findSectionIdsWithChunks(Collection<UUID> sectionIds) {
+        if (sectionIds.isEmpty()) {
+            return Set.of();
+        }
+        List<?> rows = entityManager.createNativeQuery("SELECT DISTINCT consolidated_enriched_section_id FROM content_chunks"
+                        + " WHERE consolidated_enriched_section_id IN (:section_ids)")
+                .setParameter("section_ids", sectionIds)
+                .getResultList();
+        Set<UUID> ids = new HashSet<>(rows.size());
+        for (Object row : rows) {
+            ids.add(toUuid(row));
+        }
+        return ids;
+    }
+
+    @Override
+    public UUID backfillFilterColumns(UUID after, int batchSize) {
+        Query idQuery = entityManager.createNativeQuery("SELECT id FROM content_chunks"
+                + (after != null ? " WHERE id > :after" : "") + " ORDER BY id LIMIT :batch_size");
+        if (after != null) {
+            idQuery.setParameter("after", after);
+        }
+        List<?> rows = idQuery.setParameter("batch_size", batchSize).getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<UUID> ids = rows.stream().map(ContentChunkRepositoryImpl::toUuid).toList();
+        entityManager.createNativeQuery("UPDATE content_chunks c SET locale = s.locale, country = s.country,"
+                        + " section_model = s.section_model, event_type = s.event_type"
+                        + " FROM consolidated_enriched_sections s"
+                        + " WHERE s.id = c.consolidated_enriched_section_id AND c.id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return ids.get(ids.size() - 1);
+    }
+
+    // pgvector text form: [0.1,0.2,...]
+    private static float[] parseVector(String text) {
+        String body = text.substring(text.indexOf('[') + 1, text.lastIndexOf(']'));
+        if (body.isBlank()) {
+            return new float[0];
+        }
+        String[] parts = body.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i].trim());
+        }
+        return vector;
+    }
+
+    private <T> List<T> execute(String sql, Map<String, Object> params, ResultShape<T> shape) {
+        Query query = shape.resultSetMapping != null
+                ? entityManager.createNativeQuery(sql, shape.resultSetMapping)
+                : entityManager.createNativeQuery(sql);
+        params.forEach(query::setParameter);
+
+        List<Object[]> rows = query.getResultList();
+        List<T> results = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            results.add(shape.mapper.apply(row));
+        }
+        return results;
+    }
+
+    private ChunkSearchResult toSearchResult(Object[] row) {
+        return new ChunkSearchResult(
+                toUuid(row[0]),
+                toUuid(row[1]),
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (String) row[5],
+                (String) row[6],
+                readJson((String) row[7], STRING_LIST),
+                readJson((String) row[8], STRING_LIST),
+                readJson((String) row[9], CONTEXT_MAP),
+                ((Number) row[10]).doubleValue());
+    }
+
+    private <V> V readJson(String json, TypeReference<V> type) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not parse search result column as JSON: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static UUID toUuid(Object value) {
+        if (value == null) return null;
+        return value instanceof UUID uuid ? uuid : UUID.fromString(value.toString());
+    }
+
+    /**
+     * Counts sections matching the filters, stopping at {@code cap}. The bounded count is answered from the
+     * GIN indexes and is enough to tell a selective filter from a broad one.
+     */
+    private long countMatchingSections(String filterClause, Map<String, Object> params, int cap) {
+        String sql = "SELECT count(*) FROM (SELECT 1 FROM consolidated_enriched_sections s WHERE 1=1" + filterClause + CURRENT_SECTION
+                + " LIMIT :count_cap) matching";
+        Query query = entityManager.createNativeQuery(sql);
+        params.forEach((name, value) -> {
+            if (sql.contains(":" + name)) {
+                query.setParameter(name, value);
+            }
+        });
+        query.setParameter("count_cap", cap);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * Over-fetch factor for the ANN scan, roughly the inverse of the filter selectivity.
+     * {@code matchingSections} is a lower bound (the count is capped), so the factor errs on the generous side.
+     */
+    private int estimateOverfetchFactor(long matchingSections) {
+        Object estimate = entityManager.createNativeQuery(
+                "SELECT reltuples::bigint FROM pg_class WHERE relname = 'consolidated_enriched_sections'")
+                .getResultList().stream().findFirst().orElse(null);
+        long totalSections = (estimate instanceof Number n) ? n.longValue() : 0L;
+        if (totalSections <= 0 || matchingSections <= 0) {
+            return minOverfetchFactor;
+        }
+        long factor = (long) Math.ceil((double) totalSections / matchingSections);
+        return (int) Math.max(minOverfetchFactor, Math.min(maxOverfetchFactor, factor));
+    }
+
+    private void applyIndexScanSettings(int candidateLimit) {
+        // set_config(..., true) is transaction-local; outside a transaction it would leak onto a pooled connection.
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        setLocal("hnsw.ef_search", String.valueOf(Math.max(hnswEfSearch, Math.min(candidateLimit, 1000))));
+        if (hnswIterativeScan != null && !hnswIterativeScan.isBlank()) {
+            setLocal("hnsw.iterative_scan", hnswIterativeScan);
+            setLocal("hnsw.max_scan_tuples", String.valueOf(hnswMaxScanTuples));
+        }
+    }
+
+    private void setLocal(String name, String value) {
+        entityManager.createNativeQuery("SELECT set_config(:name, :value, true)")
+                .setParameter("name", name)
+                .setParameter("value", value)
+                .getSingleResult();
+    }
+
+    private FilterClause buildFilterClause(String originalFieldName, String[] tags, String[] keywords, Map<String, Object> contextMap, Map<String, Object> params) {
+        StringBuilder sql = new StringBuilder();
+        if (originalFieldName != null && !originalFieldName.isBlank()) {
+            sql.append(" AND LOWER(s.original_field_name) = :originalFieldName");
             params.put("originalFieldName", originalFieldName);
         }
         if (tags != null && tags.length > 0) {
@@ -49,43 +617,15 @@ public class ContentChunkRepositoryImpl implements ContentChunkRepositoryCustom
             sql.append(" AND s.keywords @> CAST(:keywords AS text[])");
             params.put("keywords", keywords);
         }
+        // Original field name, tags and keywords only exist on sections
+        boolean sectionOnly = sql.length() > 0;
         if (contextMap != null && !contextMap.isEmpty()) {
-            buildJsonbQueries(contextMap, new ArrayList<>(), sql, params);
-        }
-        if (embedding != null) {
-            if (params.containsKey("distance_threshold")) {
-                sql.append(" AND (c.vector <=> CAST(:embedding AS vector)) < :distance_threshold");
-            }
-            sql.append(" ORDER BY distance");
-        }
-        sql.append(" LIMIT :limit");
-        params.put("limit", limit);
-
-        Query query = entityManager.createNativeQuery(sql.toString(), "ContentChunkWithDistanceMapping");
-        params.forEach(query::setParameter);
-
-        List<Object[]> results = query.getResultList();
-        List<ContentChunkWithDistance> dtos = new ArrayList<>();
-        for (Object[] result : results) {
-            ContentChunk chunk = (ContentChunk) result[0];
-            double distance = (embedding != null) ? ((Number) result[1]).doubleValue() : 0.0;
-            dtos.add(new ContentChunkWithDistance(chunk, distance));
-        }
-        return dtos;
-    }
-
-    private void buildJsonbQueries(Map<String, Object> map, List<String> path, StringBuilder sql, Map<String, Object> params) {
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            List<String> newPath = new ArrayList<>(path);
-            newPath.add(entry.getKey());
-            if (entry.getValue() instanceof Map) {
-                buildJsonbQueries((Map<String, Object>) entry.getValue(), newPath, sql, params);
-            } else if (entry.getValue() instanceof List) {
-                String pathString = "{" + String.join(",", newPath) + "}";
-                String paramName = String.join("_", newPath);
-                sql.append(" AND s.context #>> '").append(pathString).append("' IN (:").append(paramName).append(")");
-                params.put(paramName, (List<?>) entry.getValue());
+            ContextFilterCompiler.Compiled context = new ContextFilterCompiler(objectMapper).compile(contextMap, params);
+            sql.append(context.sectionSql());
+            if (!sectionOnly && context.chunkSql() != null) {
+                return new FilterClause(sql.toString(), context.chunkSql());
             }
         }
+        return new FilterClause(sql.toString(), null);
     }
-}
\ No newline at end of file
+}
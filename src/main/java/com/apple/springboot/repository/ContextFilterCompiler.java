@@ -0,0 +1,135 @@
+package com.apple.springboot.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles a search request's context filter, e.g. {"envelope": {"locale": ["en_US", "en_GB"]}}, into
+ * SQL predicates. Hot facets ({@link #COLUMN_PATHS}) become comparisons on their denormalized columns,
+ * which exist on both sections and chunks, falling back to the section's context while the column is still
+ * NULL (rows written before db/007 and not yet backfilled); every other whitelisted path becomes jsonb containment on
+ * s.context, one bound document per value (s.context @> '{"envelope":{"sectionName":"hero"}}'), served
+ * by the jsonb_path_ops GIN index. Values of one path are OR-ed and paths are AND-ed. Only whitelisted
+ * paths are accepted, so caller-supplied keys never reach the SQL text. Parameter names are
+ * sequential, so use one instance per query.
+ */
+final class ContextFilterCompiler {
+
+    static final Set<String> ALLOWED_PATHS = Set.of(
+            "envelope.locale", "envelope.country", "envelope.language", "envelope.model",
+            "envelope.sectionName", "envelope.sourcePath", "envelope.usagePath",
+            "facets.sectionKey", "facets.sectionModel", "facets.sectionPath", "facets.sectionIndex", "facets.eventType");
+
+    // Context path -> denormalized column (db/007_filter_columns.sql)
+    static final Map<String, String> COLUMN_PATHS = Map.of(
+            "envelope.locale", "locale",
+            "envelope.country", "country",
+            "facets.sectionModel", "section_model",
+            "facets.eventType", "event_type");
+
+    /**
+     * Compiled predicates, each starting with " AND". {@code chunkSql} repeats the filter on c.* columns
+     * and is null unless every filtered path has a denormalized column.
+     */
+    record Compiled(String sectionSql, String chunkSql) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private int nextParam;
+    private boolean chunkLevel = true;
+
+    ContextFilterCompiler(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Compiles the filter, binding its values as ctx0, ctx1, ... in {@code params}. Leaf values may be
+     * a single value or a list (any of).
+     *
+     * @throws IllegalArgumentException for a path outside {@link #ALLOWED_PATHS}
+     */
+    Compiled compile(Map<String, Object> contextMap, Map<String, Object> params) {
+        StringBuilder sectionSql = new StringBuilder();
+        StringBuilder chunkSql = new StringBuilder();
+        compile(contextMap, new ArrayList<>(), sectionSql, chunkSql, params);
+        return new Compiled(sectionSql.toString(), chunkLevel ? chunkSql.toString() : null);
+    }
+
+    private void compile(Map<?, ?> map, List<String> path, StringBuilder sectionSql, StringBuilder chunkSql, Map<String, Object> params) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            path.add(String.valueOf(entry.getKey()));
+            if (entry.getValue() instanceof Map<?, ?> nested) {
+                compile(nested, path, sectionSql, chunkSql, params);
+            } else {
+                appendPredicate(path, entry.getValue(), sectionSql, chunkSql, params);
+            }
+            path.remove(path.size() - 1);
+        }
+    }
+
+    private void appendPredicate(List<String> path, Object value, StringBuilder sectionSql, StringBuilder chunkSql, Map<String, Object> params) {
+        String dottedPath = String.join(".", path);
+        if (!ALLOWED_PATHS.contains(dottedPath)) {
+            throw new IllegalArgumentException("Unsupported context filter path: " + dottedPath);
+        }
+        Collection<?> values = value instanceof Collection<?> collection ? collection : (value == null ? List.of() : List.of(value));
+        if (values.isEmpty()) {
+            return;
+        }
+
+        String column = COLUMN_PATHS.get(dottedPath);
+        if (column != null) {
+            String paramName = "ctx" + nextParam++;
+            params.put(paramName, values.stream().map(String::valueOf).toArray(String[]::new));
+            List<String> fallbackParams = bindContainment(path, values, params);
+            sectionSql.append(" AND (s.").append(column).append(" = ANY(CAST(:").append(paramName).append(" AS text[]))")
+                    .append(" OR (s.").append(column).append(" IS NULL AND ").append(containment("s", fallbackParams)).append("))");
+            chunkSql.append(" AND (c.").append(column).append(" = ANY(CAST(:").append(paramName).append(" AS text[]))")
+                    .append(" OR (c.").append(column).append(" IS NULL AND EXISTS (SELECT 1 FROM consolidated_enriched_sections parent")
+                    .append(" WHERE parent.id = c.consolidated_enriched_section_id AND ").append(containment("parent", fallbackParams)).append(")))");
+            return;
+        }
+
+        chunkLevel = false;
+        sectionSql.append(" AND ").append(containment("s", bindContainment(path, values, params)));
+    }
+
+    // Binds one containment document per value and returns their parameter names
+    private List<String> bindContainment(List<String> path, Collection<?> values, Map<String, Object> params) {
+        List<String> paramNames = new ArrayList<>(values.size());
+        for (Object item : values) {
+            String paramName = "ctx" + nextParam++;
+            params.put(paramName, containmentDocument(path, String.valueOf(item)));
+            paramNames.add(paramName);
+        }
+        return paramNames;
+    }
+
+    private static String containment(String alias, List<String> paramNames) {
+        StringBuilder sql = new StringBuilder("(");
+        for (int i = 0; i < paramNames.size(); i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append(alias).append(".context @> CAST(:").append(paramNames.get(i)).append(" AS jsonb)");
+        }
+        return sql.append(")").toString();
+    }
+
+    // Facet values are stored as JSON strings, so filter values are matched as strings as well
+    private String containmentDocument(List<String> path, String value) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode node = root;
+        for (int i = 0; i < path.size() - 1; i++) {
+            node = node.putObject(path.get(i));
+        }
+        node.put(path.get(path.size() - 1), value);
+        return root.toString();
+    }
+}
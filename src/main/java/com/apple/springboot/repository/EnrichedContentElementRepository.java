@@ -21,4 +21,8 @@ public interface EnrichedContentElementRepository extends JpaRepository<Enriched
 
     long countByCleansedDataId(UUID cleansedDataId);
 
+    Optional<EnrichedContentElement> findByDedupKey(String dedupKey);
+
+    boolean existsByDedupKeyAndStatus(String dedupKey, String status);
+
 }
\ No newline at end of file
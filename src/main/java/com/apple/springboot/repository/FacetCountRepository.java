@@ -0,0 +1,93 @@
+package com.apple.springboot.repository;
+
+import com.apple.springboot.model.FacetKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Native access to facet_counts (see db/005_facet_counts.sql).
+ */
+@Repository
+public class FacetCountRepository {
+
+    private static final String REBUILD_SQL = "INSERT INTO facet_counts (facet_type, facet_value, section_count)"
+            + " SELECT facet_type, facet_value, count(DISTINCT id) FROM ("
+            + " SELECT id, 'original_field_name' AS facet_type, original_field_name AS facet_value FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + " UNION ALL SELECT id, 'Tag', unnest(tags) FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + " UNION ALL SELECT id, 'Keyword', unnest(keywords) FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + " UNION ALL SELECT id, 'Context:facets.sectionKey', context #>> '{facets,sectionKey}' FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + " UNION ALL SELECT id, 'Context:facets.eventType', context #>> '{facets,eventType}' FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + " UNION ALL SELECT id, 'Context:envelope.locale', context #>> '{envelope,locale}' FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + " UNION ALL SELECT id, 'Context:envelope.country', context #>> '{envelope,country}' FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'"
+            + ") facets WHERE facet_value IS NOT NULL AND btrim(facet_value) <> ''"
+            + " GROUP BY facet_type, facet_value";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Adds each delta to its facet's count in one statement. The sorted order makes concurrent
+     * writers lock rows in the same order.
+     */
+    public void applyDeltas(SortedMap<FacetKey, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String[] types = new String[deltas.size()];
+        String[] values = new String[deltas.size()];
+        Long[] counts = new Long[deltas.size()];
+        int i = 0;
+        for (Map.Entry<FacetKey, Long> delta : deltas.entrySet()) {
+            types[i] = delta.getKey().type();
+            values[i] = delta.getKey().value();
+            counts[i] = delta.getValue();
+            i++;
+        }
+        entityManager.createNativeQuery("INSERT INTO facet_counts (facet_type, facet_value, section_count)"
+                        + " SELECT * FROM unnest(CAST(:types AS text[]), CAST(:facet_values AS text[]), CAST(:deltas AS bigint[]))"
+                        + " ON CONFLICT (facet_type, facet_value) DO UPDATE SET section_count = GREATEST(facet_counts.section_count + EXCLUDED.section_count, 0)")
+                .setParameter("types", types)
+                .setParameter("facet_values", values)
+                .setParameter("deltas", counts)
+                .executeUpdate();
+    }
+
+    /**
+     * Current counts for the given facets; facets without a row are absent from the result.
+     */
+    public Map<FacetKey, Long> findCounts(Collection<FacetKey> facets) {
+        Map<FacetKey, Long> counts = new HashMap<>();
+        if (facets.isEmpty()) {
+            return counts;
+        }
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT f.facet_type, f.facet_value, f.section_count FROM facet_counts f"
+                        + " JOIN unnest(CAST(:types AS text[]), CAST(:facet_values AS text[])) AS wanted(facet_type, facet_value)"
+                        + " ON f.facet_type = wanted.facet_type AND f.facet_value = wanted.facet_value")
+                .setParameter("types", facets.stream().map(FacetKey::type).toArray(String[]::new))
+                .setParameter("facet_values", facets.stream().map(FacetKey::value).toArray(String[]::new))
+                .getResultList();
+        for (Object[] row : rows) {
+            counts.put(new FacetKey((String) row[0], (String) row[1]), ((Number) row[2]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Recomputes every count from consolidated_enriched_sections, e.g. after a manual data fix.
+     *
+     * @return number of facet rows written
+     */
+    public int rebuild() {
+        // Blocks incremental updates until the rebuild commits, so none are lost between DELETE and INSERT
+        entityManager.createNativeQuery("LOCK TABLE facet_counts IN EXCLUSIVE MODE").executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM facet_counts").executeUpdate();
+        return entityManager.createNativeQuery(REBUILD_SQL).executeUpdate();
+    }
+}
@@ -2,6 +2,9 @@ package com.apple.springboot.repository;
 
 import com.apple.springboot.model.RawDataStore;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +17,26 @@ public interface RawDataStoreRepository extends JpaRepository<RawDataStore, UUID
     Optional<RawDataStore> findByContentHash(String contentHash);
     Optional<RawDataStore> findBySourceUriAndContentHash(String sourceUri, String contentHash);
     Optional<RawDataStore> findTopBySourceUriOrderByVersionDesc(String sourceUri);
+
+    /**
+     * Identity of the latest version of a source, without loading its payload.
+     */
+    Optional<RawDataIdentity> findTopIdentityBySourceUriOrderByVersionDesc(String sourceUri);
+
+    /**
+     * Identity of a version of the source with this content hash, without loading its payload.
+     */
+    Optional<RawDataIdentity> findTopIdentityBySourceUriAndContentHash(String sourceUri, String contentHash);
+
+    @Modifying
+    @Query("UPDATE RawDataStore r SET r.sourceFingerprint = :sourceFingerprint WHERE r.id = :id")
+    int updateSourceFingerprint(@Param("id") UUID id, @Param("sourceFingerprint") String sourceFingerprint);
+
+    interface RawDataIdentity {
+        UUID getId();
+
+        String getContentHash();
+
+        String getSourceFingerprint();
+    }
 }
\ No newline at end of file
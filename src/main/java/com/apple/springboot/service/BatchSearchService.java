@@ -0,0 +1,104 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.BatchSearchRequest;
+import com.apple.springboot.model.ChunkSearchResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs many vector searches with shared filters. Each distinct query is embedded on a wide pool
+ * (Bedrock latency bound) and searched on a narrow pool sized below the JDBC connection pool, and
+ * the two stages are pipelined, so a batch costs roughly its slowest query plus queueing.
+ */
+@Service
+public class BatchSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchSearchService.class);
+
+    private final VectorSearchService vectorSearchService;
+    private final ExecutorService embeddingExecutor;
+    private final ExecutorService queryExecutor;
+    private final int maxQueries;
+
+    public BatchSearchService(VectorSearchService vectorSearchService,
+                              @Value("${app.search.batch.max-queries:200}") int maxQueries,
+                              @Value("${app.search.batch.embedding-threads:32}") int embeddingThreads,
+                              @Value("${app.search.batch.query-threads:8}") int queryThreads) {
+        this.vectorSearchService = vectorSearchService;
+        this.maxQueries = maxQueries;
+        this.embeddingExecutor = Executors.newFixedThreadPool(embeddingThreads,
+                new ThreadFactoryBuilder().setNameFormat("batch-embed-%d").setDaemon(true).build());
+        this.queryExecutor = Executors.newFixedThreadPool(queryThreads,
+                new ThreadFactoryBuilder().setNameFormat("batch-search-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        embeddingExecutor.shutdown();
+        queryExecutor.shutdown();
+    }
+
+    /**
+     * Results per distinct query, in request order. Duplicate queries are searched once, and each
+     * returns at most app.search.page.max-limit hits.
+     */
+    public Map<String, List<ChunkSearchResult>> search(BatchSearchRequest request, int requestedLimit) throws IOException {
+        if (request.getQueries() == null || request.getQueries().isEmpty()) {
+            return Map.of();
+        }
+        LinkedHashSet<String> queries = new LinkedHashSet<>(request.getQueries());
+        if (queries.size() > maxQueries) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxQueries + " distinct queries, got " + queries.size());
+        }
+
+        int limit = vectorSearchService.pageLimit(requestedLimit);
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<List<ChunkSearchResult>>> pending = new LinkedHashMap<>();
+        for (String query : queries) {
+            pending.put(query, CompletableFuture
+                    .supplyAsync(() -> {
+                        try {
+                            return vectorSearchService.embed(query);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, embeddingExecutor)
+                    .thenApplyAsync(queryVector -> vectorSearchService.search(query, queryVector, request.getOriginal_field_name(),
+                            limit, request.getTags(), request.getKeywords(), request.getContext(), null), queryExecutor));
+        }
+
+        Map<String, List<ChunkSearchResult>> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, CompletableFuture<List<ChunkSearchResult>>> entry : pending.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            pending.values().forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            // e.g. IllegalArgumentException for an unsupported context filter, reported as 400
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        logger.debug("Batch search of {} queries finished in {} ms", queries.size(), (System.nanoTime() - start) / 1_000_000);
+        return results;
+    }
+}
@@ -6,14 +6,14 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 import software.amazon.awssdk.services.bedrockruntime.model.BedrockRuntimeException;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
@@ -35,26 +35,26 @@ public class BedrockEnrichmentService {
     private final String bedrockModelId;
     private final String bedrockRegion;
     private final String embeddingModelId;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
 
     @Autowired
-    public BedrockEnrichmentService(ObjectMapper objectMapper,
+    public BedrockEnrichmentService(BedrockRuntimeClient bedrockClient,
+                                    ObjectMapper objectMapper,
                                     @Value("${aws.region}") String region,
                                     @Value("${aws.bedrock.modelId}") String modelId,
-                                    @Value("${aws.bedrock.embeddingModelId}") String embeddingModelId) {
+                                    @Value("${aws.bedrock.embeddingModelId}") String embeddingModelId,
+                                    PipelineMetrics pipelineMetrics,
+                                    PipelineTracing pipelineTracing) {
         this.objectMapper = objectMapper;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
         this.bedrockRegion = region;
         this.bedrockModelId = modelId;
         this.embeddingModelId = embeddingModelId;
 
-        if (region == null) {
-            logger.error("AWS Region for Bedrock is null. Cannot initialize BedrockRuntimeClient.");
-            throw new IllegalArgumentException("AWS Region for Bedrock must not be null.");
-        }
-
-        this.bedrockClient = BedrockRuntimeClient.builder()
-                .region(Region.of(this.bedrockRegion))
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
+        // Built by BedrockClientConfiguration, or the local stub under the loadtest profile
+        this.bedrockClient = bedrockClient;
         logger.info("BedrockEnrichmentService initialized with region: {} and model ID: {}", this.bedrockRegion, this.bedrockModelId);
     }
 
@@ -62,6 +62,26 @@ public class BedrockEnrichmentService {
         return this.bedrockModelId;
     }
 
+    public String getEmbeddingModelId() {
+        return this.embeddingModelId;
+    }
+
+    // Every model call goes through here so the in-flight gauge and the bedrock.invoke span cover
+    // enrichment, indexing and search embeddings
+    private InvokeModelResponse invoke(InvokeModelRequest request) {
+        Span span = pipelineTracing.startSpan("bedrock.invoke").tag("model", request.modelId());
+        pipelineMetrics.bedrockCallStarted();
+        try (Tracer.SpanInScope ignored = pipelineTracing.inScope(span)) {
+            return bedrockClient.invokeModel(request);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            pipelineMetrics.bedrockCallFinished();
+            span.end();
+        }
+    }
+
     public float[] generateEmbedding(String text) throws IOException {
         ObjectNode payload = objectMapper.createObjectNode();
         payload.put("inputText", text);
@@ -76,7 +96,7 @@ public class BedrockEnrichmentService {
                 .body(body)
                 .build();
 
-        InvokeModelResponse response = bedrockClient.invokeModel(request);
+        InvokeModelResponse response = invoke(request);
         JsonNode responseJson = objectMapper.readTree(response.body().asUtf8String());
         JsonNode embeddingNode = responseJson.get("embedding");
         float[] embedding = new float[embeddingNode.size()];
@@ -144,7 +164,7 @@ public class BedrockEnrichmentService {
                     .build();
 
             logger.debug("Bedrock InvokeModel Request for path {}: {}", sourcePath, payloadJson);
-            InvokeModelResponse response = bedrockClient.invokeModel(request);
+            InvokeModelResponse response = invoke(request);
             String responseBodyString = response.body().asUtf8String();
             logger.debug("Bedrock InvokeModel Response Body for path {}: {}", sourcePath, responseBodyString);
 
@@ -237,7 +257,7 @@ public class BedrockEnrichmentService {
                 .build();
 
         try {
-            InvokeModelResponse response = bedrockClient.invokeModel(request);
+            InvokeModelResponse response = invoke(request);
             JsonNode responseJson = objectMapper.readTree(response.body().asUtf8String());
             JsonNode embeddingsNode = responseJson.get("embedding");
 
@@ -0,0 +1,83 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.RefinementChip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates refinement chip candidates in a single pass. Each distinct (type, value) pair is
+ * interned to an int id once; relevance score and occurrence count are then summed in parallel
+ * primitive arrays, so no RefinementChip objects or boxed counters are created per occurrence.
+ */
+final class ChipAccumulator {
+
+    private final Map<String, Map<String, Integer>> idsByType = new HashMap<>();
+    private String[] types;
+    private String[] values;
+    private double[] scores;
+    private int[] counts;
+    private int size;
+
+    ChipAccumulator(int expectedChips) {
+        int capacity = Math.max(16, expectedChips);
+        types = new String[capacity];
+        values = new String[capacity];
+        scores = new double[capacity];
+        counts = new int[capacity];
+    }
+
+    void add(String type, String value, double score) {
+        if (value == null || value.isBlank()) return;
+        Map<String, Integer> ids = idsByType.computeIfAbsent(type, t -> new HashMap<>());
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = size;
+            ids.put(value, id);
+            append(type, value);
+        }
+        scores[id] += score;
+        counts[id]++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the {@code limit} highest-scoring chips, each carrying its occurrence count.
+     * Ties keep first-seen order.
+     */
+    List<RefinementChip> top(int limit) {
+        int n = Math.min(limit, size);
+        List<RefinementChip> chips = new ArrayList<>(n);
+        boolean[] taken = new boolean[size];
+        for (int rank = 0; rank < n; rank++) {
+            int best = -1;
+            for (int id = 0; id < size; id++) {
+                if (!taken[id] && (best < 0 || scores[id] > scores[best])) {
+                    best = id;
+                }
+            }
+            taken[best] = true;
+            chips.add(new RefinementChip(values[best], types[best], counts[best]));
+        }
+        return chips;
+    }
+
+    private void append(String type, String value) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        types[size] = type;
+        values[size] = value;
+        size++;
+    }
+}
@@ -0,0 +1,102 @@
+package com.apple.springboot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared item contexts of one cleansed_data_store row (see db/008_cleansed_context_dictionary.sql).
+ * Items on the same fragment carry the same envelope and inherited facets, so each distinct context is
+ * stored once in context_dictionary and items point at it through {@code contextRef}. The per-item parts
+ * of a context (envelope.usagePath and facets.cleansedCopy) are already item fields and are put back on read.
+ */
+final class CleansedContextDictionary {
+
+    static final String CONTEXT = "context";
+    static final String CONTEXT_REF = "contextRef";
+
+    private static final ObjectMapper STABLE_MAPPER = JsonMapper.builder()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .build();
+
+    private CleansedContextDictionary() {
+    }
+
+    /**
+     * Replaces each item's inline context with a reference into the returned dictionary. Items are
+     * modified in place.
+     */
+    static Map<String, Map<String, Object>> normalize(List<Map<String, Object>> items) throws JsonProcessingException {
+        Map<String, Map<String, Object>> dictionary = new LinkedHashMap<>();
+        Map<String, String> idsByJson = new HashMap<>();
+        Map<Map<String, Object>, String> refs = new IdentityHashMap<>();
+        for (Map<String, Object> item : items) {
+            if (!(item.get(CONTEXT) instanceof Map<?, ?> context)) {
+                continue;
+            }
+            Map<String, Object> shared = withoutItemFields(context);
+            String json = STABLE_MAPPER.writeValueAsString(shared);
+            String id = idsByJson.computeIfAbsent(json, key -> Integer.toString(idsByJson.size(), 36));
+            dictionary.putIfAbsent(id, shared);
+            refs.put(item, id);
+        }
+        // Only rewritten once every context serialized, so a failure leaves all items inline
+        refs.forEach((item, id) -> {
+            item.remove(CONTEXT);
+            item.put(CONTEXT_REF, id);
+        });
+        return dictionary;
+    }
+
+    /**
+     * The full context of an item: its inline context on rows written before the dictionary existed,
+     * otherwise the referenced dictionary entry with the per-item fields restored. Null if neither is present.
+     */
+    static Map<String, Object> resolve(Map<String, Object> item, Map<String, Map<String, Object>> dictionary) {
+        if (item.get(CONTEXT) instanceof Map<?, ?> inline) {
+            return castMap(inline);
+        }
+        Object ref = item.get(CONTEXT_REF);
+        Map<String, Object> shared = ref == null || dictionary == null ? null : dictionary.get(ref.toString());
+        if (shared == null) {
+            return null;
+        }
+        Map<String, Object> context = new LinkedHashMap<>(shared);
+        Map<String, Object> envelope = copyOf(shared.get("envelope"));
+        envelope.put("usagePath", item.get("usagePath"));
+        context.put("envelope", envelope);
+        Map<String, Object> facets = copyOf(shared.get("facets"));
+        facets.put("cleansedCopy", item.get("cleansedContent"));
+        context.put("facets", facets);
+        return context;
+    }
+
+    private static Map<String, Object> withoutItemFields(Map<?, ?> context) {
+        Map<String, Object> shared = new LinkedHashMap<>(castMap(context));
+        Map<String, Object> envelope = copyOf(shared.get("envelope"));
+        envelope.remove("usagePath");
+        shared.put("envelope", envelope);
+        Map<String, Object> facets = copyOf(shared.get("facets"));
+        facets.remove("cleansedCopy");
+        shared.put("facets", facets);
+        return shared;
+    }
+
+    private static Map<String, Object> copyOf(Object value) {
+        return value instanceof Map<?, ?> map ? new LinkedHashMap<>(castMap(map)) : new LinkedHashMap<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Map<?, ?> map) {
+        return (Map<String, Object>) map;
+    }
+}
@@ -11,8 +11,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +28,8 @@ public class ConsolidatedSectionService {
     private final EnrichedContentElementRepository enrichedRepo;
     private final ConsolidatedEnrichedSectionRepository consolidatedRepo;
     private final ContentHashRepository contentHashRepository;
+    private final FacetCountService facetCountService;
+    private final LocalVectorIndexService localVectorIndexService;
     private static final String USAGE_REF_DELIM = " ::ref:: ";
 
     @Value("${app.consolidation.deduplicate:false}")
@@ -32,20 +37,35 @@ public class ConsolidatedSectionService {
 
     public ConsolidatedSectionService(EnrichedContentElementRepository enrichedRepo,
                                       ConsolidatedEnrichedSectionRepository consolidatedRepo,
-                                      ContentHashRepository contentHashRepository) {
+                                      ContentHashRepository contentHashRepository,
+                                      FacetCountService facetCountService,
+                                      LocalVectorIndexService localVectorIndexService) {
         this.enrichedRepo = enrichedRepo;
         this.consolidatedRepo = consolidatedRepo;
         this.contentHashRepository = contentHashRepository;
+        this.facetCountService = facetCountService;
+        this.localVectorIndexService = localVectorIndexService;
     }
 
     @Transactional
     public void saveFromCleansedEntry(CleansedDataStore cleansedData) {
+        // One transaction writes all sections of a page, so any section means an earlier finalization of this
+        // version committed them before it failed; consolidating again would duplicate every section
+        boolean consolidated = cleansedData.getVersion() == null
+                ? consolidatedRepo.existsByCleansedDataId(cleansedData.getId())
+                : consolidatedRepo.existsByCleansedDataIdAndVersion(cleansedData.getId(), cleansedData.getVersion());
+        if (consolidated) {
+            logger.info("CleansedDataStore ID: {} was already consolidated; keeping its sections.", cleansedData.getId());
+            return;
+        }
         List<EnrichedContentElement> enrichedItems = enrichedRepo.findAllByCleansedDataId(cleansedData.getId());
         logger.info("Found {} enriched items for CleansedDataStore ID: {} to consolidate.", enrichedItems.size(), cleansedData.getId());
 
         int savedCount = 0;
         int skippedNull = 0;
         int skippedExists = 0;
+        List<ConsolidatedEnrichedSection> savedSections = new ArrayList<>();
+        List<ConsolidatedEnrichedSection> supersededSections = new ArrayList<>();
 
         for (EnrichedContentElement item : enrichedItems) {
             if (item.getItemSourcePath() == null || item.getCleansedText() == null) {
@@ -93,18 +113,69 @@ public class ConsolidatedSectionService {
                 section.setEnrichmentMetadata(item.getEnrichmentMetadata());
                 section.setEnrichedAt(item.getEnrichedAt());
                 section.setContext(item.getContext());
+                applyFilterColumns(section);
                 section.setSavedAt(OffsetDateTime.now());
                 section.setStatus(item.getStatus());
 
                 consolidatedRepo.save(section);
+                savedSections.add(section);
+                supersededSections.addAll(supersedePreviousVersions(section));
                 savedCount++;
             } else {
                 skippedExists++;
                 logger.debug("Skipping existing consolidated record for sectionUri='{}', sectionPath='{}', version={}, itemId={}", sectionUri, sectionPath, cleansedData.getVersion(), item.getId());
             }
         }
-        logger.info("Consolidation summary for CleansedDataStore {}: enriched={}, saved={}, skippedExists={}, skippedNull={}",
-                cleansedData.getId(), enrichedItems.size(), savedCount, skippedExists, skippedNull);
+        recordFacetChangesAfterCommit(savedSections, supersededSections);
+        localVectorIndexService.removeAfterCommit(supersededSections);
+        logger.info("Consolidation summary for CleansedDataStore {}: enriched={}, saved={}, superseded={}, skippedExists={}, skippedNull={}",
+                cleansedData.getId(), enrichedItems.size(), savedCount, supersededSections.size(), skippedExists, skippedNull);
+    }
+
+    /**
+     * Applies the facet count deltas once the sections are committed, so a rolled back consolidation
+     * never counts; a failure is logged rather than failing the committed consolidation.
+     */
+    private void recordFacetChangesAfterCommit(List<ConsolidatedEnrichedSection> added, List<ConsolidatedEnrichedSection> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        Runnable record = () -> {
+            try {
+                facetCountService.recordChanges(added, removed);
+            } catch (Exception e) {
+                logger.error("Failed to update facet counts for {} added and {} superseded sections; they stay off until the next rebuild: {}",
+                        added.size(), removed.size(), e.getMessage(), e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    /**
+     * Marks older versions of the same source/section/field as SUPERSEDED so they stop counting
+     * towards the facet counts and drop out of the local vector index; returns the sections that changed.
+     */
+    private List<ConsolidatedEnrichedSection> supersedePreviousVersions(ConsolidatedEnrichedSection section) {
+        if (section.getVersion() == null || section.getSourceUri() == null) {
+            return Collections.emptyList();
+        }
+        List<ConsolidatedEnrichedSection> previous = consolidatedRepo
+                .findPreviousVersionsWithStatusNot(
+                        section.getSourceUri(), section.getSectionPath(), section.getOriginalFieldName(),
+                        section.getVersion(), FacetCountService.SUPERSEDED_STATUS);
+        for (ConsolidatedEnrichedSection old : previous) {
+            old.setStatus(FacetCountService.SUPERSEDED_STATUS);
+        }
+        return previous;
     }
 
     @Transactional(readOnly = true)
@@ -119,6 +190,22 @@ public class ConsolidatedSectionService {
                 cleansedData.getId(), cleansedData.getVersion());
     }
 
+    /**
+     * Copies the hot context facets into the section's denormalized filter columns.
+     */
+    static void applyFilterColumns(ConsolidatedEnrichedSection section) {
+        Map<String, Object> ctx = section.getContext();
+        if (ctx == null) return;
+        if (ctx.get("envelope") instanceof Map<?, ?> env) {
+            section.setLocale(env.get("locale") instanceof String s ? s : null);
+            section.setCountry(env.get("country") instanceof String s ? s : null);
+        }
+        if (ctx.get("facets") instanceof Map<?, ?> facets) {
+            section.setSectionModel(facets.get("sectionModel") instanceof String s ? s : null);
+            section.setEventType(facets.get("eventType") instanceof String s ? s : null);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private String extractUsagePath(EnrichedContentElement item) {
         Map<String, Object> ctx = item.getContext();
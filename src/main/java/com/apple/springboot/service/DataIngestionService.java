@@ -7,6 +7,7 @@ import com.apple.springboot.repository.RawDataStoreRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -53,6 +54,8 @@ public class DataIngestionService {
     private final String defaultS3BucketName;
     private final ContentHashRepository contentHashRepository;
     private final ContextUpdateService contextUpdateService;
+    private final RawContentCodec rawContentCodec;
+    private final PipelineMetrics pipelineMetrics;
 
     // Configurable behavior flags
     @Value("${app.ingestion.keep-blank-after-cleanse:true}")
@@ -66,6 +69,10 @@ public class DataIngestionService {
     @Value("${app.ingestion.consider-context-change:true}")
     private boolean considerContextChange;
 
+    // If true, skip S3 sources whose ETag/size/last-modified are unchanged before downloading them
+    @Value("${app.ingestion.fingerprint-dedup.enabled:false}")
+    private boolean fingerprintDedupEnabled;
+
     // If true, log debug counters for found vs kept
     @Value("${app.ingestion.debug-counters:true}")
     private boolean debugCountersEnabled;
@@ -76,7 +83,7 @@ public class DataIngestionService {
     private static final Pattern NBSP_PATTERN = Pattern.compile("\\{%nbsp%\\}");
     // private static final Pattern SOSUMI_PATTERN = Pattern.compile("\\{%sosumi type=\"[^\"]+\" metadata=\"\\d+\"%\\}");
     private static final Pattern BR_PATTERN = Pattern.compile("\\{%br%\\}");
-    private static final Pattern URL_PATTERN = Pattern.compile(":\\s*\\[[^\\]]+\\]\\(\\{%url metadata=\"\\d+\" destination-type=\"[^\"]+\"%\\}\\)\");
+    private static final Pattern URL_PATTERN = Pattern.compile(":\\s*\\[[^\\]]+\\]\\(\\{%url metadata=\"\\d+\" destination-type=\"[^\"]+\"%\\}\\)");
     // private static final Pattern WJ_PATTERN = Pattern.compile("\\(\\{%wj%\\}\\)");
     private static final Pattern NESTED_URL_PATTERN = Pattern.compile(":\\[\\s*:\\[[^\\]]+\\]\\(\\{%url metadata=\"\\d+\" destination-type=\"[^\"]+\"%\\}\\)\\]\\(\\{%wj%\\}\\)");
     private static final Pattern METADATA_PATTERN = Pattern.compile("\\{% metadata=\"\\d+\" %\\}");
@@ -93,11 +100,15 @@ public class DataIngestionService {
                                 @Value("${app.json.file.path}") String jsonFilePath,
                                 S3StorageService s3StorageService,
                                 @Value("${app.s3.bucket-name}") String defaultS3BucketName,
-                                ContextUpdateService contextUpdateService) {
+                                ContextUpdateService contextUpdateService,
+                                RawContentCodec rawContentCodec,
+                                PipelineMetrics pipelineMetrics) {
         this.rawDataStoreRepository = rawDataStoreRepository;
         this.cleansedDataStoreRepository = cleansedDataStoreRepository;
         this.contentHashRepository = contentHashRepository;
         this.contextUpdateService = contextUpdateService;
+        this.rawContentCodec = rawContentCodec;
+        this.pipelineMetrics = pipelineMetrics;
         this.objectMapper = objectMapper;
         this.resourceLoader = resourceLoader;
         this.jsonFilePath = jsonFilePath;
@@ -160,7 +171,7 @@ public class DataIngestionService {
             });
             if(rawData.getReceivedAt() == null) rawData.setReceivedAt(OffsetDateTime.now());
             rawData.setStatus("FILE_PROCESSING_ERROR");
-            rawData.setRawContentText("Error processing file: " + e.getMessage());
+            rawContentCodec.encode(rawData, "Error processing file: " + e.getMessage(), null);
             rawDataStoreRepository.save(rawData);
             return createAndSaveErrorCleansedDataStore(rawData, "FILE_ERROR", "ERROR FROM FILE","FileProcessingError: " + e.getMessage());
         }
@@ -178,12 +189,32 @@ public class DataIngestionService {
         RawDataStore rawDataStore = new RawDataStore();
         rawDataStore.setSourceUri(sourceUriForDb);
         rawDataStore.setReceivedAt(OffsetDateTime.now());
+        String contextJson = loadContextConfigJson();
+        String sourceFingerprint = null;
 
         if (identifier.startsWith("s3://")) {
             logger.info("Identifier is an S3 URI: {}", sourceUriForDb);
             try {
                 S3ObjectDetails s3Details = parseS3Uri(sourceUriForDb);
-                rawJsonContent = s3StorageService.downloadFileContent(s3Details.bucketName, s3Details.fileKey);
+                if (fingerprintDedupEnabled) {
+                    String objectFingerprint = s3StorageService.objectFingerprint(s3Details.bucketName, s3Details.fileKey);
+                    if (objectFingerprint != null) {
+                        // The context config feeds the content hash, so a config change must not look unchanged
+                        sourceFingerprint = objectFingerprint + ":" + calculateContentHash(contextJson == null ? "" : contextJson, null);
+                        CleansedDataStore unchanged = findUnchangedSource(sourceUriForDb, sourceFingerprint);
+                        if (unchanged != null) {
+                            return unchanged;
+                        }
+                    }
+                }
+                Timer.Sample download = pipelineMetrics.start();
+                boolean downloaded = false;
+                try {
+                    rawJsonContent = s3StorageService.downloadFileContent(s3Details.bucketName, s3Details.fileKey);
+                    downloaded = true;
+                } finally {
+                    pipelineMetrics.stop(download, PipelineMetrics.STAGE_DOWNLOAD, PipelineMetrics.sourceTag(sourceUriForDb), null, downloaded);
+                }
                 //setting up source content type
                 if (s3Details.fileKey.endsWith(".json")) {
                     rawDataStore.setSourceContentType("application/json");
@@ -191,14 +222,16 @@ public class DataIngestionService {
                     rawDataStore.setSourceContentType("application/octet-stream");
                 }
 
-                try {
-                    JsonNode rootNode = objectMapper.readTree(rawJsonContent);
-                    ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_model");
-                    ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_path");
-                    ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("copy");
-                    rawDataStore.setSourceMetadata(objectMapper.writeValueAsString(rootNode));
-                } catch (JsonProcessingException e) {
-                    logger.error("Error processing JSON payload to extract metadata", e);
+                if (rawContentCodec.storesSourceMetadata()) {
+                    try {
+                        JsonNode rootNode = objectMapper.readTree(rawJsonContent);
+                        ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_model");
+                        ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_path");
+                        ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("copy");
+                        rawDataStore.setSourceMetadata(objectMapper.writeValueAsString(rootNode));
+                    } catch (JsonProcessingException e) {
+                        logger.error("Error processing JSON payload to extract metadata", e);
+                    }
                 }
                 if (rawJsonContent == null) {
                     logger.warn("File not found or content is null from S3 URI: {}.", sourceUriForDb);
@@ -242,14 +275,16 @@ public class DataIngestionService {
                 rawDataStoreRepository.save(rawDataStore);
                 return createAndSaveErrorCleansedDataStore(rawDataStore, "CLASSPATH_READ_ERROR", "READ ERROR","IOError: " + e.getMessage());
             }
-            try{
-                JsonNode rootNode = objectMapper.readTree(rawJsonContent);
-                ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_model");
-                ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_path");
-                ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("copy");
-                rawDataStore.setSourceMetadata(objectMapper.writeValueAsString(rootNode));
-            } catch (JsonProcessingException e) {
-                logger.error("Error processing JSON payload to extract metadata", e);
+            if (rawContentCodec.storesSourceMetadata()) {
+                try {
+                    JsonNode rootNode = objectMapper.readTree(rawJsonContent);
+                    ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_model");
+                    ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("_path");
+                    ((com.fasterxml.jackson.databind.node.ObjectNode) rootNode).remove("copy");
+                    rawDataStore.setSourceMetadata(objectMapper.writeValueAsString(rootNode));
+                } catch (JsonProcessingException e) {
+                    logger.error("Error processing JSON payload to extract metadata", e);
+                }
             }
             rawDataStore.setStatus("CLASSPATH_CONTENT_RECEIVED");
         }
@@ -261,39 +296,35 @@ public class DataIngestionService {
             RawDataStore savedForEmpty = rawDataStoreRepository.save(rawDataStore);
             return createAndSaveErrorCleansedDataStore(savedForEmpty, "EMPTY_CONTENT_LOADED","Error" ,"ContentError: Loaded content was empty.");
         }
-        String contextJson = null;
-        try {
-            Resource contextResource = resourceLoader.getResource("classpath:context-config.json");
-            if (contextResource.exists()) {
-                try (Reader reader = new InputStreamReader(contextResource.getInputStream(), StandardCharsets.UTF_8)) {
-                    contextJson = FileCopyUtils.copyToString(reader);
-                }
-            }
-        } catch (IOException e) {
-            logger.warn("Could not read context-config.json, continuing without it.", e);
-        }
         String contentHash = calculateContentHash(rawJsonContent, contextJson);
-        Optional<RawDataStore> existingRawDataOpt = rawDataStoreRepository.findBySourceUriAndContentHash(sourceUriForDb, contentHash);
+        // Identity only: the duplicate's payload is never needed, we already hold the same bytes
+        Optional<RawDataStoreRepository.RawDataIdentity> existingRawDataOpt =
+                rawDataStoreRepository.findTopIdentityBySourceUriAndContentHash(sourceUriForDb, contentHash);
 
         if (existingRawDataOpt.isPresent()) {
-            RawDataStore existingRawData = existingRawDataOpt.get();
+            RawDataStoreRepository.RawDataIdentity existingRawData = existingRawDataOpt.get();
             logger.info("Duplicate content detected for source: {}. Using existing raw_data_id: {}", sourceUriForDb, existingRawData.getId());
+            if (sourceFingerprint != null && !sourceFingerprint.equals(existingRawData.getSourceFingerprint())) {
+                // Same bytes under a new ETag/last-modified (e.g. re-uploaded); remember it for the next fast path
+                rawDataStoreRepository.updateSourceFingerprint(existingRawData.getId(), sourceFingerprint);
+            }
             Optional<CleansedDataStore> existingCleansedData = cleansedDataStoreRepository.findByRawDataId(existingRawData.getId());
             if(existingCleansedData.isPresent()){
                 logger.info("Found existing cleansed data for raw_data_id: {}. Skipping processing.", existingRawData.getId());
                 return existingCleansedData.get();
             } else {
                 logger.info("No existing cleansed data for raw_data_id: {}. Proceeding with processing.", existingRawData.getId());
-                return processLoadedContent(rawJsonContent, existingRawData);
+                return processLoadedContent(rawJsonContent, rawDataStoreRepository.findById(existingRawData.getId()).orElseThrow());
             }
         }
 
-        rawDataStore.setRawContentText(rawJsonContent);
         rawDataStore.setRawContentBinary(rawJsonContent.getBytes(StandardCharsets.UTF_8));
         rawDataStore.setContentHash(contentHash);
+        rawDataStore.setSourceFingerprint(sourceFingerprint);
 
         // Versioning logic
         Optional<RawDataStore> latestVersionOpt = rawDataStoreRepository.findTopBySourceUriOrderByVersionDesc(sourceUriForDb);
+        rawContentCodec.encode(rawDataStore, rawJsonContent, latestVersionOpt.orElse(null));
         if (!latestVersionOpt.isEmpty()) {
             RawDataStore latestVersion = latestVersionOpt.get();
             if (latestVersion.getLatest()) {
@@ -310,6 +341,37 @@ public class DataIngestionService {
 
         return processLoadedContent(rawJsonContent, savedRawDataStore);
     }
+    /**
+     * The cleansed data of the latest raw version ingested with this fingerprint, or null if the source
+     * changed or was never fully processed, in which case it is downloaded and checked by content hash.
+     */
+    private CleansedDataStore findUnchangedSource(String sourceUri, String sourceFingerprint) {
+        Optional<RawDataStoreRepository.RawDataIdentity> latest = rawDataStoreRepository.findTopIdentityBySourceUriOrderByVersionDesc(sourceUri);
+        if (latest.isEmpty() || !sourceFingerprint.equals(latest.get().getSourceFingerprint())) {
+            return null;
+        }
+        Optional<CleansedDataStore> cleansed = cleansedDataStoreRepository.findTopByRawDataIdOrderByCleansedAtDesc(latest.get().getId());
+        if (cleansed.isEmpty()) {
+            return null;
+        }
+        logger.info("Source {} is unchanged (fingerprint {}). Skipping download of raw_data_id: {}", sourceUri, sourceFingerprint, latest.get().getId());
+        return cleansed.get();
+    }
+
+    private String loadContextConfigJson() {
+        try {
+            Resource contextResource = resourceLoader.getResource("classpath:context-config.json");
+            if (contextResource.exists()) {
+                try (Reader reader = new InputStreamReader(contextResource.getInputStream(), StandardCharsets.UTF_8)) {
+                    return FileCopyUtils.copyToString(reader);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read context-config.json, continuing without it.", e);
+        }
+        return null;
+    }
+
     @Transactional
     public CleansedDataStore ingestAndCleanseJsonPayload(String jsonPayload, String sourceIdentifier) {
         RawDataStore rawDataStore = findOrCreateRawDataStore(jsonPayload, sourceIdentifier);
@@ -321,17 +383,17 @@ public class DataIngestionService {
 
     private RawDataStore findOrCreateRawDataStore(String jsonPayload, String sourceIdentifier) {
         String newContentHash = calculateContentHash(jsonPayload, null);
-        Optional<RawDataStore> latestVersionOpt = rawDataStoreRepository.findTopBySourceUriOrderByVersionDesc(sourceIdentifier);
+        Optional<RawDataStoreRepository.RawDataIdentity> latestVersionOpt = rawDataStoreRepository.findTopIdentityBySourceUriOrderByVersionDesc(sourceIdentifier);
 
         if (latestVersionOpt.isPresent()) {
-            RawDataStore rawDataStore = latestVersionOpt.get();
-            if (Objects.equals(rawDataStore.getContentHash(), newContentHash)) {
+            if (Objects.equals(latestVersionOpt.get().getContentHash(), newContentHash)) {
                 logger.info("Ingested content for sourceIdentifier '{}' has not changed. Skipping processing.", sourceIdentifier);
                 return null;
             }
+            RawDataStore rawDataStore = rawDataStoreRepository.findById(latestVersionOpt.get().getId()).orElseThrow();
             logger.info("Found existing RawDataStore with ID {}. Content has changed, updating record.", rawDataStore.getId());
             rawDataStore.setReceivedAt(OffsetDateTime.now());
-            rawDataStore.setRawContentText(jsonPayload);
+            rawContentCodec.encode(rawDataStore, jsonPayload, null);
             rawDataStore.setContentHash(newContentHash);
             return rawDataStoreRepository.save(rawDataStore);
         } else {
@@ -339,7 +401,7 @@ public class DataIngestionService {
             rawDataStore.setSourceUri(sourceIdentifier);
             rawDataStore.setVersion(1);
             rawDataStore.setReceivedAt(OffsetDateTime.now());
-            rawDataStore.setRawContentText(jsonPayload);
+            rawContentCodec.encode(rawDataStore, jsonPayload, null);
             rawDataStore.setContentHash(newContentHash);
             rawDataStore.setStatus("API_PAYLOAD_RECEIVED");
             logger.info("No existing RawDataStore found for sourceIdentifier {}. Creating a new one.", sourceIdentifier);
@@ -349,18 +411,21 @@ public class DataIngestionService {
 
     private CleansedDataStore processLoadedContent(String rawJsonContent, RawDataStore associatedRawDataStore) {
         try {
+            String sourceTag = PipelineMetrics.sourceTag(associatedRawDataStore.getSourceUri());
+            Timer.Sample stage = pipelineMetrics.start();
             JsonNode rootNode = objectMapper.readTree(rawJsonContent);
-            List<Map<String, Object>> allExtractedItems = new ArrayList<>();
-
-            Envelope rootEnvelope = new Envelope();
-            rootEnvelope.setSourcePath(associatedRawDataStore.getSourceUri());
-            rootEnvelope.setUsagePath(associatedRawDataStore.getSourceUri());
-            rootEnvelope.setProvenance(new HashMap<>());
-
+            pipelineMetrics.stop(stage, PipelineMetrics.STAGE_PARSE, sourceTag, null, true);
             IngestionCounters counters = new IngestionCounters();
-            findAndExtractRecursive(rootNode, "#", rootEnvelope, new Facets(), allExtractedItems, counters);
+            stage = pipelineMetrics.start();
+            List<Map<String, Object>> allExtractedItems = extractItems(rootNode, associatedRawDataStore.getSourceUri(), counters);
+            pipelineMetrics.stop(stage, PipelineMetrics.STAGE_CLEANSE, sourceTag, null, true);
+            pipelineMetrics.countItems(PipelineMetrics.STAGE_CLEANSE, sourceTag, "extracted", allExtractedItems.size());
 
+            stage = pipelineMetrics.start();
             List<Map<String, Object>> itemsToProcess = returnAllItems ? allExtractedItems : filterForChangedItems(allExtractedItems);
+            pipelineMetrics.stop(stage, PipelineMetrics.STAGE_HASH_DIFF, sourceTag, null, true);
+            pipelineMetrics.countItems(PipelineMetrics.STAGE_HASH_DIFF, sourceTag, "changed", itemsToProcess.size());
+            pipelineMetrics.countItems(PipelineMetrics.STAGE_HASH_DIFF, sourceTag, "unchanged", allExtractedItems.size() - itemsToProcess.size());
 
             if (debugCountersEnabled) {
                 long keptPreFilterCopy = counters.copyKept;
@@ -422,6 +487,12 @@ public class DataIngestionService {
         cleansedDataStore.setRawDataId(rawData.getId());
         cleansedDataStore.setSourceUri(rawData.getSourceUri());
         cleansedDataStore.setCleansedAt(OffsetDateTime.now());
+        try {
+            cleansedDataStore.setContextDictionary(CleansedContextDictionary.normalize(items));
+        } catch (JsonProcessingException e) {
+            // Items keep their inline contexts, which readers still accept
+            logger.warn("Could not build context dictionary for raw_data_id {}: {}", rawData.getId(), e.getMessage());
+        }
         cleansedDataStore.setCleansedItems(items);
         cleansedDataStore.setVersion(rawData.getVersion());
         cleansedDataStore.setStatus("CLEANSED_PENDING_ENRICHMENT");
@@ -430,7 +501,21 @@ public class DataIngestionService {
         return cleansedDataStoreRepository.save(cleansedDataStore);
     }
 
-    private void findAndExtractRecursive(JsonNode currentNode, String parentFieldName, Envelope parentEnvelope, Facets parentFacets, List<Map<String, Object>> results, IngestionCounters counters) {
+    /**
+     * Extracts and cleanses every content item of a parsed page. Package-private, like the helpers below,
+     * for the JMH suites in benchmarks/.
+     */
+    List<Map<String, Object>> extractItems(JsonNode rootNode, String sourceUri, IngestionCounters counters) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        Envelope rootEnvelope = new Envelope();
+        rootEnvelope.setSourcePath(sourceUri);
+        rootEnvelope.setUsagePath(sourceUri);
+        rootEnvelope.setProvenance(new HashMap<>());
+        findAndExtractRecursive(rootNode, "#", rootEnvelope, new Facets(), items, counters);
+        return items;
+    }
+
+    void findAndExtractRecursive(JsonNode currentNode, String parentFieldName, Envelope parentEnvelope, Facets parentFacets, List<Map<String, Object>> results, IngestionCounters counters) {
         if (currentNode.isObject()) {
             Envelope currentEnvelope = buildCurrentEnvelope(currentNode, parentEnvelope);
             Facets currentFacets = buildCurrentFacets(currentNode, parentFacets);
@@ -555,7 +640,7 @@ public class DataIngestionService {
         return currentEnvelope;
     }
 
-    private Facets buildCurrentFacets(JsonNode currentNode, Facets parentFacets) {
+    Facets buildCurrentFacets(JsonNode currentNode, Facets parentFacets) {
         Facets currentFacets = new Facets();
         currentFacets.putAll(parentFacets);
         currentFacets.remove("copy"); // Remove generic copy if it exists
@@ -614,7 +699,7 @@ public class DataIngestionService {
         }
     }
 
-    private String calculateContentHash(String content, String context) {
+    String calculateContentHash(String content, String context) {
         if (content == null) return null; // Allow hashing of empty strings to differentiate from null
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
@@ -629,7 +714,7 @@ public class DataIngestionService {
         }
     }
 
-    private static String bytesToHex(byte[] hash) {
+    static String bytesToHex(byte[] hash) {
         StringBuilder hexString = new StringBuilder(2 * hash.length);
         for (byte b : hash) {
             String hex = Integer.toHexString(0xff & b);
@@ -647,12 +732,13 @@ public class DataIngestionService {
         }
         errorCleansedData.setCleansedItems(Collections.emptyList());
         errorCleansedData.setStatus(cleansedStatus);
+        pipelineMetrics.countError("ingest", PipelineMetrics.sourceTag(rawDataStore == null ? null : rawDataStore.getSourceUri()), cleansedStatus);
         errorCleansedData.setCleansingErrors(Map.of("error", errorMessage));
         errorCleansedData.setCleansedAt(OffsetDateTime.now());
         return cleansedDataStoreRepository.save(errorCleansedData);
     }
 
-    private static String cleanseCopyText(String text) {
+    static String cleanseCopyText(String text) {
         if (text == null) return null;
         String cleansed = text;
         // Targeted replacements based on requested patterns
@@ -723,7 +809,7 @@ public class DataIngestionService {
         }
     }
 
-    private static class IngestionCounters {
+    static class IngestionCounters {
         long copyFound = 0;
         long copyKept = 0;
         long analyticsFound = 0;
@@ -8,15 +8,30 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+/**
+ * Writes enriched_content_elements idempotently. Each item of a page has one row, identified by
+ * {@link #dedupKey}: a redelivered SQS message of an enriched item finds it ({@link #isProcessed}) and a concurrent
+ * delivery of the same item updates it instead of inserting a second row. An error row is retried by the next
+ * delivery and overwritten; an error never overwrites an ENRICHED row.
+ * Each write runs in its own transaction.
+ */
 @Service
 public class EnrichmentPersistenceService {
 
@@ -24,16 +39,77 @@ public class EnrichmentPersistenceService {
 
     private final EnrichedContentElementRepository enrichedContentElementRepository;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate requiresNew;
 
-    public EnrichmentPersistenceService(EnrichedContentElementRepository enrichedContentElementRepository, ObjectMapper objectMapper) {
+    public EnrichmentPersistenceService(EnrichedContentElementRepository enrichedContentElementRepository, ObjectMapper objectMapper,
+                                        PlatformTransactionManager transactionManager) {
         this.enrichedContentElementRepository = enrichedContentElementRepository;
         this.objectMapper = objectMapper;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Identity of one item of one page: SHA-256 of (cleansedDataStoreId, sourcePath, originalFieldName, envelope usagePath).
+     */
+    public static String dedupKey(UUID cleansedDataStoreId, CleansedItemDetail itemDetail) {
+        String usagePath = itemDetail.context != null && itemDetail.context.getEnvelope() != null
+                ? itemDetail.context.getEnvelope().getUsagePath()
+                : null;
+        String identity = String.join("\u001f", String.valueOf(cleansedDataStoreId),
+                String.valueOf(itemDetail.sourcePath), String.valueOf(itemDetail.originalFieldName), String.valueOf(usagePath));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(identity.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Whether the item was already enriched, i.e. this delivery is a redelivery of a successfully processed
+     * message. Items whose row records an error are not processed yet: the delivery retries them.
+     */
+    public boolean isProcessed(String dedupKey) {
+        return enrichedContentElementRepository.existsByDedupKeyAndStatus(dedupKey, "ENRICHED");
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void saveEnrichedElement(CleansedItemDetail itemDetail, CleansedDataStore parentEntry,
-                                    Map<String, Object> bedrockResponse, String elementStatus) throws JsonProcessingException {
-        EnrichedContentElement enrichedElement = new EnrichedContentElement();
+                                    Map<String, Object> bedrockResponse, String elementStatus) {
+        upsert(dedupKey(parentEntry.getId(), itemDetail), false,
+                enrichedElement -> fillEnrichedElement(enrichedElement, itemDetail, parentEntry, bedrockResponse, elementStatus));
+    }
+
+    public void saveErrorEnrichedElement(CleansedItemDetail itemDetail, CleansedDataStore parentEntry, String status, String errorMessage) {
+        upsert(dedupKey(parentEntry.getId(), itemDetail), true,
+                errorElement -> fillErrorElement(errorElement, itemDetail, parentEntry, status, errorMessage));
+        logger.debug("Saved error element for item path: {}", itemDetail.sourcePath);
+    }
+
+    // Insert or update the row of dedupKey; a unique violation means a concurrent delivery inserted it first
+    private void upsert(String dedupKey, boolean keepEnriched, Consumer<EnrichedContentElement> fill) {
+        try {
+            requiresNew.executeWithoutResult(status -> write(dedupKey, keepEnriched, fill));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Concurrent write of enriched element {}; updating the existing row", dedupKey);
+            requiresNew.executeWithoutResult(status -> write(dedupKey, keepEnriched, fill));
+        }
+    }
+
+    private void write(String dedupKey, boolean keepEnriched, Consumer<EnrichedContentElement> fill) {
+        EnrichedContentElement element = enrichedContentElementRepository.findByDedupKey(dedupKey)
+                .orElseGet(EnrichedContentElement::new);
+        if (keepEnriched && "ENRICHED".equals(element.getStatus())) {
+            return;
+        }
+        fill.accept(element);
+        element.setDedupKey(dedupKey);
+        // Flush so a unique violation surfaces here, not at commit
+        enrichedContentElementRepository.saveAndFlush(element);
+    }
+
+    private void fillEnrichedElement(EnrichedContentElement enrichedElement, CleansedItemDetail itemDetail, CleansedDataStore parentEntry,
+                                     Map<String, Object> bedrockResponse, String elementStatus) {
         enrichedElement.setCleansedDataId(parentEntry.getId());
         enrichedElement.setVersion(parentEntry.getVersion());
         enrichedElement.setSourceUri(parentEntry.getSourceUri());
@@ -63,13 +139,10 @@ public class EnrichmentPersistenceService {
             logger.warn("Could not serialize enrichment metadata for item path: {}", itemDetail.sourcePath, e);
             enrichedElement.setEnrichmentMetadata("{\"error\":\"Could not serialize metadata\"}");
         }
-
-        enrichedContentElementRepository.save(enrichedElement);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void saveErrorEnrichedElement(CleansedItemDetail itemDetail, CleansedDataStore parentEntry, String status, String errorMessage) {
-        EnrichedContentElement errorElement = new EnrichedContentElement();
+    private void fillErrorElement(EnrichedContentElement errorElement, CleansedItemDetail itemDetail, CleansedDataStore parentEntry,
+                                  String status, String errorMessage) {
         errorElement.setCleansedDataId(parentEntry.getId());
         errorElement.setVersion(parentEntry.getVersion());
         errorElement.setSourceUri(parentEntry.getSourceUri());
@@ -88,8 +161,5 @@ public class EnrichmentPersistenceService {
         } catch (JsonProcessingException e) {
             errorElement.setEnrichmentMetadata("Error could not serialize");
         }
-
-        enrichedContentElementRepository.save(errorElement);
-        logger.debug("Saved error element for item path: {}", itemDetail.sourcePath);
     }
 }
\ No newline at end of file
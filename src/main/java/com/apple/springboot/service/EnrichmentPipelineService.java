@@ -3,15 +3,25 @@ package com.apple.springboot.service;
 import com.apple.springboot.model.CleansedDataStore;
 import com.apple.springboot.service.CleansedItemDetail;
 import com.apple.springboot.model.EnrichmentContext;
-import com.apple.springboot.model.EnrichmentMessage;
+import com.apple.springboot.model.EnrichmentPriority;
 import com.apple.springboot.repository.CleansedDataStoreRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -25,25 +35,43 @@ public class EnrichmentPipelineService {
 
     private final CleansedDataStoreRepository cleansedDataStoreRepository;
     private final ObjectMapper objectMapper;
-    private final SqsService sqsService;
+    private final FairEnrichmentScheduler fairEnrichmentScheduler;
+    private final PipelineMetrics pipelineMetrics;
+    private final StageTimingService stageTimingService;
+    private final boolean resumeDispatchOnStartup;
 
     public EnrichmentPipelineService(CleansedDataStoreRepository cleansedDataStoreRepository,
                                      ObjectMapper objectMapper,
-                                     SqsService sqsService) {
+                                     FairEnrichmentScheduler fairEnrichmentScheduler,
+                                     PipelineMetrics pipelineMetrics,
+                                     StageTimingService stageTimingService,
+                                     @Value("${app.enrichment.fair.resume-on-startup:true}") boolean resumeDispatchOnStartup) {
         this.cleansedDataStoreRepository = cleansedDataStoreRepository;
         this.objectMapper = objectMapper;
-        this.sqsService = sqsService;
+        this.fairEnrichmentScheduler = fairEnrichmentScheduler;
+        this.pipelineMetrics = pipelineMetrics;
+        this.stageTimingService = stageTimingService;
+        this.resumeDispatchOnStartup = resumeDispatchOnStartup;
     }
 
     @Transactional
     public void enrichAndStore(CleansedDataStore cleansedDataEntry) throws JsonProcessingException {
+        enrichAndStore(cleansedDataEntry, EnrichmentPriority.NORMAL);
+    }
+
+    /**
+     * Queues every non-blank item of the page for enrichment in the given priority lane. The items are sent
+     * to SQS by {@link FairEnrichmentScheduler} after commit, interleaved with other pages.
+     */
+    @Transactional
+    public void enrichAndStore(CleansedDataStore cleansedDataEntry, EnrichmentPriority priority) throws JsonProcessingException {
         if (cleansedDataEntry == null || cleansedDataEntry.getId() == null) {
             logger.warn("Received null or no ID CleansedDataStore entry for enrichment. Skipping...");
             return;
         }
 
         UUID cleansedDataStoreId = cleansedDataEntry.getId();
-        logger.info("Starting enrichment process for CleansedDataStore ID: {}", cleansedDataStoreId);
+        logger.info("Starting enrichment process for CleansedDataStore ID: {} ({} priority)", cleansedDataStoreId, priority);
 
         if (!"CLEANSED_PENDING_ENRICHMENT".equals(cleansedDataEntry.getStatus())) {
             logger.info("CleansedDataStore ID: {} is not in 'CLEANSED_PENDING_ENRICHMENT' state (current: {}). Skipping enrichment.",
@@ -62,33 +90,92 @@ public class EnrichmentPipelineService {
             return;
         }
 
-        List<CleansedItemDetail> itemsToEnrich = convertMapsToCleansedItemDetails(maps);
+        List<CleansedItemDetail> itemsToEnrich = convertMapsToCleansedItemDetails(maps, cleansedDataEntry.getContextDictionary());
 
-        long enqueuedCount = 0L;
-        for (CleansedItemDetail itemDetail : itemsToEnrich) {
-            if (itemDetail.cleansedContent == null || itemDetail.cleansedContent.trim().isEmpty()) {
-                logger.warn("Skipping enrichment for item in CleansedDataStore ID: {} (path: {}) due to empty cleansed text.", cleansedDataStoreId, itemDetail.sourcePath);
-                continue;
-            }
-            EnrichmentMessage message = new EnrichmentMessage(itemDetail, cleansedDataStoreId);
-            sqsService.sendMessage(message);
-            enqueuedCount++;
-        }
+        String sourceTag = PipelineMetrics.sourceTag(cleansedDataEntry.getSourceUri());
+        Timer.Sample enqueue = pipelineMetrics.start();
+        List<CleansedItemDetail> toDispatch = nonBlankItems(itemsToEnrich, cleansedDataStoreId);
+        long enqueuedCount = toDispatch.size();
+        pipelineMetrics.stop(enqueue, PipelineMetrics.STAGE_ENQUEUE, sourceTag, null, true);
+        pipelineMetrics.countItems(PipelineMetrics.STAGE_ENQUEUE, sourceTag, "enqueued", enqueuedCount);
+        pipelineMetrics.countItems(PipelineMetrics.STAGE_ENQUEUE, sourceTag, "skipped-blank", itemsToEnrich.size() - enqueuedCount);
 
         // Persist expected (non-blank) count for robust completion checks
         try {
             java.util.Map<String, Object> ctx = cleansedDataEntry.getContext();
             if (ctx == null) ctx = new java.util.HashMap<>();
             ctx.put("expectedEnrichmentCount", enqueuedCount);
+            ctx.put("priority", priority.name());
+            ctx.put("dispatchedCount", 0);
+            // This instance dispatches the page; others resume it only if the lease is not renewed
+            ctx.put("dispatchOwner", fairEnrichmentScheduler.instanceId());
+            ctx.put("dispatchHeartbeatAt", OffsetDateTime.now().toString());
             cleansedDataEntry.setContext(ctx);
+            stageTimingService.recordOnEntity(cleansedDataEntry, StageTimingService.ENQUEUED);
         } catch (Exception ignore) { }
 
         cleansedDataEntry.setStatus("ENRICHMENT_QUEUED");
         cleansedDataStoreRepository.save(cleansedDataEntry);
+        dispatchAfterCommit(cleansedDataStoreId, toDispatch, priority);
         logger.info("Finished queuing enrichment tasks for CleansedDataStore ID: {}. Final status: ENRICHMENT_QUEUED", cleansedDataEntry.getId());
     }
 
-    private List<CleansedItemDetail> convertMapsToCleansedItemDetails(List<Map<String, Object>> maps) {
+    /**
+     * Hands pages whose dispatch was cut short (by a restart, or an instance that died) back to the fair
+     * scheduler, from the last recorded dispatchedCount. Runs on startup and every app.enrichment.fair.resume-ms;
+     * only pages whose dispatch lease has expired are taken, each claimed atomically so that exactly one
+     * instance resumes it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.enrichment.fair.resume-ms:60000}", fixedDelayString = "${app.enrichment.fair.resume-ms:60000}")
+    public void resumeDispatch() {
+        if (!resumeDispatchOnStartup) {
+            return;
+        }
+        Duration lease = fairEnrichmentScheduler.dispatchLease();
+        for (UUID id : cleansedDataStoreRepository.findIdsWithUnfinishedDispatch(lease)) {
+            if (!cleansedDataStoreRepository.claimDispatch(id, fairEnrichmentScheduler.instanceId(), lease)) {
+                continue;
+            }
+            cleansedDataStoreRepository.findById(id).ifPresent(entry -> {
+                Map<String, Object> ctx = entry.getContext();
+                int dispatched = ctx.get("dispatchedCount") instanceof Number n ? n.intValue() : 0;
+                EnrichmentPriority priority = EnrichmentPriority.parse((String) ctx.get("priority"));
+                List<CleansedItemDetail> items = nonBlankItems(
+                        convertMapsToCleansedItemDetails(entry.getCleansedItems(), entry.getContextDictionary()), id);
+                logger.info("Resuming dispatch of CleansedDataStore ID {} at item {} of {}", id, dispatched, items.size());
+                fairEnrichmentScheduler.schedule(id, items, dispatched, priority);
+            });
+        }
+    }
+
+    // The page's items go out only once its ENRICHMENT_QUEUED status and expected count are committed
+    private void dispatchAfterCommit(UUID cleansedDataStoreId, List<CleansedItemDetail> items, EnrichmentPriority priority) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fairEnrichmentScheduler.schedule(cleansedDataStoreId, items, 0, priority);
+                }
+            });
+        } else {
+            fairEnrichmentScheduler.schedule(cleansedDataStoreId, items, 0, priority);
+        }
+    }
+
+    private List<CleansedItemDetail> nonBlankItems(List<CleansedItemDetail> items, UUID cleansedDataStoreId) {
+        List<CleansedItemDetail> nonBlank = new ArrayList<>(items.size());
+        for (CleansedItemDetail itemDetail : items) {
+            if (itemDetail.cleansedContent == null || itemDetail.cleansedContent.trim().isEmpty()) {
+                logger.warn("Skipping enrichment for item in CleansedDataStore ID: {} (path: {}) due to empty cleansed text.", cleansedDataStoreId, itemDetail.sourcePath);
+                continue;
+            }
+            nonBlank.add(itemDetail);
+        }
+        return nonBlank;
+    }
+
+    private List<CleansedItemDetail> convertMapsToCleansedItemDetails(List<Map<String, Object>> maps, Map<String, Map<String, Object>> contextDictionary) {
         return maps.stream()
                 .map(map -> {
                     try {
@@ -96,7 +183,7 @@ public class EnrichmentPipelineService {
                         String originalFieldName = (String) map.get("originalFieldName");
                         String cleansedContent = (String) map.get("cleansedContent");
                         String model = (String) map.get("model");
-                        EnrichmentContext context = objectMapper.convertValue(map.get("context"), EnrichmentContext.class);
+                        EnrichmentContext context = objectMapper.convertValue(CleansedContextDictionary.resolve(map, contextDictionary), EnrichmentContext.class);
                         return new CleansedItemDetail(sourcePath, originalFieldName, cleansedContent, model, context);
                     } catch (Exception e) {
                         logger.warn("Could not convert map to CleansedItemDetail object. Skipping item. Map: {}, Error: {}", map, e.getMessage());
@@ -6,17 +6,28 @@ import com.apple.springboot.repository.ContentChunkRepository;
 import com.apple.springboot.repository.EnrichedContentElementRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class EnrichmentProcessor {
@@ -29,40 +40,61 @@ public class EnrichmentProcessor {
     private final ConsolidatedSectionService consolidatedSectionService;
     private final TextChunkingService textChunkingService;
     private final ContentChunkRepository contentChunkRepository;
-    private final RateLimiter bedrockRateLimiter;
+    private final PipelineExecution pipelineExecution;
     private final EnrichmentPersistenceService persistenceService;
     private final AIResponseValidator aiResponseValidator;
     private final ObjectMapper objectMapper;
+    private final SearchResultCache searchResultCache;
+    private final LocalVectorIndexService localVectorIndexService;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
+    private final StageTimingService stageTimingService;
+    private final TransactionTemplate transactionTemplate;
+    private final FairEnrichmentScheduler fairEnrichmentScheduler;
+    private final Duration finalizationLease;
+    // Page id -> owner token of each finalization running on this instance, renewed by renewFinalizationLeases()
+    private final Map<UUID, String> finalizationClaims = new ConcurrentHashMap<>();
 
-
-    @SuppressWarnings("UnstableApiUsage")
     public EnrichmentProcessor(BedrockEnrichmentService bedrockEnrichmentService,
                                CleansedDataStoreRepository cleansedDataStoreRepository,
                                EnrichedContentElementRepository enrichedContentElementRepository,
                                ConsolidatedSectionService consolidatedSectionService,
                                TextChunkingService textChunkingService,
                                ContentChunkRepository contentChunkRepository,
-                               RateLimiter bedrockRateLimiter,
+                               PipelineExecution pipelineExecution,
                                EnrichmentPersistenceService persistenceService,
                                AIResponseValidator aiResponseValidator,
-                               ObjectMapper objectMapper) {
+                               ObjectMapper objectMapper,
+                               SearchResultCache searchResultCache,
+                               LocalVectorIndexService localVectorIndexService,
+                               PipelineMetrics pipelineMetrics,
+                               PipelineTracing pipelineTracing,
+                               StageTimingService stageTimingService,
+                               PlatformTransactionManager transactionManager,
+                               FairEnrichmentScheduler fairEnrichmentScheduler,
+                               @Value("${app.enrichment.finalization-lease-ms:900000}") long finalizationLeaseMs) {
         this.bedrockEnrichmentService = bedrockEnrichmentService;
         this.cleansedDataStoreRepository = cleansedDataStoreRepository;
         this.enrichedContentElementRepository = enrichedContentElementRepository;
         this.consolidatedSectionService = consolidatedSectionService;
         this.textChunkingService = textChunkingService;
         this.contentChunkRepository = contentChunkRepository;
-        this.bedrockRateLimiter = bedrockRateLimiter;
+        this.pipelineExecution = pipelineExecution;
         this.persistenceService = persistenceService;
         this.aiResponseValidator = aiResponseValidator;
         this.objectMapper = objectMapper;
+        this.searchResultCache = searchResultCache;
+        this.localVectorIndexService = localVectorIndexService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
+        this.stageTimingService = stageTimingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fairEnrichmentScheduler = fairEnrichmentScheduler;
+        this.finalizationLease = Duration.ofMillis(finalizationLeaseMs);
     }
 
-    // This method is NO LONGER @Transactional
+    // Not @Transactional: the Bedrock permit and call below must not hold a JDBC connection
     public void process(EnrichmentMessage message) {
-        // This is a blocking call that will wait until a permit is available.
-        bedrockRateLimiter.acquire();
-
         CleansedItemDetail itemDetail = message.getCleansedItemDetail();
         UUID cleansedDataStoreId = message.getCleansedDataStoreId();
 
@@ -75,16 +107,33 @@ public class EnrichmentProcessor {
             return;
         }
 
+        String sourceTag = PipelineMetrics.sourceTag(cleansedDataEntry.getSourceUri());
+        EnrichmentPriority lane = message.getPriority();
+        if (persistenceService.isProcessed(EnrichmentPersistenceService.dedupKey(cleansedDataStoreId, itemDetail))) {
+            // Redelivery (crash or visibility timeout after the first delivery saved its result): no second Bedrock call.
+            // The first delivery may have stopped before its completion check, so check here; finalization runs once.
+            logger.info("Item {} of CleansedDataStore ID {} was already processed; skipping redelivered message",
+                    itemDetail.sourcePath, cleansedDataStoreId);
+            pipelineMetrics.countItems(PipelineMetrics.STAGE_ENRICH, sourceTag, "duplicate", 1);
+            checkCompletion(cleansedDataEntry, lane);
+            return;
+        }
+        String itemStatus = "ERROR_UNEXPECTED";
         try {
             Map<String, String> itemContent = new HashMap<>();
             itemContent.put("cleansedContent", itemDetail.cleansedContent);
             JsonNode itemContentAsJson = objectMapper.valueToTree(itemContent);
 
-            Map<String, Object> enrichmentResultsFromBedrock = bedrockEnrichmentService.enrichItem(itemContentAsJson, itemDetail.context);
+            Timer.Sample enrich = pipelineMetrics.start();
+            Map<String, Object> enrichmentResultsFromBedrock = pipelineExecution.call(PipelineExecution.Dependency.BEDROCK, lane,
+                    () -> bedrockEnrichmentService.enrichItem(itemContentAsJson, itemDetail.context));
+            pipelineMetrics.stop(enrich, PipelineMetrics.STAGE_ENRICH, sourceTag, bedrockEnrichmentService.getConfiguredModelId(),
+                    !enrichmentResultsFromBedrock.containsKey("error"));
 
             if (enrichmentResultsFromBedrock.containsKey("error")) {
                 String errorMessage = "Bedrock enrichment failed: " + enrichmentResultsFromBedrock.get("error");
                 logger.error(errorMessage);
+                itemStatus = "ERROR_ENRICHMENT_FAILED";
                 persistenceService.saveErrorEnrichedElement(itemDetail, cleansedDataEntry, "ERROR_ENRICHMENT_FAILED", errorMessage);
             } else {
                 Map<String, Object> contextMap = objectMapper.convertValue(itemDetail.context, new com.fasterxml.jackson.core.type.TypeReference<>() {});
@@ -99,21 +148,42 @@ public class EnrichmentProcessor {
                 if (!aiResponseValidator.isValid(enrichmentResultsFromBedrock)) {
                     String validationError = "Validation failed for AI response structure. Check logs for details: " + objectMapper.writeValueAsString(enrichmentResultsFromBedrock);
                     logger.error(validationError);
+                    itemStatus = "ERROR_VALIDATION_FAILED";
                     persistenceService.saveErrorEnrichedElement(itemDetail, cleansedDataEntry, "ERROR_VALIDATION_FAILED", validationError);
                 } else {
-                    persistenceService.saveEnrichedElement(itemDetail, cleansedDataEntry, enrichmentResultsFromBedrock, "ENRICHED");
+                    Timer.Sample persist = pipelineMetrics.start();
+                    Span span = pipelineTracing.startSpan("db.save enriched_content_elements");
+                    try (Tracer.SpanInScope ignored = pipelineTracing.inScope(span)) {
+                        persistenceService.saveEnrichedElement(itemDetail, cleansedDataEntry, enrichmentResultsFromBedrock, "ENRICHED");
+                    } finally {
+                        span.end();
+                    }
+                    pipelineMetrics.stop(persist, PipelineMetrics.STAGE_PERSIST, sourceTag, null, true);
+                    itemStatus = "ENRICHED";
+                    stageTimingService.record(cleansedDataEntry, StageTimingService.FIRST_ENRICHMENT);
+                    if (message.getEnqueuedAt() > 0) {
+                        pipelineMetrics.recordLaneLatency(lane.tag(), PipelineMetrics.MILESTONE_ENRICHED,
+                                Duration.ofMillis(System.currentTimeMillis() - message.getEnqueuedAt()));
+                    }
                 }
             }
         } catch (Exception e) {
             logger.error("Critical error during enrichment for item (CleansedDataStore ID: {}, item path: {}): {}", cleansedDataStoreId, itemDetail.sourcePath, e.getMessage(), e);
+            itemStatus = "ERROR_UNEXPECTED";
             persistenceService.saveErrorEnrichedElement(itemDetail, cleansedDataEntry, "ERROR_UNEXPECTED", e.getMessage());
         } finally {
+            pipelineMetrics.countItems(PipelineMetrics.STAGE_ENRICH, sourceTag, itemStatus, 1);
+            if (!"ENRICHED".equals(itemStatus)) {
+                pipelineMetrics.countError(PipelineMetrics.STAGE_ENRICH, sourceTag, itemStatus);
+            }
+            // Frees the page's dispatch window slot for its next item
+            fairEnrichmentScheduler.itemCompleted(cleansedDataStoreId);
             // This 'finally' block ensures that we always check for completion.
-            checkCompletion(cleansedDataEntry);
+            checkCompletion(cleansedDataEntry, lane);
         }
     }
 
-    private void checkCompletion(CleansedDataStore cleansedDataEntry) {
+    private void checkCompletion(CleansedDataStore cleansedDataEntry, EnrichmentPriority lane) {
         long expectedNonBlank = 0L;
         try {
             Object ctxExpected = cleansedDataEntry.getContext() == null ? null : cleansedDataEntry.getContext().get("expectedEnrichmentCount");
@@ -134,39 +204,233 @@ public class EnrichmentProcessor {
                 cleansedDataEntry.getId(), processedCount, expectedNonBlank);
 
         if (processedCount >= expectedNonBlank) {
+            String owner = UUID.randomUUID().toString();
+            if (!cleansedDataStoreRepository.claimFinalization(cleansedDataEntry.getId(), owner, finalizationLease)) {
+                logger.debug("Finalization of CleansedDataStore ID {} already claimed by another delivery", cleansedDataEntry.getId());
+                return;
+            }
             logger.info("All items for CleansedDataStore ID {} have been processed. Running finalization steps.", cleansedDataEntry.getId());
-            runFinalizationSteps(cleansedDataEntry);
+            finalizeClaimed(cleansedDataEntry, lane, owner);
+        }
+    }
+
+    /**
+     * Finalizes pages whose finalizer stopped without releasing its claim (the instance died mid-finalization):
+     * once the lease has expired they are claimed again here, since their last deliveries are gone.
+     */
+    @Scheduled(fixedDelayString = "${app.enrichment.finalization-sweep-ms:60000}")
+    public void finalizeExpiredClaims() {
+        for (UUID id : cleansedDataStoreRepository.findIdsWithExpiredFinalization(finalizationLease)) {
+            CleansedDataStore cleansedDataEntry = cleansedDataStoreRepository.findById(id).orElse(null);
+            String owner = UUID.randomUUID().toString();
+            if (cleansedDataEntry == null || !cleansedDataStoreRepository.claimFinalization(id, owner, finalizationLease)) {
+                continue;
+            }
+            logger.warn("Finalization claim of CleansedDataStore ID {} expired; finalizing it again", id);
+            try {
+                finalizeClaimed(cleansedDataEntry, EnrichmentPriority.NORMAL, owner);
+            } catch (Exception e) {
+                logger.error("Finalization of CleansedDataStore ID {} failed again: {}", id, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Keeps the claims of finalizations still running on this instance from expiring: embedding a large page
+     * within the Bedrock rate limit can outlast the lease, after which the sweep would finalize it a second time.
+     */
+    @Scheduled(fixedDelayString = "${app.enrichment.finalization-heartbeat-ms:60000}")
+    public void renewFinalizationLeases() {
+        finalizationClaims.forEach((id, owner) -> {
+            if (!cleansedDataStoreRepository.renewFinalizationLease(id, owner)) {
+                logger.warn("Finalization claim of CleansedDataStore ID {} was taken over; this finalizer will not write", id);
+            }
+        });
+    }
+
+    // Runs the finalization this caller has claimed as owner; on failure or interruption the claim is released and
+    // the error rethrown, so the SQS message stays in the queue and its redelivery finalizes the page
+    private void finalizeClaimed(CleansedDataStore cleansedDataEntry, EnrichmentPriority lane, String owner) {
+        boolean finished = false;
+        finalizationClaims.put(cleansedDataEntry.getId(), owner);
+        try {
+            finished = runFinalizationSteps(cleansedDataEntry, lane, owner);
+        } finally {
+            finalizationClaims.remove(cleansedDataEntry.getId(), owner);
+            if (!finished) {
+                cleansedDataStoreRepository.releaseFinalization(cleansedDataEntry.getId(), owner);
+            }
+        }
+        if (!finished) {
+            throw new IllegalStateException("Finalization of CleansedDataStore ID " + cleansedDataEntry.getId() + " did not finish");
         }
     }
 
-    @Transactional
-    public void runFinalizationSteps(CleansedDataStore cleansedDataEntry) {
+    /**
+     * Consolidates, chunks, embeds and indexes a fully enriched page in three phases so that no JDBC connection
+     * is held across Bedrock calls: read (consolidation and section load, each in its own short transaction),
+     * embed (no transaction), then one short transaction that saves all chunks, followed by the status update.
+     * Chunk embeddings count against the Bedrock budget of {@code lane}. Nothing is written in the last phase
+     * unless the finalization claim of {@code owner} is still held.
+     *
+     * @return false if interrupted, the claim was lost or the chunks could not be saved
+     */
+    public boolean runFinalizationSteps(CleansedDataStore cleansedDataEntry, EnrichmentPriority lane, String owner) {
         logger.info("Running finalization steps for CleansedDataStore ID: {}", cleansedDataEntry.getId());
-        consolidatedSectionService.saveFromCleansedEntry(cleansedDataEntry);
+        String sourceTag = PipelineMetrics.sourceTag(cleansedDataEntry.getSourceUri());
+
+        // Phase 1: read
+        Timer.Sample consolidate = pipelineMetrics.start();
+        Span consolidateSpan = pipelineTracing.startSpan("db.consolidate sections");
+        try (Tracer.SpanInScope ignored = pipelineTracing.inScope(consolidateSpan)) {
+            consolidatedSectionService.saveFromCleansedEntry(cleansedDataEntry);
+        } finally {
+            consolidateSpan.end();
+        }
+        pipelineMetrics.stop(consolidate, PipelineMetrics.STAGE_CONSOLIDATE, sourceTag, null, true);
 
         List<ConsolidatedEnrichedSection> savedSections = consolidatedSectionService.getSectionsFor(cleansedDataEntry);
+        // Sections chunked by an earlier finalization that failed after saving its chunks keep those chunks
+        Set<UUID> chunkedSections = contentChunkRepository.findSectionIdsWithChunks(
+                savedSections.stream().map(ConsolidatedEnrichedSection::getId).toList());
+        List<PendingChunk> pending = new ArrayList<>();
         for (ConsolidatedEnrichedSection section : savedSections) {
+            if (chunkedSections.contains(section.getId())) {
+                continue;
+            }
+            Timer.Sample chunking = pipelineMetrics.start();
             List<String> chunks = textChunkingService.chunkIfNeeded(section.getCleansedText());
+            pipelineMetrics.stop(chunking, PipelineMetrics.STAGE_CHUNK, sourceTag, null, true);
             for (String chunkText : chunks) {
-                try {
-                    // This call also needs to be rate-limited
-                    bedrockRateLimiter.acquire();
-                    float[] vector = bedrockEnrichmentService.generateEmbedding(chunkText);
-                    ContentChunk contentChunk = new ContentChunk();
-                    contentChunk.setConsolidatedEnrichedSection(section);
-                    contentChunk.setChunkText(chunkText);
-                    contentChunk.setSourceField(section.getSourceUri());
-                    contentChunk.setSectionPath(section.getSectionPath());
-                    contentChunk.setVector(vector);
-                    contentChunk.setCreatedAt(OffsetDateTime.now());
-                    contentChunk.setCreatedBy("EnrichmentPipelineService");
-                    contentChunkRepository.save(contentChunk);
-                } catch (Exception e) {
-                    logger.error("Error creating content chunk for item path {}: {}", section.getSectionPath(), e.getMessage(), e);
+                pending.add(new PendingChunk(section, chunkText));
+            }
+        }
+
+        // Phase 2: embed, outside any transaction; all chunk embeddings of the page are requested concurrently,
+        // within the Bedrock ceiling and rate limit
+        try {
+            pipelineExecution.forEachInScope(pending, chunk -> chunk.vector = embed(chunk, sourceTag, lane));
+        } catch (Exception e) {
+            // embed() handles its own failures, so this only happens on interruption (shutdown)
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.warn("Finalization of CleansedDataStore ID {} interrupted while embedding chunks", cleansedDataEntry.getId());
+            return false;
+        }
+
+        // Phase 3: write, only while this finalizer still holds the page; renewing also covers the writes below
+        if (!cleansedDataStoreRepository.renewFinalizationLease(cleansedDataEntry.getId(), owner)) {
+            logger.warn("Finalization claim of CleansedDataStore ID {} was lost while embedding; leaving the page to its new finalizer",
+                    cleansedDataEntry.getId());
+            return false;
+        }
+        List<ContentChunk> contentChunks = new ArrayList<>();
+        Set<String> indexedSources = new HashSet<>();
+        for (PendingChunk chunk : pending) {
+            if (chunk.vector != null) {
+                contentChunks.add(toContentChunk(chunk));
+                if (chunk.section.getSourceUri() != null) {
+                    indexedSources.add(chunk.section.getSourceUri());
                 }
             }
         }
+        List<ContentChunk> savedChunks = saveChunks(contentChunks, sourceTag);
+        if (savedChunks == null) {
+            // Not searchable yet: release the claim so that the page is finalized again
+            return false;
+        }
+        pipelineMetrics.countItems(PipelineMetrics.STAGE_CHUNK, sourceTag, "indexed", savedChunks.size());
+        searchResultCache.invalidateSources(indexedSources);
+        stageTimingService.record(cleansedDataEntry, StageTimingService.SEARCHABLE);
+        OffsetDateTime enqueuedAt = stageTimingService.recordedAt(cleansedDataEntry, StageTimingService.ENQUEUED);
+        if (enqueuedAt != null) {
+            pipelineMetrics.recordLaneLatency(lane.tag(), PipelineMetrics.MILESTONE_SEARCHABLE,
+                    Duration.between(enqueuedAt, OffsetDateTime.now()));
+        }
         updateFinalCleansedDataStatus(cleansedDataEntry);
+        return true;
+    }
+
+    private ContentChunk toContentChunk(PendingChunk chunk) {
+        ConsolidatedEnrichedSection section = chunk.section;
+        ContentChunk contentChunk = new ContentChunk();
+        contentChunk.setConsolidatedEnrichedSection(section);
+        contentChunk.setChunkText(chunk.text);
+        contentChunk.setSourceField(section.getSourceUri());
+        contentChunk.setSectionPath(section.getSectionPath());
+        contentChunk.setLocale(section.getLocale());
+        contentChunk.setCountry(section.getCountry());
+        contentChunk.setSectionModel(section.getSectionModel());
+        contentChunk.setEventType(section.getEventType());
+        contentChunk.setVector(chunk.vector);
+        contentChunk.setCreatedAt(OffsetDateTime.now());
+        contentChunk.setCreatedBy("EnrichmentPipelineService");
+        return contentChunk;
+    }
+
+    // One short transaction for the page's chunks (JDBC-batched, see hibernate.jdbc.batch_size); null on failure
+    private List<ContentChunk> saveChunks(List<ContentChunk> contentChunks, String sourceTag) {
+        if (contentChunks.isEmpty()) {
+            return List.of();
+        }
+        Timer.Sample persist = pipelineMetrics.start();
+        Span saveSpan = pipelineTracing.startSpan("db.save content_chunks");
+        try (Tracer.SpanInScope ignored = pipelineTracing.inScope(saveSpan)) {
+            List<ContentChunk> saved = transactionTemplate.execute(status -> {
+                List<ContentChunk> batch = contentChunkRepository.saveAll(contentChunks);
+                localVectorIndexService.indexAfterCommit(batch);
+                return batch;
+            });
+            pipelineMetrics.stop(persist, PipelineMetrics.STAGE_PERSIST, sourceTag, null, true);
+            return saved == null ? List.of() : saved;
+        } catch (Exception e) {
+            saveSpan.error(e);
+            logger.error("Error saving {} content chunks for section {}: {}", contentChunks.size(),
+                    contentChunks.get(0).getSectionPath(), e.getMessage(), e);
+            pipelineMetrics.stop(persist, PipelineMetrics.STAGE_PERSIST, sourceTag, null, false);
+            pipelineMetrics.countError(PipelineMetrics.STAGE_CHUNK, sourceTag, "ERROR_CHUNK_FAILED");
+            return null;
+        } finally {
+            saveSpan.end();
+        }
+    }
+
+    private static final class PendingChunk {
+        final ConsolidatedEnrichedSection section;
+        final String text;
+        float[] vector;
+
+        PendingChunk(ConsolidatedEnrichedSection section, String text) {
+            this.section = section;
+            this.text = text;
+        }
+    }
+
+    // Null when the embedding failed; the failure is logged and counted here. Interruption (shutdown) is rethrown
+    // instead, so that the page's finalization stops and is retried rather than indexing the page with chunks missing.
+    private float[] embed(PendingChunk chunk, String sourceTag, EnrichmentPriority lane) {
+        Timer.Sample embed = pipelineMetrics.start();
+        boolean embedded = false;
+        try {
+            float[] vector = pipelineExecution.call(PipelineExecution.Dependency.BEDROCK, lane,
+                    () -> bedrockEnrichmentService.generateEmbedding(chunk.text));
+            embedded = true;
+            return vector;
+        } catch (CancellationException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // The Bedrock client fails its call when interrupted
+                throw new CancellationException("Interrupted embedding a chunk of " + chunk.section.getSectionPath());
+            }
+            logger.error("Error creating content chunk for item path {}: {}", chunk.section.getSectionPath(), e.getMessage(), e);
+            pipelineMetrics.countError(PipelineMetrics.STAGE_CHUNK, sourceTag, "ERROR_CHUNK_FAILED");
+            return null;
+        } finally {
+            pipelineMetrics.stop(embed, PipelineMetrics.STAGE_EMBED, sourceTag, bedrockEnrichmentService.getEmbeddingModelId(), embedded);
+        }
     }
 
     private void updateFinalCleansedDataStatus(CleansedDataStore cleansedDataEntry) {
@@ -182,6 +446,8 @@ public class EnrichmentProcessor {
             finalStatus = "ENRICHMENT_FAILED";
         }
         cleansedDataEntry.setStatus(finalStatus);
+        // This copy was loaded before other listeners recorded their milestones; keep them on save
+        stageTimingService.mergeStored(cleansedDataEntry);
         cleansedDataStoreRepository.save(cleansedDataEntry);
         logger.info("Finished enrichment for CleansedDataStore ID: {}. Final status: {}", cleansedDataEntry.getId(), finalStatus);
     }
@@ -0,0 +1,99 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ConsolidatedEnrichedSection;
+import com.apple.springboot.model.FacetKey;
+import com.apple.springboot.repository.FacetCountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Global facet counts behind the refinement chips: how many current consolidated sections carry
+ * each tag, keyword, original field name and context facet. Updated as deltas in a short transaction of
+ * their own once the sections are committed, so the hot counter rows are not locked for a whole
+ * consolidation; a failed update leaves the counts off until the next {@link #rebuild()}.
+ */
+@Service
+public class FacetCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacetCountService.class);
+
+    public static final String SUPERSEDED_STATUS = "SUPERSEDED";
+
+    private final FacetCountRepository facetCountRepository;
+
+    public FacetCountService(FacetCountRepository facetCountRepository) {
+        this.facetCountRepository = facetCountRepository;
+    }
+
+    /**
+     * Applies +1 for every facet of {@code added} and -1 for every facet of {@code removed}, committed
+     * independently of any surrounding transaction.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordChanges(Collection<ConsolidatedEnrichedSection> added, Collection<ConsolidatedEnrichedSection> removed) {
+        SortedMap<FacetKey, Long> deltas = new TreeMap<>();
+        for (ConsolidatedEnrichedSection section : added) {
+            facetsOf(section).forEach(facet -> deltas.merge(facet, 1L, Long::sum));
+        }
+        for (ConsolidatedEnrichedSection section : removed) {
+            facetsOf(section).forEach(facet -> deltas.merge(facet, -1L, Long::sum));
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        facetCountRepository.applyDeltas(deltas);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<FacetKey, Long> countsFor(Collection<FacetKey> facets) {
+        return facetCountRepository.findCounts(facets);
+    }
+
+    @Transactional
+    public int rebuild() {
+        int rows = facetCountRepository.rebuild();
+        logger.info("Rebuilt facet counts: {} facet values", rows);
+        return rows;
+    }
+
+    /**
+     * Distinct facets of one section, typed like the refinement chips. Must stay in line with the
+     * rebuild query in FacetCountRepository.
+     */
+    static Set<FacetKey> facetsOf(ConsolidatedEnrichedSection section) {
+        Set<FacetKey> facets = new LinkedHashSet<>();
+        addFacet(facets, "original_field_name", section.getOriginalFieldName());
+        if (section.getTags() != null) {
+            section.getTags().forEach(tag -> addFacet(facets, "Tag", tag));
+        }
+        if (section.getKeywords() != null) {
+            section.getKeywords().forEach(keyword -> addFacet(facets, "Keyword", keyword));
+        }
+        Map<String, Object> context = section.getContext();
+        if (context != null) {
+            if (context.get("facets") instanceof Map<?, ?> sectionFacets) {
+                addFacet(facets, "Context:facets.sectionKey", sectionFacets.get("sectionKey"));
+                addFacet(facets, "Context:facets.eventType", sectionFacets.get("eventType"));
+            }
+            if (context.get("envelope") instanceof Map<?, ?> envelope) {
+                addFacet(facets, "Context:envelope.locale", envelope.get("locale"));
+                addFacet(facets, "Context:envelope.country", envelope.get("country"));
+            }
+        }
+        return facets;
+    }
+
+    private static void addFacet(Set<FacetKey> facets, String type, Object value) {
+        if (value instanceof String text && !text.isBlank()) {
+            facets.add(new FacetKey(type, text));
+        }
+    }
+}
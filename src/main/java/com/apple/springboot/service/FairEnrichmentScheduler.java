@@ -0,0 +1,356 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.model.EnrichmentMessage;
+import com.apple.springboot.model.EnrichmentPriority;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import com.apple.springboot.repository.EnrichedContentElementRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fair dispatch of enrichment messages across pages. Instead of sending every item of a page to SQS back to
+ * back, pages are registered here and one dispatcher sends their items round-robin, one item per page per
+ * turn, keeping at most app.enrichment.fair.window items of each page in flight (sent but not yet processed).
+ * A 30k-item page therefore never has more than one window of messages in the queue, and a small page that
+ * arrives behind it waits for at most one window per active page. HIGH pages are served before NORMAL ones.
+ * <p>
+ * Completions are reported by EnrichmentProcessor on this instance; pages whose window stays full are
+ * reconciled against enriched_content_elements every app.enrichment.fair.reconcile-ms, which also covers
+ * consumers on other instances. An item counts as dispatched once SQS has accepted it; a failed send is retried
+ * after app.enrichment.fair.send-retry-ms, while an item SQS can never accept (see SqsService.SendResult) is
+ * recorded as an ERROR_SQS_REJECTED element instead, so that its page still completes. The number of dispatched
+ * items is kept in context.dispatchedCount (every window and at the end), so a page cut short by a restart resumes
+ * from there; items sent after the last recorded count are sent again.
+ * <p>
+ * Each instance owns the pages it dispatches (context.dispatchOwner) and renews their lease every
+ * app.enrichment.fair.heartbeat-ms; a page whose owner has not renewed it for app.enrichment.fair.lease-ms is
+ * resumed by whichever instance claims it first (see EnrichmentPipelineService.resumeDispatch), and the old owner
+ * drops it when its next renewal fails.
+ */
+@Service
+public class FairEnrichmentScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FairEnrichmentScheduler.class);
+
+    private final SqsService sqsService;
+    private final EnrichedContentElementRepository enrichedContentElementRepository;
+    private final CleansedDataStoreRepository cleansedDataStoreRepository;
+    private final EnrichmentPersistenceService persistenceService;
+    private final PipelineExecution pipelineExecution;
+    private final PipelineMetrics pipelineMetrics;
+    private final int window;
+    private final long reconcileMs;
+    private final long sendRetryMs;
+    private final Duration lease;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Pages still dispatching, in round-robin order per lane; guarded by lock
+    private final Map<EnrichmentPriority, Deque<PageDispatch>> rotation = new EnumMap<>(EnrichmentPriority.class);
+    private final Map<UUID, PageDispatch> pages = new HashMap<>();
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public FairEnrichmentScheduler(SqsService sqsService,
+                                   EnrichedContentElementRepository enrichedContentElementRepository,
+                                   CleansedDataStoreRepository cleansedDataStoreRepository,
+                                   EnrichmentPersistenceService persistenceService,
+                                   PipelineExecution pipelineExecution,
+                                   PipelineMetrics pipelineMetrics,
+                                   @Value("${app.enrichment.fair.window:20}") int window,
+                                   @Value("${app.enrichment.fair.reconcile-ms:5000}") long reconcileMs,
+                                   @Value("${app.enrichment.fair.send-retry-ms:1000}") long sendRetryMs,
+                                   @Value("${app.enrichment.fair.lease-ms:120000}") long leaseMs) {
+        if (window < 1) {
+            throw new IllegalArgumentException("app.enrichment.fair.window must be at least 1");
+        }
+        this.sqsService = sqsService;
+        this.enrichedContentElementRepository = enrichedContentElementRepository;
+        this.cleansedDataStoreRepository = cleansedDataStoreRepository;
+        this.persistenceService = persistenceService;
+        this.pipelineExecution = pipelineExecution;
+        this.pipelineMetrics = pipelineMetrics;
+        this.window = window;
+        this.reconcileMs = reconcileMs;
+        this.sendRetryMs = sendRetryMs;
+        this.lease = Duration.ofMillis(leaseMs);
+        for (EnrichmentPriority lane : EnrichmentPriority.values()) {
+            rotation.put(lane, new ArrayDeque<>());
+        }
+    }
+
+    private static final class PageDispatch {
+        final UUID id;
+        final EnrichmentPriority priority;
+        final List<CleansedItemDetail> items;
+        final Map<String, MessageAttributeValue> traceAttributes;
+        int dispatched;
+        long completed;
+        long lastReconciledAt;
+
+        PageDispatch(UUID id, EnrichmentPriority priority, List<CleansedItemDetail> items, int dispatched,
+                     Map<String, MessageAttributeValue> traceAttributes) {
+            this.id = id;
+            this.priority = priority;
+            this.items = items;
+            this.dispatched = dispatched;
+            this.traceAttributes = traceAttributes;
+        }
+
+        long inFlight() {
+            return dispatched - completed;
+        }
+    }
+
+    private record Dispatch(PageDispatch page, CleansedItemDetail item) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        dispatcher = pipelineExecution.startLoop("enrichment-dispatcher", this::dispatchLoop);
+    }
+
+    /**
+     * Identifies this instance as the owner (context.dispatchOwner) of the pages it dispatches.
+     */
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * How long a page's dispatch lease lasts without renewal before another instance may resume it.
+     */
+    public Duration dispatchLease() {
+        return lease;
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    /**
+     * Registers the non-blank items of a page, in a stable order, for dispatch; the first
+     * {@code alreadyDispatched} were sent before (when resuming after a restart). The current trace context is
+     * carried on every message of the page.
+     */
+    public void schedule(UUID cleansedDataStoreId, List<CleansedItemDetail> items, int alreadyDispatched, EnrichmentPriority priority) {
+        if (alreadyDispatched >= items.size()) {
+            return;
+        }
+        PageDispatch page = new PageDispatch(cleansedDataStoreId, priority, List.copyOf(items), alreadyDispatched,
+                sqsService.traceAttributes());
+        lock.lock();
+        try {
+            if (pages.putIfAbsent(cleansedDataStoreId, page) != null) {
+                logger.warn("CleansedDataStore ID {} is already being dispatched; ignoring the second registration", cleansedDataStoreId);
+                return;
+            }
+            rotation.get(priority).addLast(page);
+            pipelineMetrics.setPagesDispatching(pages.size());
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Dispatching {} items of CleansedDataStore ID {} ({} priority, window {})",
+                items.size() - alreadyDispatched, cleansedDataStoreId, priority, window);
+    }
+
+    /**
+     * Frees a window slot of the page once one of its items has been processed (successfully or not).
+     */
+    public void itemCompleted(UUID cleansedDataStoreId) {
+        lock.lock();
+        try {
+            PageDispatch page = pages.get(cleansedDataStoreId);
+            if (page != null) {
+                page.completed++;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Renews the lease of every page this instance is dispatching; pages another instance has taken over (the
+     * lease expired, e.g. during a long pause) are dropped here so they are not dispatched twice.
+     */
+    @Scheduled(fixedDelayString = "${app.enrichment.fair.heartbeat-ms:30000}")
+    public void renewLeases() {
+        List<PageDispatch> active;
+        lock.lock();
+        try {
+            active = List.copyOf(pages.values());
+        } finally {
+            lock.unlock();
+        }
+        for (PageDispatch page : active) {
+            if (!cleansedDataStoreRepository.renewDispatchLease(page.id, instanceId)) {
+                logger.warn("Dispatch of CleansedDataStore ID {} was taken over by another instance; stopping here", page.id);
+                remove(page);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                dispatchNext();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Enrichment dispatcher error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // Sends the next item, if any window has room; after a failed send, waits send-retry-ms before the next attempt
+    void dispatchNext() throws InterruptedException {
+        Dispatch next = takeNext();
+        if (next != null && !send(next)) {
+            TimeUnit.MILLISECONDS.sleep(sendRetryMs);
+        }
+    }
+
+    // Next item in round-robin order, HIGH lane first; null after waiting or reconciling when no window has room.
+    // The item stays undispatched until send() succeeds; only the dispatcher thread takes items, so it is not
+    // taken twice meanwhile.
+    private Dispatch takeNext() throws InterruptedException {
+        List<PageDispatch> due;
+        lock.lock();
+        try {
+            for (EnrichmentPriority lane : EnrichmentPriority.values()) {
+                Deque<PageDispatch> queue = rotation.get(lane);
+                for (int i = queue.size(); i > 0; i--) {
+                    PageDispatch page = queue.pollFirst();
+                    if (page.inFlight() >= window) {
+                        queue.addLast(page);
+                        continue;
+                    }
+                    queue.addLast(page);
+                    return new Dispatch(page, page.items.get(page.dispatched));
+                }
+            }
+            long now = System.currentTimeMillis();
+            due = pages.values().stream()
+                    .filter(page -> now - page.lastReconciledAt >= reconcileMs)
+                    .toList();
+            if (due.isEmpty()) {
+                changed.await(reconcileMs, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        reconcile(due);
+        return null;
+    }
+
+    // Catches up on items processed by other instances (or whose completion was missed here)
+    private void reconcile(List<PageDispatch> due) {
+        for (PageDispatch page : due) {
+            long processed = enrichedContentElementRepository.countByCleansedDataId(page.id);
+            lock.lock();
+            try {
+                page.completed = Math.max(page.completed, processed);
+                page.lastReconciledAt = System.currentTimeMillis();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Counts the item as dispatched once SQS has accepted it, or once its rejection is recorded (it is then also
+    // complete); false leaves it to be sent again
+    private boolean send(Dispatch dispatch) {
+        PageDispatch page = dispatch.page();
+        EnrichmentMessage message = new EnrichmentMessage(dispatch.item(), page.id, page.priority);
+        SqsService.SendResult result = sqsService.sendMessage(message, page.priority, page.traceAttributes);
+        if (result == SqsService.SendResult.FAILED
+                || result == SqsService.SendResult.REJECTED && !recordRejected(page, dispatch.item())) {
+            logger.warn("Could not send item {} of CleansedDataStore ID {}; retrying in {} ms",
+                    dispatch.item().sourcePath, page.id, sendRetryMs);
+            return false;
+        }
+        int dispatched;
+        boolean last;
+        lock.lock();
+        try {
+            dispatched = ++page.dispatched;
+            if (result == SqsService.SendResult.REJECTED) {
+                page.completed++;
+            }
+            last = dispatched == page.items.size();
+        } finally {
+            lock.unlock();
+        }
+        if (last) {
+            remove(page);
+        }
+        if (last || dispatched % window == 0) {
+            cleansedDataStoreRepository.recordDispatchedCount(page.id, dispatched);
+        }
+        if (last) {
+            logger.info("Finished dispatching {} items of CleansedDataStore ID {}", page.items.size(), page.id);
+        }
+        return true;
+    }
+
+    // Retrying a message SQS has rejected would stall every page behind it; the item is failed instead, like one
+    // Bedrock could not enrich. False if that could not be recorded either.
+    private boolean recordRejected(PageDispatch page, CleansedItemDetail item) {
+        try {
+            CleansedDataStore cleansedDataEntry = cleansedDataStoreRepository.findById(page.id).orElse(null);
+            if (cleansedDataEntry == null) {
+                logger.error("Could not find CleansedDataStore with ID: {}. Skipping rejected item {}.", page.id, item.sourcePath);
+                return true;
+            }
+            persistenceService.saveErrorEnrichedElement(item, cleansedDataEntry, "ERROR_SQS_REJECTED",
+                    "SQS rejected the enrichment message of this item");
+            logger.error("SQS rejected item {} of CleansedDataStore ID {}; recorded it as ERROR_SQS_REJECTED",
+                    item.sourcePath, page.id);
+            return true;
+        } catch (Exception e) {
+            logger.error("Could not record rejected item {} of CleansedDataStore ID {}: {}", item.sourcePath, page.id, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void remove(PageDispatch page) {
+        lock.lock();
+        try {
+            if (pages.remove(page.id, page)) {
+                rotation.get(page.priority).remove(page);
+                pipelineMetrics.setPagesDispatching(pages.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.repository.ConsolidatedEnrichedSectionRepository;
+import com.apple.springboot.repository.ContentChunkRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+/**
+ * Fills the denormalized filter columns (locale, country, section_model, event_type) for rows written
+ * before they existed: sections first, then chunks copy from their sections. Keyset batches, one
+ * short transaction each; safe to re-run.
+ */
+@Service
+public class FilterColumnBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilterColumnBackfillService.class);
+
+    private final ConsolidatedEnrichedSectionRepository sectionRepository;
+    private final ContentChunkRepository contentChunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService backfillExecutor;
+    private final boolean backfillOnStartup;
+    private final int batchSize;
+
+    public FilterColumnBackfillService(ConsolidatedEnrichedSectionRepository sectionRepository,
+                                       ContentChunkRepository contentChunkRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.search.filter-columns.backfill-on-startup:true}") boolean backfillOnStartup,
+                                       @Value("${app.search.filter-columns.backfill-batch-size:1000}") int batchSize) {
+        this.sectionRepository = sectionRepository;
+        this.contentChunkRepository = contentChunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillOnStartup = backfillOnStartup;
+        this.batchSize = batchSize;
+        this.backfillExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("filter-column-backfill-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfillExecutor.submit(this::backfill);
+        }
+    }
+
+    public void backfill() {
+        long sectionBatches = run("consolidated_enriched_sections", sectionRepository::backfillFilterColumns);
+        long chunkBatches = run("content_chunks", contentChunkRepository::backfillFilterColumns);
+        logger.info("Filter column backfill finished: {} section batches, {} chunk batches of up to {} rows",
+                sectionBatches, chunkBatches, batchSize);
+    }
+
+    private long run(String table, BiFunction<UUID, Integer, UUID> batch) {
+        long batches = 0;
+        UUID after = null;
+        do {
+            UUID from = after;
+            after = transactionTemplate.execute(status -> batch.apply(from, batchSize));
+            if (after != null) {
+                batches++;
+                logger.debug("Backfilled filter columns of {} up to id {}", table, after);
+            }
+        } while (after != null && !Thread.currentThread().isInterrupted());
+        return batches;
+    }
+}
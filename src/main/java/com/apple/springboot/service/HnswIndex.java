@@ -0,0 +1,331 @@
+package com.apple.springboot.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW graph for cosine distance. Vectors are normalized on insert and stored off-heap in
+ * fixed-size direct buffer segments, so the heap only holds ids and the neighbor lists. Content chunks are
+ * never updated in place; a removed chunk (e.g. of a superseded section) becomes a tombstone that searches
+ * still traverse but never return, widening their candidate list to make up for it. Inserts and removals are
+ * serialized; searches run concurrently.
+ */
+final class HnswIndex {
+
+    private static final int SEGMENT_VECTORS = 4096;
+
+    record Neighbor(UUID id, double distance) {
+    }
+
+    private record Candidate(int node, double distance) {
+    }
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+    private static final Comparator<Candidate> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private final Map<UUID, Integer> nodesById = new HashMap<>();
+    // Tombstoned nodes, and every removed id so that a late add (e.g. from the initial build) does not revive it
+    private final BitSet deleted = new BitSet();
+    private final Set<UUID> removedIds = new HashSet<>();
+    private UUID[] ids = new UUID[SEGMENT_VECTORS];
+    // neighbors[node][level] = adjacent nodes on that layer
+    private int[][][] neighbors = new int[SEGMENT_VECTORS][][];
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nodes removed but still in the graph.
+     */
+    int tombstones() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) segments.size() * SEGMENT_VECTORS * dimension * Float.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector; returns false if the id is already indexed or was removed.
+     */
+    boolean add(UUID id, float[] vector) {
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (nodesById.containsKey(id) || removedIds.contains(id)) {
+                return false;
+            }
+            int node = store(id, normalized);
+            int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            neighbors[node] = new int[level + 1][];
+            Arrays.fill(neighbors[node], new int[0]);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return true;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Candidate> candidates = searchLayer(normalized, current, efConstruction, l);
+                int keep = Math.min(m, candidates.size());
+                int[] selected = new int[keep];
+                for (int i = 0; i < keep; i++) {
+                    selected[i] = candidates.get(i).node();
+                }
+                neighbors[node][l] = selected;
+                for (int neighbor : selected) {
+                    connect(neighbor, node, l);
+                }
+                current = candidates.get(0).node();
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tombstones the vector of {@code id}; it is never returned again, nor re-added. Returns false if the id
+     * was not indexed (it is still kept out of the index).
+     */
+    boolean remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            removedIds.add(id);
+            Integer node = nodesById.get(id);
+            if (node == null || deleted.get(node)) {
+                return false;
+            }
+            deleted.set(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate {@code k} nearest live neighbors, nearest first, with distance = 1 - cosine similarity.
+     * When tombstones take up part of the candidate list the search is repeated with twice the width, until
+     * it yields {@code k} live neighbors or covers the whole graph.
+     */
+    List<Neighbor> search(float[] query, int k, int ef) {
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            int width = Math.max(ef, k);
+            while (true) {
+                List<Candidate> candidates = searchLayer(normalized, current, width, 0);
+                List<Neighbor> result = new ArrayList<>(Math.min(k, candidates.size()));
+                for (int i = 0; i < candidates.size() && result.size() < k; i++) {
+                    Candidate candidate = candidates.get(i);
+                    if (!deleted.get(candidate.node())) {
+                        result.add(new Neighbor(ids[candidate.node()], candidate.distance()));
+                    }
+                }
+                if (result.size() >= k || candidates.size() < width || width >= size) {
+                    return result;
+                }
+                width = (int) Math.min(size, 2L * width);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int store(UUID id, float[] vector) {
+        int node = size;
+        if (node == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            neighbors = Arrays.copyOf(neighbors, neighbors.length * 2);
+        }
+        if (node / SEGMENT_VECTORS == segments.size()) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_VECTORS * dimension * Float.BYTES)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer());
+        }
+        segments.get(node / SEGMENT_VECTORS).put((node % SEGMENT_VECTORS) * dimension, vector);
+        ids[node] = id;
+        nodesById.put(id, node);
+        size++;
+        return node;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        double currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors[current][level]) {
+                double d = distance(query, neighbor);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer; returns up to {@code ef} nodes sorted nearest first.
+     */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> best = new PriorityQueue<>(FARTHEST_FIRST);
+        Candidate first = new Candidate(start, distance(query, start));
+        visited.set(start);
+        frontier.add(first);
+        best.add(first);
+
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (closest.distance() > best.peek().distance() && best.size() >= ef) {
+                break;
+            }
+            int[][] layers = neighbors[closest.node()];
+            if (level >= layers.length) {
+                continue;
+            }
+            for (int neighbor : layers[level]) {
+                if (visited.get(neighbor)) continue;
+                visited.set(neighbor);
+                double d = distance(query, neighbor);
+                if (best.size() < ef || d < best.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbor, d);
+                    frontier.add(candidate);
+                    best.add(candidate);
+                    if (best.size() > ef) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    // Adds an edge node -> added, pruning node's list to its closest maxM neighbors when full
+    private void connect(int node, int added, int level) {
+        int[] current = neighbors[node][level];
+        int maxM = level == 0 ? maxM0 : m;
+        if (current.length < maxM) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = added;
+            neighbors[node][level] = grown;
+            return;
+        }
+        float[] base = vector(node);
+        List<Candidate> all = new ArrayList<>(current.length + 1);
+        for (int neighbor : current) {
+            all.add(new Candidate(neighbor, distance(base, neighbor)));
+        }
+        all.add(new Candidate(added, distance(base, added)));
+        all.sort(NEAREST_FIRST);
+        int[] pruned = new int[maxM];
+        for (int i = 0; i < maxM; i++) {
+            pruned[i] = all.get(i).node();
+        }
+        neighbors[node][level] = pruned;
+    }
+
+    private float[] vector(int node) {
+        float[] vector = new float[dimension];
+        segments.get(node / SEGMENT_VECTORS).get((node % SEGMENT_VECTORS) * dimension, vector);
+        return vector;
+    }
+
+    private double distance(float[] query, int node) {
+        FloatBuffer segment = segments.get(node / SEGMENT_VECTORS);
+        int offset = (node % SEGMENT_VECTORS) * dimension;
+        double dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * segment.get(offset + i);
+        }
+        return 1 - dot;
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + dimension + " but got " + vector.length);
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = norm == 0 ? 0 : (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,153 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.model.SearchRequest;
+import com.apple.springboot.repository.ContentChunkRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Hybrid search: runs the full-text (stored tsvector) query and the vector query concurrently and
+ * fuses the two rankings with reciprocal rank fusion, score(section) = sum over branches of 1 / (k + rank).
+ * Lexical matching catches exact SKUs and product names that embeddings blur.
+ */
+@Service
+public class HybridSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HybridSearchService.class);
+
+    public record HybridSearchResult(List<ChunkSearchResult> results, long vectorMillis, long lexicalMillis) {
+    }
+
+    private record Timed<T>(T value, long millis) {
+    }
+
+    private final VectorSearchService vectorSearchService;
+    private final ContentChunkRepository contentChunkRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService branchExecutor;
+    private final int rrfK;
+    private final int branchDepth;
+
+    public HybridSearchService(VectorSearchService vectorSearchService,
+                               ContentChunkRepository contentChunkRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.search.hybrid.rrf-k:60}") int rrfK,
+                               @Value("${app.search.hybrid.branch-depth:50}") int branchDepth,
+                               @Value("${app.search.hybrid.threads:16}") int threads) {
+        this.vectorSearchService = vectorSearchService;
+        this.contentChunkRepository = contentChunkRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rrfK = rrfK;
+        this.branchDepth = branchDepth;
+        this.branchExecutor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("hybrid-search-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        branchExecutor.shutdown();
+    }
+
+    public HybridSearchResult search(SearchRequest request, int requestedLimit) throws IOException {
+        // The fused page is capped like any other page, and so is how deep each branch reads for it
+        int limit = vectorSearchService.pageLimit(requestedLimit);
+        int depth = Math.max(branchDepth, limit);
+        String fieldName = (request.getOriginal_field_name() != null && !request.getOriginal_field_name().isEmpty())
+                ? request.getOriginal_field_name().toLowerCase() : null;
+        String[] tags = (request.getTags() != null && !request.getTags().isEmpty()) ? request.getTags().toArray(new String[0]) : null;
+        String[] keywords = (request.getKeywords() != null && !request.getKeywords().isEmpty()) ? request.getKeywords().toArray(new String[0]) : null;
+
+        CompletableFuture<Timed<List<ChunkSearchResult>>> vectorBranch = CompletableFuture.supplyAsync(() -> timed(() -> {
+            try {
+                return vectorSearchService.search(request.getQuery(), request.getOriginal_field_name(), depth,
+                        request.getTags(), request.getKeywords(), request.getContext(), null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), branchExecutor);
+        CompletableFuture<Timed<List<ChunkSearchResult>>> lexicalBranch = CompletableFuture.supplyAsync(() -> timed(() ->
+                readOnlyTransaction.execute(status -> contentChunkRepository.findLexicalProjections(
+                        request.getQuery(), fieldName, tags, keywords, request.getContext(), depth))), branchExecutor);
+
+        Timed<List<ChunkSearchResult>> vector;
+        Timed<List<ChunkSearchResult>> lexical;
+        try {
+            vector = vectorBranch.join();
+            lexical = lexicalBranch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            // e.g. IllegalArgumentException for an unsupported context filter, reported as 400
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        logger.debug("Hybrid search branches: vector={} hits in {} ms, lexical={} hits in {} ms",
+                vector.value().size(), vector.millis(), lexical.value().size(), lexical.millis());
+
+        return new HybridSearchResult(fuse(vector.value(), lexical.value(), limit), vector.millis(), lexical.millis());
+    }
+
+    /**
+     * Reciprocal rank fusion keyed by section (the vector branch can return several chunks of one
+     * section; only its best-ranked chunk counts). The vector hit is kept as the representative row
+     * when a section appears in both branches, since it carries a real distance.
+     */
+    List<ChunkSearchResult> fuse(List<ChunkSearchResult> vectorHits, List<ChunkSearchResult> lexicalHits, int limit) {
+        Map<UUID, ChunkSearchResult> representatives = new LinkedHashMap<>();
+        Map<UUID, Double> scores = new HashMap<>();
+        addRanking(vectorHits, representatives, scores);
+        addRanking(lexicalHits, representatives, scores);
+
+        List<UUID> ranked = new ArrayList<>(representatives.keySet());
+        ranked.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        List<ChunkSearchResult> fused = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (UUID sectionId : ranked) {
+            if (fused.size() == limit) break;
+            fused.add(representatives.get(sectionId));
+        }
+        return fused;
+    }
+
+    private void addRanking(List<ChunkSearchResult> hits, Map<UUID, ChunkSearchResult> representatives, Map<UUID, Double> scores) {
+        Map<UUID, Boolean> seen = new HashMap<>();
+        int rank = 0;
+        for (ChunkSearchResult hit : hits) {
+            UUID sectionId = hit.getSectionId();
+            if (sectionId == null || seen.putIfAbsent(sectionId, Boolean.TRUE) != null) continue;
+            rank++;
+            representatives.putIfAbsent(sectionId, hit);
+            scores.merge(sectionId, 1.0 / (rrfK + rank), Double::sum);
+        }
+    }
+
+    private static <T> Timed<T> timed(Supplier<T> branch) {
+        long start = System.nanoTime();
+        T value = branch.get();
+        return new Timed<>(value, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,275 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.model.ConsolidatedEnrichedSection;
+import com.apple.springboot.model.ContentChunk;
+import com.apple.springboot.repository.ContentChunkRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Optional in-JVM HNSW index per hot locale (app.search.local-index.*). Requests whose only filter is
+ * one of those locales are answered from memory and hydrated by chunk id; every other request, and
+ * every request before a locale's index has finished building, goes to the pgvector path.
+ */
+@Service
+public class LocalVectorIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalVectorIndexService.class);
+
+    private static final int DIMENSION = 1024;
+
+    private final ContentChunkRepository contentChunkRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService buildExecutor;
+    private final boolean enabled;
+    private final Set<String> locales;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int buildBatchSize;
+
+    private final Map<String, HnswIndex> indexes = new ConcurrentHashMap<>();
+    // Locales whose initial build has completed; only these are queried
+    private final Set<String> readyLocales = ConcurrentHashMap.newKeySet();
+
+    public LocalVectorIndexService(ContentChunkRepository contentChunkRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.search.local-index.enabled:false}") boolean enabled,
+                                   @Value("${app.search.local-index.locales:}") String locales,
+                                   @Value("${app.search.local-index.m:16}") int m,
+                                   @Value("${app.search.local-index.ef-construction:100}") int efConstruction,
+                                   @Value("${app.search.local-index.ef-search:64}") int efSearch,
+                                   @Value("${app.search.local-index.build-batch-size:2000}") int buildBatchSize) {
+        this.contentChunkRepository = contentChunkRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.locales = Arrays.stream(locales.split(","))
+                .map(String::trim)
+                .filter(locale -> !locale.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.buildBatchSize = buildBatchSize;
+        this.buildExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("local-vector-index-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        for (String locale : locales) {
+            // Created up front so chunks written during the build are not lost; add() ignores duplicates
+            indexes.put(locale, new HnswIndex(DIMENSION, m, efConstruction));
+            buildExecutor.submit(() -> build(locale));
+        }
+    }
+
+    private void build(String locale) {
+        HnswIndex index = indexes.get(locale);
+        long start = System.nanoTime();
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    contentChunkRepository.forEachVectorInLocale(locale, buildBatchSize, index::add));
+            readyLocales.add(locale);
+            logger.info("Built local vector index for locale {}: {} vectors, {} MB off-heap, in {} ms",
+                    locale, index.size(), index.offHeapBytes() / (1024 * 1024), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to build local vector index for locale {}; its searches stay on pgvector: {}", locale, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds newly written chunks of hot locales once the surrounding transaction commits, so rolled
+     * back chunks never become searchable.
+     */
+    public void indexAfterCommit(Collection<ContentChunk> chunks) {
+        if (!enabled || indexes.isEmpty() || chunks.isEmpty()) {
+            return;
+        }
+        List<ContentChunk> snapshot = new ArrayList<>(chunks);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(snapshot);
+                }
+            });
+        } else {
+            index(snapshot);
+        }
+    }
+
+    /**
+     * Tombstones the chunks of superseded sections of hot locales once the surrounding transaction commits,
+     * so their old versions stop showing up in local searches.
+     */
+    public void removeAfterCommit(Collection<ConsolidatedEnrichedSection> superseded) {
+        if (!enabled || indexes.isEmpty() || superseded.isEmpty()) {
+            return;
+        }
+        Map<String, List<UUID>> sectionIdsByLocale = new HashMap<>();
+        for (ConsolidatedEnrichedSection section : superseded) {
+            String locale = localeOf(section);
+            if (locale != null && indexes.containsKey(locale) && section.getId() != null) {
+                sectionIdsByLocale.computeIfAbsent(locale, l -> new ArrayList<>()).add(section.getId());
+            }
+        }
+        if (sectionIdsByLocale.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(sectionIdsByLocale);
+                }
+            });
+        } else {
+            remove(sectionIdsByLocale);
+        }
+    }
+
+    private void remove(Map<String, List<UUID>> sectionIdsByLocale) {
+        sectionIdsByLocale.forEach((locale, sectionIds) -> {
+            try {
+                HnswIndex index = indexes.get(locale);
+                readOnlyTransaction.executeWithoutResult(status ->
+                        contentChunkRepository.findIdsBySectionIds(sectionIds).forEach(index::remove));
+            } catch (Exception e) {
+                logger.error("Failed to remove {} superseded sections from the local vector index for locale {}: {}",
+                        sectionIds.size(), locale, e.getMessage(), e);
+            }
+        });
+    }
+
+    private void index(List<ContentChunk> chunks) {
+        for (ContentChunk chunk : chunks) {
+            String locale = localeOf(chunk.getConsolidatedEnrichedSection());
+            HnswIndex index = locale != null ? indexes.get(locale) : null;
+            if (index != null && chunk.getId() != null && chunk.getVector() != null) {
+                index.add(chunk.getId(), chunk.getVector());
+            }
+        }
+    }
+
+    /**
+     * Answers the search from the in-process index, or returns null if the request must go to SQL:
+     * the index is disabled or still building, or the request filters on anything but one hot locale.
+     * Must be called inside a transaction (hits are hydrated from the database).
+     */
+    public List<ChunkSearchResult> search(float[] queryVector, String originalFieldName, String[] tags, String[] keywords,
+                                          Map<String, Object> contextMap, Double threshold, int limit) {
+        if (!enabled || originalFieldName != null || tags != null || keywords != null) {
+            return null;
+        }
+        String locale = soleLocaleFilter(contextMap);
+        if (locale == null || !readyLocales.contains(locale)) {
+            return null;
+        }
+
+        // Over-fetch so hits dropped by the threshold or missing at hydration do not leave the page short
+        List<HnswIndex.Neighbor> neighbors = indexes.get(locale).search(queryVector, overFetch(limit), efSearch);
+        Map<UUID, Double> distances = new LinkedHashMap<>();
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            if (threshold == null || neighbor.distance() < threshold) {
+                distances.put(neighbor.id(), neighbor.distance());
+            }
+        }
+
+        Map<UUID, ChunkSearchResult> hydrated = new HashMap<>();
+        for (ChunkSearchResult result : contentChunkRepository.findProjectionsByChunkIds(new ArrayList<>(distances.keySet()))) {
+            hydrated.put(result.getChunkId(), result);
+        }
+        List<ChunkSearchResult> results = new ArrayList<>(hydrated.size());
+        for (Map.Entry<UUID, Double> entry : distances.entrySet()) {
+            ChunkSearchResult result = hydrated.get(entry.getKey());
+            if (result != null) {
+                result.setDistance(entry.getValue());
+                results.add(result);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private static int overFetch(int limit) {
+        return limit > Integer.MAX_VALUE / 2 ? limit : limit * 2;
+    }
+
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        indexes.forEach((locale, index) -> {
+            int size = index.size();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("ready", readyLocales.contains(locale));
+            entry.put("vectors", size);
+            entry.put("tombstones", index.tombstones());
+            entry.put("offHeapBytes", index.offHeapBytes());
+            entry.put("offHeapBytesPerVector", size == 0 ? null : index.offHeapBytes() / size);
+            stats.put(locale, entry);
+        });
+        return stats;
+    }
+
+    // Matches a context filter of exactly {"envelope": {"locale": [<one value>]}}
+    private static String soleLocaleFilter(Map<String, Object> contextMap) {
+        if (contextMap == null || contextMap.size() != 1 || !(contextMap.get("envelope") instanceof Map<?, ?> envelope)) {
+            return null;
+        }
+        if (envelope.size() != 1) {
+            return null;
+        }
+        Object value = envelope.get("locale");
+        if (value instanceof List<?> list && list.size() == 1) {
+            value = list.get(0);
+        }
+        return value instanceof String locale ? locale : null;
+    }
+
+    private static String localeOf(ConsolidatedEnrichedSection section) {
+        if (section == null || section.getContext() == null) {
+            return null;
+        }
+        Object envelope = section.getContext().get("envelope");
+        if (envelope instanceof Map<?, ?> map && map.get("locale") instanceof String locale) {
+            return locale;
+        }
+        return null;
+    }
+}
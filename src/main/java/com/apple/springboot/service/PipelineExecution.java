@@ -0,0 +1,239 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.EnrichmentPriority;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Execution model of the ingest → enrich → index pipeline.
+ * <ul>
+ *   <li>With app.pipeline.virtual-threads (the default) background work, queue pollers and per-page fan-out
+ *       run on virtual threads, so a task blocked on Bedrock, S3 or a permit costs no platform thread.
+ *       Without it work runs on a small platform pool and per-page work runs one item at a time, as before.</li>
+ *   <li>Each external dependency has its own ceiling (app.pipeline.max-concurrent.*), a fair semaphore held only
+ *       around the call itself; Bedrock calls also take a permit from the shared rate limiter. Callers make these
+ *       calls outside transactions, so waiting for a permit never holds a JDBC connection; the database itself
+ *       is bounded by the connection pool. A call made inside a transaction is counted
+ *       ({@code pipeline.remote.calls.in.transaction}) and logged, or rejected with
+ *       app.pipeline.fail-on-remote-call-in-transaction.</li>
+ *   <li>app.bedrock.rate-limit.high-priority-share of the Bedrock rate budget and ceiling is reserved for the
+ *       HIGH lane: NORMAL calls are limited to the rest, HIGH calls may use all of it.</li>
+ *   <li>{@link #forEachInScope} is the per-page scope: it forks one task per item, joins them all before
+ *       returning, and cancels the rest if one fails.</li>
+ * </ul>
+ */
+@Service
+public class PipelineExecution {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineExecution.class);
+
+    public enum Dependency {
+        BEDROCK, S3, SQS
+    }
+
+    @FunctionalInterface
+    public interface RemoteCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface ItemTask<T> {
+        void run(T item) throws Exception;
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private final RateLimiter bedrockRateLimiter;
+    @SuppressWarnings("UnstableApiUsage")
+    private final RateLimiter normalLaneBedrockRateLimiter;
+    private final Semaphore normalLaneBedrockCeiling;
+    private final PipelineMetrics pipelineMetrics;
+    private final boolean failOnRemoteCallInTransaction;
+    private final boolean virtualThreads;
+    private final ThreadFactory threadFactory;
+    private final ExecutorService executor;
+    private final Map<Dependency, Semaphore> ceilings = new EnumMap<>(Dependency.class);
+    private final Set<Dependency> reportedInTransaction = ConcurrentHashMap.newKeySet();
+
+    @SuppressWarnings("UnstableApiUsage")
+    public PipelineExecution(RateLimiter bedrockRateLimiter,
+                             PipelineMetrics pipelineMetrics,
+                             @Value("${app.pipeline.fail-on-remote-call-in-transaction:false}") boolean failOnRemoteCallInTransaction,
+                             @Value("${app.bedrock.rate-limit.high-priority-share:0.25}") double highPriorityShare,
+                             @Value("${app.pipeline.virtual-threads:true}") boolean virtualThreads,
+                             @Value("${app.pipeline.platform-threads:8}") int platformThreads,
+                             @Value("${app.pipeline.max-concurrent.bedrock:16}") int maxBedrock,
+                             @Value("${app.pipeline.max-concurrent.s3:32}") int maxS3,
+                             @Value("${app.pipeline.max-concurrent.sqs:32}") int maxSqs) {
+        if (highPriorityShare < 0 || highPriorityShare >= 1) {
+            throw new IllegalArgumentException("app.bedrock.rate-limit.high-priority-share must be at least 0 and below 1");
+        }
+        this.bedrockRateLimiter = bedrockRateLimiter;
+        this.normalLaneBedrockRateLimiter = highPriorityShare > 0
+                ? RateLimiter.create(bedrockRateLimiter.getRate() * (1 - highPriorityShare))
+                : null;
+        int reservedBedrockSlots = Math.min(maxBedrock - 1, (int) Math.round(maxBedrock * highPriorityShare));
+        this.normalLaneBedrockCeiling = new Semaphore(Math.max(1, maxBedrock - reservedBedrockSlots), true);
+        this.pipelineMetrics = pipelineMetrics;
+        this.failOnRemoteCallInTransaction = failOnRemoteCallInTransaction;
+        this.virtualThreads = virtualThreads;
+        if (virtualThreads) {
+            this.threadFactory = Thread.ofVirtual().name("pipeline-", 0).factory();
+            this.executor = Executors.newThreadPerTaskExecutor(threadFactory);
+        } else {
+            this.threadFactory = new ThreadFactoryBuilder().setNameFormat("pipeline-%d").setDaemon(true).build();
+            this.executor = Executors.newFixedThreadPool(platformThreads, threadFactory);
+        }
+        ceilings.put(Dependency.BEDROCK, new Semaphore(maxBedrock, true));
+        ceilings.put(Dependency.S3, new Semaphore(maxS3, true));
+        ceilings.put(Dependency.SQS, new Semaphore(maxSqs, true));
+        logger.info("Pipeline running on {} threads; ceilings bedrock={} s3={} sqs={}; high-priority Bedrock share {}",
+                virtualThreads ? "virtual" : platformThreads + " platform", maxBedrock, maxS3, maxSqs, highPriorityShare);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs {@code task} in the background, e.g. enrichment kicked off by an ingest request.
+     */
+    public void submit(Runnable task) {
+        executor.submit(task);
+    }
+
+    /**
+     * Starts a long-running loop (a queue poller) on its own virtual or daemon thread.
+     */
+    public Thread startLoop(String name, Runnable loop) {
+        return virtualThreads
+                ? Thread.ofVirtual().name(name).start(loop)
+                : Thread.ofPlatform().name(name).daemon(true).start(loop);
+    }
+
+    /**
+     * Makes a call to {@code dependency} within its concurrency ceiling (and, for Bedrock, the rate limit).
+     * Bedrock calls made this way count against the NORMAL lane.
+     */
+    public <T, E extends Exception> T call(Dependency dependency, RemoteCall<T, E> call) throws E {
+        return call(dependency, EnrichmentPriority.NORMAL, call);
+    }
+
+    /**
+     * Makes a call to {@code dependency} on behalf of {@code lane}. Only Bedrock distinguishes lanes: NORMAL
+     * calls also take a permit from the unreserved part of the ceiling and rate budget.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public <T, E extends Exception> T call(Dependency dependency, EnrichmentPriority lane, RemoteCall<T, E> call) throws E {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            reportCallInTransaction(dependency);
+        }
+        boolean normalLaneBedrock = dependency == Dependency.BEDROCK && lane != EnrichmentPriority.HIGH;
+        Semaphore laneCeiling = normalLaneBedrock ? normalLaneBedrockCeiling : null;
+        Semaphore ceiling = ceilings.get(dependency);
+        acquire(laneCeiling, dependency);
+        try {
+            acquire(ceiling, dependency);
+            try {
+                if (normalLaneBedrock && normalLaneBedrockRateLimiter != null) {
+                    normalLaneBedrockRateLimiter.acquire();
+                }
+                if (dependency == Dependency.BEDROCK) {
+                    bedrockRateLimiter.acquire();
+                }
+                return call.call();
+            } finally {
+                ceiling.release();
+            }
+        } finally {
+            if (laneCeiling != null) {
+                laneCeiling.release();
+            }
+        }
+    }
+
+    private static void acquire(Semaphore permits, Dependency dependency) {
+        if (permits == null) {
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting for a " + dependency + " permit");
+        }
+    }
+
+    // The first occurrence per dependency is logged with its stack trace to locate the call site; all are counted
+    private void reportCallInTransaction(Dependency dependency) {
+        pipelineMetrics.countRemoteCallInTransaction(dependency.name().toLowerCase());
+        String message = dependency + " call made inside transaction "
+                + TransactionSynchronizationManager.getCurrentTransactionName() + "; it holds a JDBC connection until the call returns";
+        if (failOnRemoteCallInTransaction) {
+            throw new IllegalStateException(message);
+        }
+        if (reportedInTransaction.add(dependency)) {
+            logger.warn(message, new IllegalStateException("call site"));
+        } else {
+            logger.debug(message);
+        }
+    }
+
+    /**
+     * Runs {@code task} for every item and returns once all have finished. With virtual threads each item
+     * gets its own thread (the dependency ceilings bound what they do concurrently); otherwise items run one
+     * after another on the caller's thread. The first failure cancels the items still running and is rethrown.
+     */
+    public <T> void forEachInScope(List<T> items, ItemTask<T> task) throws Exception {
+        if (!virtualThreads || items.size() < 2) {
+            for (T item : items) {
+                task.run(item);
+            }
+            return;
+        }
+        try (ExecutorService scope = Executors.newThreadPerTaskExecutor(threadFactory)) {
+            List<Future<?>> forks = new ArrayList<>(items.size());
+            for (T item : items) {
+                forks.add(scope.submit(() -> {
+                    task.run(item);
+                    return null;
+                }));
+            }
+            for (Future<?> fork : forks) {
+                try {
+                    fork.get();
+                } catch (ExecutionException e) {
+                    scope.shutdownNow();
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                } catch (InterruptedException e) {
+                    scope.shutdownNow();
+                    throw e;
+                }
+            }
+        }
+    }
+}
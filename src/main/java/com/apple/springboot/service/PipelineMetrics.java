@@ -0,0 +1,160 @@
+package com.apple.springboot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters for the ingest → enrich → index pipeline, exposed through /actuator/prometheus.
+ * <ul>
+ *   <li>{@code pipeline.stage.duration} timer (with histogram) per stage, tagged source, model and outcome</li>
+ *   <li>{@code pipeline.items} counter per stage and status, {@code pipeline.errors} counter per stage and error status</li>
+ *   <li>{@code pipeline.enrichment.queue.depth} gauge per lane, {@code pipeline.bedrock.in.flight} and
+ *       {@code pipeline.enrichment.pages.dispatching} gauges</li>
+ *   <li>{@code pipeline.lane.latency} timer per priority lane and milestone: enqueue to item enriched, and
+ *       page enqueue to searchable</li>
+ *   <li>{@code pipeline.remote.calls.in.transaction} counter per dependency: remote calls made while a JDBC transaction was open</li>
+ * </ul>
+ * The source tag is the kind of source (S3 bucket, classpath or api), not the source URI, to keep
+ * cardinality bounded; the model tag is the Bedrock model id, or "none" for stages without a model call.
+ */
+@Service
+public class PipelineMetrics {
+
+    public static final String STAGE_DOWNLOAD = "download";
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_CLEANSE = "cleanse";
+    public static final String STAGE_HASH_DIFF = "hash-diff";
+    public static final String STAGE_ENQUEUE = "enqueue";
+    public static final String STAGE_ENRICH = "enrich";
+    public static final String STAGE_EMBED = "embed";
+    public static final String STAGE_PERSIST = "persist";
+    public static final String STAGE_CONSOLIDATE = "consolidate";
+    public static final String STAGE_CHUNK = "chunk";
+
+    public static final String MILESTONE_ENRICHED = "enriched";
+    public static final String MILESTONE_SEARCHABLE = "searchable";
+
+    static final String NO_MODEL = "none";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger bedrockInFlight = new AtomicInteger();
+    private final AtomicInteger pagesDispatching = new AtomicInteger();
+    private final Map<String, AtomicLong> queueDepths = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("pipeline.bedrock.in.flight", bedrockInFlight, AtomicInteger::get)
+                .description("Bedrock model invocations currently in progress")
+                .register(registry);
+        Gauge.builder("pipeline.enrichment.pages.dispatching", pagesDispatching, AtomicInteger::get)
+                .description("Pages whose items are still being sent to SQS by the fair scheduler")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stop(Timer.Sample sample, String stage, String source, String model, boolean success) {
+        sample.stop(Timer.builder("pipeline.stage.duration")
+                .description("Time spent per pipeline stage")
+                .tag("stage", stage)
+                .tag("source", source)
+                .tag("model", model == null ? NO_MODEL : model)
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public void countItems(String stage, String source, String status, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder("pipeline.items")
+                .description("Items passing through each pipeline stage, by resulting status")
+                .tag("stage", stage)
+                .tag("source", source)
+                .tag("status", status)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void countError(String stage, String source, String status) {
+        Counter.builder("pipeline.errors")
+                .description("Pipeline failures, by the status recorded for them")
+                .tag("stage", stage)
+                .tag("source", source)
+                .tag("status", status)
+                .register(registry)
+                .increment();
+    }
+
+    public void countRemoteCallInTransaction(String dependency) {
+        Counter.builder("pipeline.remote.calls.in.transaction")
+                .description("Bedrock, S3 and SQS calls made while holding a database transaction (and its connection)")
+                .tag("dependency", dependency)
+                .register(registry)
+                .increment();
+    }
+
+    public void bedrockCallStarted() {
+        bedrockInFlight.incrementAndGet();
+    }
+
+    public void bedrockCallFinished() {
+        bedrockInFlight.decrementAndGet();
+    }
+
+    public void setPagesDispatching(int pages) {
+        pagesDispatching.set(pages);
+    }
+
+    public void setQueueDepth(String lane, long depth) {
+        queueDepths.computeIfAbsent(lane, key -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("pipeline.enrichment.queue.depth", value, AtomicLong::get)
+                    .description("Approximate number of enrichment messages waiting in SQS")
+                    .tag("lane", key)
+                    .register(registry);
+            return value;
+        }).set(depth);
+    }
+
+    public void recordLaneLatency(String lane, String milestone, Duration latency) {
+        Timer.builder("pipeline.lane.latency")
+                .description("Time from enqueue to a milestone, per priority lane")
+                .tag("lane", lane)
+                .tag("milestone", milestone)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(latency.isNegative() ? Duration.ZERO : latency);
+    }
+
+    /**
+     * Bounded-cardinality source tag: "s3:&lt;bucket&gt;", "classpath", or "api" for pushed payloads.
+     */
+    public static String sourceTag(String sourceUri) {
+        if (sourceUri == null) {
+            return "unknown";
+        }
+        if (sourceUri.startsWith("s3://")) {
+            String path = sourceUri.substring("s3://".length());
+            int slash = path.indexOf('/');
+            String bucket = slash < 0 ? path : path.substring(0, slash);
+            return bucket.isEmpty() ? "s3" : "s3:" + bucket;
+        }
+        if (sourceUri.startsWith("classpath:")) {
+            return "classpath";
+        }
+        return "api";
+    }
+}
@@ -0,0 +1,68 @@
+package com.apple.springboot.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carries the trace across the SQS hop: the sender's context (W3C traceparent/tracestate) is written
+ * to message attributes and the listener continues the same trace from them, so a page's ingest request
+ * and its per-item enrichment spans share one trace id. Also starts the child spans for Bedrock calls
+ * and database writes. A no-op when tracing is disabled.
+ */
+@Service
+public class PipelineTracing {
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public PipelineTracing(Tracer tracer, Propagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    /**
+     * Starts a child of the current span; end it in a finally block.
+     */
+    public Span startSpan(String name) {
+        return tracer.nextSpan().name(name).start();
+    }
+
+    public Tracer.SpanInScope inScope(Span span) {
+        return tracer.withSpan(span);
+    }
+
+    /**
+     * The current trace context as SQS message attributes; empty when there is no current span.
+     */
+    public Map<String, MessageAttributeValue> messageAttributes() {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        TraceContext context = tracer.currentTraceContext().context();
+        if (context != null) {
+            propagator.inject(context, attributes, (carrier, key, value) -> carrier.put(key, MessageAttributeValue.builder()
+                    .dataType("String")
+                    .stringValue(value)
+                    .build()));
+        }
+        return attributes;
+    }
+
+    /**
+     * Starts a span continuing the trace found in the message attributes, or a new trace if there is none.
+     */
+    public Span startConsumerSpan(String name, Map<String, MessageAttributeValue> attributes) {
+        return propagator.extract(attributes, (carrier, key) -> {
+                    MessageAttributeValue value = carrier.get(key);
+                    return value == null ? null : value.stringValue();
+                })
+                .kind(Span.Kind.CONSUMER)
+                .name(name)
+                .start();
+    }
+}
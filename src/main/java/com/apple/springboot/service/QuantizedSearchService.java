@@ -0,0 +1,121 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.repository.ContentChunkRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Operational side of quantized vector search (app.search.quantization.*): backfills the halfvec
+ * column for rows written before it existed, and measures recall@k of the configured ANN path
+ * against exact full-precision search.
+ */
+@Service
+public class QuantizedSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuantizedSearchService.class);
+
+    private final ContentChunkRepository contentChunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService backfillExecutor;
+    private final String quantizationMode;
+    private final boolean backfillOnStartup;
+    private final int backfillBatchSize;
+
+    public QuantizedSearchService(ContentChunkRepository contentChunkRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.search.quantization.mode:none}") String quantizationMode,
+                                  @Value("${app.search.quantization.backfill-on-startup:false}") boolean backfillOnStartup,
+                                  @Value("${app.search.quantization.backfill-batch-size:1000}") int backfillBatchSize) {
+        this.contentChunkRepository = contentChunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.quantizationMode = quantizationMode;
+        this.backfillOnStartup = backfillOnStartup;
+        this.backfillBatchSize = backfillBatchSize;
+        this.backfillExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("vector-backfill-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfillExecutor.submit(this::backfillHalfVectors);
+        }
+    }
+
+    /**
+     * Fills vector_half for existing rows, one short transaction per batch so the backfill never
+     * holds locks on a large part of content_chunks.
+     *
+     * @return total number of rows updated
+     */
+    public long backfillHalfVectors() {
+        long total = 0;
+        int updated;
+        do {
+            Integer batch = transactionTemplate.execute(status -> contentChunkRepository.backfillHalfVectors(backfillBatchSize));
+            updated = batch != null ? batch : 0;
+            total += updated;
+            if (updated > 0) {
+                logger.info("Backfilled vector_half for {} chunks ({} so far)", updated, total);
+            }
+        } while (updated > 0 && !Thread.currentThread().isInterrupted());
+        logger.info("vector_half backfill finished: {} chunks updated", total);
+        return total;
+    }
+
+    /**
+     * Recall@k of the configured search path: stored chunk vectors are used as probe queries, and for
+     * each one the ANN result ids are compared with the exact top-k. A probe's own chunk is left out of
+     * both lists, since every search finds it and it would inflate recall.
+     */
+    public Map<String, Object> measureRecall(int samples, int k) {
+        Map<UUID, float[]> probes = readOnlyTransaction.execute(status -> contentChunkRepository.sampleVectors(samples));
+        long found = 0;
+        long expected = 0;
+        for (Map.Entry<UUID, float[]> probe : probes.entrySet()) {
+            // Separate transactions: the exact query disables index scans for the rest of its transaction
+            List<UUID> exact = readOnlyTransaction.execute(status -> contentChunkRepository.findNearestChunkIds(probe.getValue(), k + 1, true));
+            List<UUID> approximate = readOnlyTransaction.execute(status -> contentChunkRepository.findNearestChunkIds(probe.getValue(), k + 1, false));
+            Set<UUID> truth = new HashSet<>(withoutProbe(exact, probe.getKey(), k));
+            expected += truth.size();
+            found += withoutProbe(approximate, probe.getKey(), k).stream().filter(truth::contains).count();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("quantization", quantizationMode);
+        report.put("k", k);
+        report.put("samples", probes.size());
+        report.put("recall", expected == 0 ? null : (double) found / expected);
+        logger.info("Recall@{} for quantization '{}' over {} probes: {}", k, quantizationMode, probes.size(), report.get("recall"));
+        return report;
+    }
+
+    private static List<UUID> withoutProbe(List<UUID> ids, UUID probeId, int k) {
+        return ids.stream().filter(id -> !id.equals(probeId)).limit(k).toList();
+    }
+}
@@ -0,0 +1,160 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.RawDataStore;
+import com.apple.springboot.repository.RawDataStoreRepository;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compressed storage of raw payloads (app.raw-store.*, see db/009_compressed_raw_store.sql). With compression
+ * on, a payload is kept once as zstd bytes in raw_content_binary instead of as both TEXT and bytea, optionally
+ * with a trained dictionary, or as a delta that uses the previous version of the same source as its dictionary.
+ * Rows are only decompressed when {@link #decode} is called; rows without a content_encoding are plain text.
+ */
+@Service
+public class RawContentCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawContentCodec.class);
+
+    static final String ZSTD = "zstd";
+    static final String ZSTD_DICT = "zstd-dict";
+    static final String ZSTD_DELTA = "zstd-delta";
+
+    private final RawDataStoreRepository rawDataStoreRepository;
+    private final boolean enabled;
+    private final int level;
+    private final boolean deltaEnabled;
+    private final int maxDeltaDepth;
+    private final ZstdDictCompress dictCompress;
+    private final ZstdDictDecompress dictDecompress;
+    private final long dictId;
+
+    public RawContentCodec(RawDataStoreRepository rawDataStoreRepository,
+                           ResourceLoader resourceLoader,
+                           @Value("${app.raw-store.compression.enabled:false}") boolean enabled,
+                           @Value("${app.raw-store.compression.level:9}") int level,
+                           @Value("${app.raw-store.compression.dictionary-path:}") String dictionaryPath,
+                           @Value("${app.raw-store.delta.enabled:false}") boolean deltaEnabled,
+                           @Value("${app.raw-store.delta.max-depth:5}") int maxDeltaDepth) {
+        this.rawDataStoreRepository = rawDataStoreRepository;
+        this.enabled = enabled;
+        this.level = level;
+        this.deltaEnabled = deltaEnabled;
+        this.maxDeltaDepth = maxDeltaDepth;
+        byte[] dictionary = dictionaryPath.isBlank() ? null : readDictionary(resourceLoader.getResource(dictionaryPath));
+        this.dictCompress = dictionary == null ? null : new ZstdDictCompress(dictionary, level);
+        this.dictDecompress = dictionary == null ? null : new ZstdDictDecompress(dictionary);
+        this.dictId = dictionary == null ? 0 : Zstd.getDictIdFromDict(dictionary);
+        if (dictionary != null) {
+            logger.info("Loaded zstd dictionary {} ({} bytes) from {}", dictId, dictionary.length, dictionaryPath);
+        }
+    }
+
+    /**
+     * Whether raw rows still get the parsed source_metadata copy of the document. It is derivable from the
+     * payload, so compressed mode skips it (and the parse that produces it).
+     */
+    public boolean storesSourceMetadata() {
+        return !enabled;
+    }
+
+    /**
+     * Sets the payload columns of {@code target}; encoded rows also drop source_metadata. {@code previous} is
+     * the latest stored version of the same source, or null; it is only used as a delta base.
+     */
+    public void encode(RawDataStore target, String content, RawDataStore previous) {
+        byte[] raw = content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+        target.setRawContentSize(raw == null ? null : raw.length);
+        target.setDeltaBaseId(null);
+        target.setDeltaDepth(null);
+        if (!enabled || raw == null) {
+            // Plain rows are written as before; raw_content_binary is left to the caller
+            target.setRawContentText(content);
+            target.setContentEncoding(null);
+            return;
+        }
+        target.setRawContentText(null);
+        target.setSourceMetadata(null);
+
+        if (deltaEnabled && previous != null && previous.getId() != null && !previous.getId().equals(target.getId())) {
+            int depth = previous.getDeltaDepth() == null ? 0 : previous.getDeltaDepth();
+            byte[] base = depth < maxDeltaDepth ? decodeBytes(previous) : null;
+            if (base != null) {
+                target.setRawContentBinary(Zstd.compressUsingDict(raw, base, level));
+                target.setContentEncoding(ZSTD_DELTA);
+                target.setDeltaBaseId(previous.getId());
+                target.setDeltaDepth(depth + 1);
+                return;
+            }
+        }
+        if (dictCompress != null) {
+            target.setRawContentBinary(Zstd.compress(raw, dictCompress));
+            target.setContentEncoding(ZSTD_DICT);
+        } else {
+            target.setRawContentBinary(Zstd.compress(raw, level));
+            target.setContentEncoding(ZSTD);
+        }
+    }
+
+    /**
+     * The stored payload as text, decompressing (and following the delta chain) only for encoded rows.
+     */
+    public String decode(RawDataStore row) {
+        if (row.getContentEncoding() == null) {
+            return row.storedContentText();
+        }
+        byte[] raw = decodeBytes(row);
+        return raw == null ? null : new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private byte[] decodeBytes(RawDataStore row) {
+        String encoding = row.getContentEncoding();
+        if (encoding == null) {
+            String text = row.storedContentText();
+            return text != null ? text.getBytes(StandardCharsets.UTF_8) : row.storedContentBinary();
+        }
+        byte[] compressed = row.storedContentBinary();
+        if (compressed == null || row.getRawContentSize() == null) {
+            return null;
+        }
+        int size = row.getRawContentSize();
+        return switch (encoding) {
+            case ZSTD -> Zstd.decompress(compressed, size);
+            case ZSTD_DICT -> {
+                long frameDictId = Zstd.getDictIdFromFrame(compressed);
+                if (dictDecompress == null || frameDictId != dictId) {
+                    throw new IllegalStateException("Raw row " + row.getId() + " needs zstd dictionary " + frameDictId
+                            + " but " + (dictDecompress == null ? "none is configured" : dictId + " is loaded"));
+                }
+                yield Zstd.decompress(compressed, dictDecompress, size);
+            }
+            case ZSTD_DELTA -> {
+                RawDataStore base = rawDataStoreRepository.findById(row.getDeltaBaseId())
+                        .orElseThrow(() -> new IllegalStateException("Delta base " + row.getDeltaBaseId() + " of raw row " + row.getId() + " is missing"));
+                yield Zstd.decompress(compressed, decodeBytes(base), size);
+            }
+            default -> throw new IllegalStateException("Unknown content_encoding '" + encoding + "' on raw row " + row.getId());
+        };
+    }
+
+    private static byte[] readDictionary(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return FileCopyUtils.copyToByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read zstd dictionary " + resource, e);
+        }
+    }
+}
@@ -1,130 +1,107 @@
 package com.apple.springboot.service;
 
-import com.apple.springboot.model.ConsolidatedEnrichedSection;
-import com.apple.springboot.model.ContentChunkWithDistance;
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.model.FacetKey;
 import com.apple.springboot.model.RefinementChip;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class RefinementService {
 
+    private static final int MAX_CHIPS = 10;
+
+    // Context keys offered as chips, with their chip types precomputed ("Context:facets.sectionKey", ...)
+    private static final String[] FACET_CHIP_KEYS = {"sectionKey", "sectionPath", "eventType"};
+    private static final String[] FACET_CHIP_TYPES = chipTypes("facets", FACET_CHIP_KEYS);
+    private static final String[] ENVELOPE_CHIP_KEYS = {"sectionName", "locale", "country"};
+    private static final String[] ENVELOPE_CHIP_TYPES = chipTypes("envelope", ENVELOPE_CHIP_KEYS);
+
     @Autowired
     private VectorSearchService vectorSearchService;
-
     @Autowired
-    private ObjectMapper objectMapper;
+    private FacetCountService facetCountService;
 
     public List<RefinementChip> getRefinementChips(String query) throws IOException {
         // Perform a pure semantic search with a balanced threshold to get relevant documents.
         Double threshold = 0.9;
-        List<ContentChunkWithDistance> initialChunks = vectorSearchService.search(query, null, 20, null, null, null, threshold);
+        List<ChunkSearchResult> initialChunks = vectorSearchService.search(query, null, 20, null, null, null, threshold);
 
         if (initialChunks.isEmpty()) {
             return Collections.emptyList();
         }
+        return withGlobalCounts(aggregateChips(initialChunks, MAX_CHIPS));
+    }
 
-        Map<RefinementChip, Double> chipScores = new HashMap<>();
+    /**
+     * Replaces the per-hit counts of the chosen chips with their global section counts from the
+     * facet index (one primary-key lookup for all chips). Order stays by semantic relevance; chip
+     * types without a global count (sectionPath, sectionName) keep the hit count.
+     */
+    private List<RefinementChip> withGlobalCounts(List<RefinementChip> chips) {
+        List<FacetKey> facets = new ArrayList<>(chips.size());
+        for (RefinementChip chip : chips) {
+            facets.add(new FacetKey(chip.getType(), chip.getValue()));
+        }
+        Map<FacetKey, Long> globalCounts = facetCountService.countsFor(facets);
+        for (int i = 0; i < chips.size(); i++) {
+            Long globalCount = globalCounts.get(facets.get(i));
+            if (globalCount != null) {
+                chips.get(i).setCount((int) Math.min(globalCount, Integer.MAX_VALUE));
+            }
+        }
+        return chips;
+    }
 
-        for (ContentChunkWithDistance chunkWithDistance : initialChunks) {
-            double distance = chunkWithDistance.getDistance();
-            double score = 1.0 - distance;
+    /**
+     * Builds refinement chips from search hits in one pass: candidates are read straight from each
+     * hit's context map and scored (sum of 1 - distance) and counted together.
+     */
+    public List<RefinementChip> aggregateChips(List<ChunkSearchResult> hits, int maxChips) {
+        ChipAccumulator accumulator = new ChipAccumulator(hits.size() * 16);
 
+        for (ChunkSearchResult hit : hits) {
+            double score = 1.0 - hit.getDistance();
             if (score < 0) continue;
 
-            ConsolidatedEnrichedSection section = chunkWithDistance.getContentChunk().getConsolidatedEnrichedSection();
-            if (section == null) continue;
-
-            if (section.getOriginalFieldName() != null) {
-                String original_field_name= section.getOriginalFieldName();
-                    RefinementChip chip = new RefinementChip(original_field_name, "original_field_name", 0);
-                    chipScores.merge(chip, score, Double::sum);
-            }
-
-            // Extract Tags
-            if (section.getTags() != null) {
-                section.getTags().forEach(tag -> {
-                    RefinementChip chip = new RefinementChip(tag, "Tag", 0);
-                    chipScores.merge(chip, score, Double::sum);
-                });
+            accumulator.add("original_field_name", hit.getOriginalFieldName(), score);
+            if (hit.getTags() != null) {
+                for (String tag : hit.getTags()) {
+                    accumulator.add("Tag", tag, score);
+                }
             }
-            // Extract Keywords
-            if (section.getKeywords() != null) {
-                section.getKeywords().forEach(keyword -> {
-                    RefinementChip chip = new RefinementChip(keyword, "Keyword", 0);
-                    chipScores.merge(chip, score, Double::sum);
-                });
+            if (hit.getKeywords() != null) {
+                for (String keyword : hit.getKeywords()) {
+                    accumulator.add("Keyword", keyword, score);
+                }
             }
-
-            // Extract from nested context based on simplified requirements
-            if (section.getContext() != null) {
-                JsonNode contextNode = objectMapper.valueToTree(section.getContext());
-                extractContextChips(contextNode.path("facets"), List.of("sectionKey","sectionPath", "eventType"), "facets", chipScores, score);
-                extractContextChips(contextNode.path("envelope"), List.of("sectionName", "locale", "country"), "envelope", chipScores, score);
+            Map<String, Object> context = hit.getContext();
+            if (context != null) {
+                addContextChips(accumulator, context.get("facets"), FACET_CHIP_KEYS, FACET_CHIP_TYPES, score);
+                addContextChips(accumulator, context.get("envelope"), ENVELOPE_CHIP_KEYS, ENVELOPE_CHIP_TYPES, score);
             }
         }
-
-        // Get the count for each chip for display
-        Map<RefinementChip, Long> chipCounts = initialChunks.stream()
-                .map(chunk -> chunk.getContentChunk().getConsolidatedEnrichedSection())
-                .filter(Objects::nonNull)
-                .flatMap(section -> extractChipsForCounting(section).stream())
-                .collect(Collectors.groupingBy(chip -> chip, Collectors.counting()));
-
-
-        return chipScores.entrySet().stream()
-                .sorted(Map.Entry.<RefinementChip, Double>comparingByValue().reversed())
-                .limit(10)
-                .map(entry -> {
-                    RefinementChip chip = entry.getKey();
-                    chip.setCount(chipCounts.getOrDefault(chip, 0L).intValue());
-                    return chip;
-                })
-                .collect(Collectors.toList());
+        return accumulator.top(maxChips);
     }
 
-    private void extractContextChips(JsonNode parentNode, List<String> keys, String pathPrefix, Map<RefinementChip, Double> chipScores, double score) {
-        if (parentNode.isMissingNode()) return;
+    private void addContextChips(ChipAccumulator accumulator, Object node, String[] keys, String[] chipTypes, double score) {
+        if (!(node instanceof Map<?, ?> map)) return;
 
-        for (String key : keys) {
-            JsonNode valueNode = parentNode.path(key);
-            if (valueNode.isTextual() && !valueNode.asText().isBlank()) {
-                RefinementChip chip = new RefinementChip(valueNode.asText(), "Context:" + pathPrefix + "." + key, 0);
-                chipScores.merge(chip, score, Double::sum);
+        for (int i = 0; i < keys.length; i++) {
+            if (map.get(keys[i]) instanceof String value) {
+                accumulator.add(chipTypes[i], value, score);
             }
         }
     }
 
-    private List<RefinementChip> extractChipsForCounting(ConsolidatedEnrichedSection section) {
-        List<RefinementChip> chips = new ArrayList<>();
-        if (section.getTags() != null) {
-            section.getTags().forEach(tag -> chips.add(new RefinementChip(tag, "Tag", 0)));
-        }
-        if (section.getKeywords() != null) {
-            section.getKeywords().forEach(keyword -> chips.add(new RefinementChip(keyword, "Keyword", 0)));
-        }
-        if (section.getContext() != null) {
-            JsonNode contextNode = objectMapper.valueToTree(section.getContext());
-            extractContextChipsForCounting(contextNode.path("facets"), List.of("sectionModel", "eventType"), "facets", chips);
-            extractContextChipsForCounting(contextNode.path("envelope"), List.of("sectionName", "locale", "country"), "envelope", chips);
-        }
-        return chips;
-    }
-
-    private void extractContextChipsForCounting(JsonNode parentNode, List<String> keys, String pathPrefix, List<RefinementChip> chips) {
-        if (parentNode.isMissingNode()) return;
-
-        for (String key : keys) {
-            JsonNode valueNode = parentNode.path(key);
-            if (valueNode.isTextual() && !valueNode.asText().isBlank()) {
-                chips.add(new RefinementChip(valueNode.asText(), "Context:" + pathPrefix + "." + key, 0));
-            }
+    private static String[] chipTypes(String pathPrefix, String[] keys) {
+        String[] types = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            types[i] = "Context:" + pathPrefix + "." + keys[i];
         }
+        return types;
     }
-}
\ No newline at end of file
+}
@@ -2,14 +2,14 @@ package com.apple.springboot.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
@@ -25,28 +25,11 @@ public class S3StorageService {
     private static final Logger logger = LoggerFactory.getLogger(S3StorageService.class);
 
     private final S3Client s3Client;
-    // private final String s3Region; // s3Region stored if needed for other methods, but client is configured with it.
+    private final PipelineExecution pipelineExecution;
 
-    public S3StorageService(@Value("${app.s3.region}") String s3Region) {
-        // this.s3Region = s3Region;
-        S3Client client = null;
-        try {
-            logger.info("Initializing S3Client for region: {}", s3Region);
-            if (s3Region == null || s3Region.trim().isEmpty()) {
-                logger.error("S3 region is not configured. Please set 'app.s3.region' in application properties.");
-                throw new IllegalArgumentException("S3 region must be configured.");
-            }
-            client = S3Client.builder()
-                    .region(Region.of(s3Region))
-                    .credentialsProvider(DefaultCredentialsProvider.create())
-                    .build();
-            logger.info("S3Client initialized successfully for region: {}", s3Region);
-        } catch (Exception e) {
-            logger.error("Failed to initialize S3Client for region {}: {}", s3Region, e.getMessage(), e);
-            // This exception will prevent the bean from being created and app startup if S3 is critical.
-            throw new RuntimeException("Failed to initialize S3Client: " + e.getMessage(), e);
-        }
-        this.s3Client = client;
+    public S3StorageService(S3Client s3Client, PipelineExecution pipelineExecution) {
+        this.s3Client = s3Client;
+        this.pipelineExecution = pipelineExecution;
     }
 
     public String downloadFileContent(String bucketName, String fileKey) {
@@ -61,7 +44,11 @@ public class S3StorageService {
                 .bucket(bucketName)
                 .key(fileKey)
                 .build();
+        // The S3 permit covers reading the body too, since the connection stays open until then
+        return pipelineExecution.call(PipelineExecution.Dependency.S3, () -> download(getObjectRequest, bucketName, fileKey));
+    }
 
+    private String download(GetObjectRequest getObjectRequest, String bucketName, String fileKey) {
         try (ResponseInputStream<GetObjectResponse> s3is = s3Client.getObject(getObjectRequest);
              InputStreamReader streamReader = new InputStreamReader(s3is, StandardCharsets.UTF_8);
              BufferedReader bufferedReader = new BufferedReader(streamReader)) {
@@ -84,4 +71,34 @@ public class S3StorageService {
             throw new RuntimeException("Unexpected error during S3 file download: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Cheap identity of the object's current content from a HEAD request (ETag, size, last-modified),
+     * without downloading it. Returns null if the object does not exist or its metadata cannot be read;
+     * callers then download it as usual, which reports a missing object or a failing S3 on its own.
+     */
+    public String objectFingerprint(String bucketName, String fileKey) {
+        if (this.s3Client == null) {
+            throw new IllegalStateException("S3Client is not available. Check S3 configuration and application startup logs.");
+        }
+        try {
+            HeadObjectRequest request = HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(fileKey)
+                    .build();
+            HeadObjectResponse head = pipelineExecution.call(PipelineExecution.Dependency.S3, () -> s3Client.headObject(request));
+            return head.eTag() + ":" + head.contentLength() + ":" + head.lastModified();
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                logger.warn("Could not read metadata of s3://{}/{} (status {}); downloading it instead: {}",
+                        bucketName, fileKey, e.statusCode(), e.getMessage());
+            }
+            return null;
+        } catch (SdkException e) {
+            logger.warn("Could not read metadata of s3://{}/{}; downloading it instead: {}", bucketName, fileKey, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -2,63 +2,168 @@ package com.apple.springboot.service;
 
 import com.apple.springboot.model.CleansedDataStore;
 import com.apple.springboot.model.EnrichmentMessage;
+import com.apple.springboot.model.EnrichmentPriority;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
 import software.amazon.awssdk.services.sqs.model.Message;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class SQSEnrichmentListener {
 
     private static final Logger logger = LoggerFactory.getLogger(SQSEnrichmentListener.class);
+    private static final int MAX_BATCH = 10;
 
     private final SqsClient sqsClient;
     private final ObjectMapper objectMapper;
     private final EnrichmentProcessor enrichmentProcessor;
+    private final PipelineTracing pipelineTracing;
+    private final PipelineExecution pipelineExecution;
+    private final SqsService sqsService;
+    private final int pollers;
+    private final int highPriorityPollers;
+    private final long pollDelayMs;
+    private final int maxInFlightPerPoller;
+    // Messages received from a queue and not yet handled, bounded by its pollers * max-in-flight-per-poller
+    private final Map<String, Semaphore> inFlight = new ConcurrentHashMap<>();
+    private final List<Thread> pollerThreads = new ArrayList<>();
+    private volatile boolean running;
 
-    @Value("${aws.sqs.queue.url}")
-    private String queueUrl;
-
-    public SQSEnrichmentListener(SqsClient sqsClient, ObjectMapper objectMapper, EnrichmentProcessor enrichmentProcessor) {
+    public SQSEnrichmentListener(SqsClient sqsClient, ObjectMapper objectMapper, EnrichmentProcessor enrichmentProcessor,
+                                 PipelineTracing pipelineTracing, PipelineExecution pipelineExecution, SqsService sqsService,
+                                 @Value("${app.sqs.listener.pollers:2}") int pollers,
+                                 @Value("${app.sqs.listener.high-priority-pollers:1}") int highPriorityPollers,
+                                 @Value("${app.sqs.listener.poll-delay-ms:0}") long pollDelayMs,
+                                 @Value("${app.sqs.listener.max-in-flight-per-poller:10}") int maxInFlightPerPoller) {
         this.sqsClient = sqsClient;
         this.objectMapper = objectMapper;
         this.enrichmentProcessor = enrichmentProcessor;
+        this.pipelineTracing = pipelineTracing;
+        this.pipelineExecution = pipelineExecution;
+        this.sqsService = sqsService;
+        this.pollers = pollers;
+        this.highPriorityPollers = highPriorityPollers;
+        this.pollDelayMs = pollDelayMs;
+        this.maxInFlightPerPoller = Math.max(1, maxInFlightPerPoller);
+    }
+
+    /**
+     * Starts the poll loops: app.sqs.listener.pollers on the normal queue and, when a high-priority queue is
+     * configured, app.sqs.listener.high-priority-pollers on it, so urgent pages never wait behind a bulk
+     * backlog in the same queue. Each loop long-polls for up to 10 messages, hands each one to its own task and
+     * polls again as soon as the queue has free slots (app.sqs.listener.max-in-flight-per-poller per poller):
+     * a message whose delivery runs its page's finalization holds one slot, not the whole poller.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        startPollers(EnrichmentPriority.NORMAL, pollers);
+        if (sqsService.hasHighPriorityQueue()) {
+            startPollers(EnrichmentPriority.HIGH, highPriorityPollers);
+        }
+    }
+
+    private void startPollers(EnrichmentPriority lane, int count) {
+        String queueUrl = sqsService.queueUrl(lane);
+        inFlight.computeIfAbsent(queueUrl, url -> new Semaphore(0)).release(count * maxInFlightPerPoller);
+        for (int i = 0; i < count; i++) {
+            pollerThreads.add(pipelineExecution.startLoop("sqs-poller-" + lane.tag() + "-" + i, () -> pollLoop(queueUrl)));
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        pollerThreads.forEach(Thread::interrupt);
     }
 
-    @Scheduled(fixedDelay = 5000) // Poll every 5 seconds
-    public void pollQueue() {
+    private void pollLoop(String queueUrl) {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            pollQueue(queueUrl);
+            if (pollDelayMs > 0) {
+                try {
+                    Thread.sleep(pollDelayMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives as many messages as the queue has free slots for (at least one, at most 10) and hands each to
+     * its own task without waiting for them; each slot is freed when its message has been handled.
+     */
+    public void pollQueue(String queueUrl) {
+        Semaphore slots = inFlight.computeIfAbsent(queueUrl, url -> new Semaphore(maxInFlightPerPoller));
+        int held = 0;
         try {
+            slots.acquire();
+            held = 1;
+            int more = Math.min(MAX_BATCH - 1, slots.availablePermits());
+            if (more > 0 && slots.tryAcquire(more)) {
+                held += more;
+            }
             ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder()
                     .queueUrl(queueUrl)
-                    .maxNumberOfMessages(10)
+                    .maxNumberOfMessages(held)
                     .waitTimeSeconds(20)
+                    .messageAttributeNames("All")
                     .build();
 
             List<Message> messages = sqsClient.receiveMessage(receiveMessageRequest).messages();
-
             for (Message message : messages) {
-                try {
-                    EnrichmentMessage enrichmentMessage = objectMapper.readValue(message.body(), EnrichmentMessage.class);
-                    enrichmentProcessor.process(enrichmentMessage);
-                    deleteMessage(message);
-                } catch (Exception e) {
-                    logger.error("Error processing message: " + message.body(), e);
-                }
+                pipelineExecution.submit(() -> {
+                    try {
+                        handle(queueUrl, message);
+                    } finally {
+                        slots.release();
+                    }
+                });
+                held--;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.error("Error polling SQS queue", e);
+        } finally {
+            slots.release(held);
+        }
+    }
+
+    private void handle(String queueUrl, Message message) {
+        Span span = pipelineTracing.startConsumerSpan("enrichment.process", message.messageAttributes());
+        try (Tracer.SpanInScope ignored = pipelineTracing.inScope(span)) {
+            EnrichmentMessage enrichmentMessage = objectMapper.readValue(message.body(), EnrichmentMessage.class);
+            span.tag("cleansedDataStoreId", String.valueOf(enrichmentMessage.getCleansedDataStoreId()));
+            span.tag("lane", enrichmentMessage.getPriority().tag());
+            enrichmentProcessor.process(enrichmentMessage);
+            deleteMessage(queueUrl, message);
+        } catch (Exception e) {
+            span.error(e);
+            logger.error("Error processing message: " + message.body(), e);
+        } finally {
+            span.end();
         }
     }
 
-    private void deleteMessage(Message message) {
+    private void deleteMessage(String queueUrl, Message message) {
         DeleteMessageRequest deleteMessageRequest = DeleteMessageRequest.builder()
                 .queueUrl(queueUrl)
                 .receiptHandle(message.receiptHandle())
@@ -0,0 +1,179 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Query-side cache for vector search: query embeddings (deterministic, so kept longer) and
+ * complete result lists keyed on the normalized request (short TTL). Result entries are indexed
+ * by the source URIs they contain so that writing new chunks for a source evicts them; results
+ * that a brand-new source would enter are bounded by the TTL. Callers may modify what they get back:
+ * entries are copied in and out, so a caller's changes never reach the cache or later hits.
+ */
+@Service
+public class SearchResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultCache.class);
+
+    /**
+     * Normalized search request. Query whitespace is collapsed, tags/keywords are de-duplicated and
+     * sorted, and the context filter is rendered as key-ordered JSON.
+     */
+    public record Key(String query, String originalFieldName, List<String> tags, List<String> keywords,
+                      String context, Double threshold, int limit) {
+    }
+
+    private final Cache<String, float[]> embeddings;
+    private final Cache<Key, List<ChunkSearchResult>> results;
+    private final Map<String, Set<Key>> keysBySource = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public SearchResultCache(ObjectMapper objectMapper,
+                             @Value("${app.search.cache.embedding-ttl-seconds:3600}") long embeddingTtlSeconds,
+                             @Value("${app.search.cache.embedding-max-entries:10000}") long embeddingMaxEntries,
+                             @Value("${app.search.cache.result-ttl-seconds:60}") long resultTtlSeconds,
+                             @Value("${app.search.cache.result-max-entries:2000}") long resultMaxEntries,
+                             MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.embeddings = CacheBuilder.newBuilder()
+                .maximumSize(embeddingMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(embeddingTtlSeconds))
+                .recordStats()
+                .build();
+        RemovalListener<Key, List<ChunkSearchResult>> unindexOnRemoval = notification -> {
+            // A replaced entry is re-indexed by the put that replaced it
+            if (notification.getCause() != RemovalCause.REPLACED) {
+                unindex(notification.getKey(), notification.getValue());
+            }
+        };
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(resultMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(resultTtlSeconds))
+                .removalListener(unindexOnRemoval)
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions, ... tagged cache=search.embeddings / search.results
+        GuavaCacheMetrics.monitor(meterRegistry, embeddings, "search.embeddings");
+        GuavaCacheMetrics.monitor(meterRegistry, results, "search.results");
+    }
+
+    public Key keyFor(String query, String originalFieldName, List<String> tags, List<String> keywords,
+                      Map<String, Object> contextMap, Double threshold, int limit) {
+        return new Key(normalizeQuery(query), originalFieldName, normalizeTerms(tags), normalizeTerms(keywords),
+                canonicalContext(contextMap), threshold, limit);
+    }
+
+    public float[] getEmbedding(String query, Callable<float[]> loader) throws IOException {
+        try {
+            return embeddings.get(normalizeQuery(query), loader).clone();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to generate query embedding: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public List<ChunkSearchResult> getResults(Key key) {
+        List<ChunkSearchResult> cached = results.getIfPresent(key);
+        return cached == null ? null : copyOf(cached);
+    }
+
+    public void putResults(Key key, List<ChunkSearchResult> searchResults) {
+        List<ChunkSearchResult> immutable = List.copyOf(copyOf(searchResults));
+        for (ChunkSearchResult result : immutable) {
+            if (result.getSourceUri() != null) {
+                keysBySource.computeIfAbsent(result.getSourceUri(), uri -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+        results.put(key, immutable);
+    }
+
+    /**
+     * Evicts cached result lists containing chunks from any of the given sources.
+     */
+    public void invalidateSources(Collection<String> sourceUris) {
+        List<Key> evicted = new ArrayList<>();
+        for (String sourceUri : sourceUris) {
+            Set<Key> keys = keysBySource.remove(sourceUri);
+            if (keys != null) {
+                evicted.addAll(keys);
+            }
+        }
+        if (!evicted.isEmpty()) {
+            results.invalidateAll(evicted);
+            logger.debug("Evicted {} cached search result lists for sources {}", evicted.size(), sourceUris);
+        }
+    }
+
+    private void unindex(Key key, List<ChunkSearchResult> searchResults) {
+        if (key == null || searchResults == null) return;
+        for (ChunkSearchResult result : searchResults) {
+            if (result.getSourceUri() == null) continue;
+            Set<Key> keys = keysBySource.get(result.getSourceUri());
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysBySource.remove(result.getSourceUri(), keys);
+                }
+            }
+        }
+    }
+
+    private static List<ChunkSearchResult> copyOf(List<ChunkSearchResult> searchResults) {
+        List<ChunkSearchResult> copies = new ArrayList<>(searchResults.size());
+        for (ChunkSearchResult result : searchResults) {
+            copies.add(new ChunkSearchResult(result.getChunkId(), result.getSectionId(), result.getChunkText(),
+                    result.getSectionPath(), result.getSourceUri(), result.getCleansedText(), result.getOriginalFieldName(),
+                    result.getTags() == null ? null : new ArrayList<>(result.getTags()),
+                    result.getKeywords() == null ? null : new ArrayList<>(result.getKeywords()),
+                    result.getContext() == null ? null : new LinkedHashMap<>(result.getContext()),
+                    result.getDistance()));
+        }
+        return copies;
+    }
+
+    private static String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ");
+    }
+
+    private static List<String> normalizeTerms(List<String> terms) {
+        if (terms == null || terms.isEmpty()) return List.of();
+        return terms.stream().filter(Objects::nonNull).distinct().sorted().toList();
+    }
+
+    private String canonicalContext(Map<String, Object> contextMap) {
+        if (contextMap == null || contextMap.isEmpty()) return null;
+        try {
+            return objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsString(contextMap);
+        } catch (JsonProcessingException e) {
+            // Fall back to Map.toString; only cache efficiency depends on the exact key format
+            return contextMap.toString();
+        }
+    }
+}
@@ -1,44 +1,152 @@
 package com.apple.springboot.service;
 
+import com.apple.springboot.model.EnrichmentPriority;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.InvalidMessageContentsException;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+import java.util.Map;
 
 @Service
 public class SqsService {
 
     private static final Logger logger = LoggerFactory.getLogger(SqsService.class);
 
+    /**
+     * Outcome of {@link #sendMessage(Object, EnrichmentPriority, Map)}: FAILED is worth retrying (throttling, an
+     * outage), REJECTED is not (the payload cannot be serialized, or SQS refuses its contents or size).
+     */
+    public enum SendResult {
+        SENT, FAILED, REJECTED
+    }
+
     private final SqsClient sqsClient;
     private final ObjectMapper objectMapper;
     private final String queueUrl;
+    private final String highPriorityQueueUrl;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracing pipelineTracing;
+    private final PipelineExecution pipelineExecution;
 
     public SqsService(SqsClient sqsClient,
                       ObjectMapper objectMapper,
-                      @Value("${aws.sqs.queue.url}") String queueUrl) {
+                      @Value("${aws.sqs.queue.url}") String queueUrl,
+                      @Value("${aws.sqs.queue.high-priority.url:}") String highPriorityQueueUrl,
+                      PipelineMetrics pipelineMetrics,
+                      PipelineTracing pipelineTracing,
+                      PipelineExecution pipelineExecution) {
         this.sqsClient = sqsClient;
         this.objectMapper = objectMapper;
         this.queueUrl = queueUrl;
+        this.highPriorityQueueUrl = highPriorityQueueUrl == null || highPriorityQueueUrl.isBlank() ? null : highPriorityQueueUrl.trim();
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracing = pipelineTracing;
+        this.pipelineExecution = pipelineExecution;
+    }
+
+    /**
+     * Whether HIGH messages have their own queue; without one they share the normal queue and keep only
+     * their reserved Bedrock share.
+     */
+    public boolean hasHighPriorityQueue() {
+        return highPriorityQueueUrl != null;
+    }
+
+    public String queueUrl(EnrichmentPriority priority) {
+        return priority == EnrichmentPriority.HIGH && highPriorityQueueUrl != null ? highPriorityQueueUrl : queueUrl;
+    }
+
+    /**
+     * Refreshes the queue depth gauges; read on a schedule rather than per scrape to bound SQS calls.
+     */
+    @Scheduled(fixedDelayString = "${app.metrics.queue-depth-refresh-ms:30000}")
+    public void refreshQueueDepth() {
+        refreshQueueDepth(EnrichmentPriority.NORMAL);
+        if (hasHighPriorityQueue()) {
+            refreshQueueDepth(EnrichmentPriority.HIGH);
+        }
+    }
+
+    private void refreshQueueDepth(EnrichmentPriority lane) {
+        try {
+            String depth = sqsClient.getQueueAttributes(GetQueueAttributesRequest.builder()
+                            .queueUrl(queueUrl(lane))
+                            .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)
+                            .build())
+                    .attributes()
+                    .get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+            if (depth != null) {
+                pipelineMetrics.setQueueDepth(lane.tag(), Long.parseLong(depth));
+            }
+        } catch (Exception e) {
+            logger.debug("Could not read {} enrichment queue depth: {}", lane.tag(), e.getMessage());
+        }
     }
 
     public void sendMessage(Object messagePayload) {
+        sendMessage(messagePayload, EnrichmentPriority.NORMAL);
+    }
+
+    public void sendMessage(Object messagePayload, EnrichmentPriority priority) {
+        sendMessage(messagePayload, priority, traceAttributes());
+    }
+
+    /**
+     * The current trace context as message attributes, for messages sent later from another thread.
+     */
+    public Map<String, MessageAttributeValue> traceAttributes() {
+        return pipelineTracing.messageAttributes();
+    }
+
+    /**
+     * Sends the payload to the queue of {@code priority}. Failures are logged and counted, not thrown.
+     */
+    public SendResult sendMessage(Object messagePayload, EnrichmentPriority priority, Map<String, MessageAttributeValue> traceAttributes) {
         try {
             String messageBody = objectMapper.writeValueAsString(messagePayload);
             SendMessageRequest sendMessageRequest = SendMessageRequest.builder()
-                    .queueUrl(queueUrl)
+                    .queueUrl(queueUrl(priority))
                     .messageBody(messageBody)
+                    // traceparent/tracestate, continued by SQSEnrichmentListener
+                    .messageAttributes(traceAttributes)
                     .build();
-            sqsClient.sendMessage(sendMessageRequest);
+            pipelineExecution.call(PipelineExecution.Dependency.SQS, () -> sqsClient.sendMessage(sendMessageRequest));
             logger.info("Successfully sent message to SQS queue.");
+            return SendResult.SENT;
         } catch (JsonProcessingException e) {
             logger.error("Error serializing message payload to JSON", e);
+            pipelineMetrics.countError(PipelineMetrics.STAGE_ENQUEUE, "unknown", "ERROR_SERIALIZATION");
+            return SendResult.REJECTED;
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (isRejected(e)) {
+                logger.error("SQS rejected the message: {}", e.getMessage(), e);
+                pipelineMetrics.countError(PipelineMetrics.STAGE_ENQUEUE, "unknown", "ERROR_SQS_REJECTED");
+                return SendResult.REJECTED;
+            }
             logger.error("Error sending message to SQS queue", e);
+            pipelineMetrics.countError(PipelineMetrics.STAGE_ENQUEUE, "unknown", "ERROR_SQS_SEND");
+            return SendResult.FAILED;
         }
     }
+
+    // Characters SQS does not allow, or a body or attributes over its size limit (InvalidParameterValue)
+    private static boolean isRejected(Exception e) {
+        return e instanceof InvalidMessageContentsException
+                || e instanceof SqsException sqs && sqs.awsErrorDetails() != null
+                && "InvalidParameterValue".equals(sqs.awsErrorDetails().errorCode());
+    }
 }
\ No newline at end of file
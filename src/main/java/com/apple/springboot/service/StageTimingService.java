@@ -0,0 +1,117 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-page pipeline milestones kept in cleansed_data_store.context under "stageTimings". Each milestone
+ * is written once (first writer wins); durations are derived from cleansed_at when reported.
+ */
+@Service
+public class StageTimingService {
+
+    public static final String ENQUEUED = "enqueuedAt";
+    public static final String FIRST_ENRICHMENT = "firstEnrichmentAt";
+    public static final String SEARCHABLE = "searchableAt";
+
+    static final String STAGE_TIMINGS = "stageTimings";
+
+    private final CleansedDataStoreRepository cleansedDataStoreRepository;
+
+    public StageTimingService(CleansedDataStoreRepository cleansedDataStoreRepository) {
+        this.cleansedDataStoreRepository = cleansedDataStoreRepository;
+    }
+
+    /**
+     * Records a milestone in the database now, and on {@code entry} so a later save of it keeps the value.
+     */
+    public void record(CleansedDataStore entry, String stage) {
+        OffsetDateTime now = OffsetDateTime.now();
+        if (cleansedDataStoreRepository.recordStageTiming(entry.getId(), stage, now)) {
+            timingsOf(entry).putIfAbsent(stage, now.toString());
+        }
+    }
+
+    /**
+     * Records a milestone only on {@code entry}, for callers that save it in their own transaction.
+     */
+    public void recordOnEntity(CleansedDataStore entry, String stage) {
+        timingsOf(entry).putIfAbsent(stage, OffsetDateTime.now().toString());
+    }
+
+    /**
+     * Copies milestones written by other threads into {@code entry} before it is saved whole, so the save
+     * does not drop them.
+     */
+    public void mergeStored(CleansedDataStore entry) {
+        Map<String, Object> stored = cleansedDataStoreRepository.findStageTimings(entry.getId());
+        if (!stored.isEmpty()) {
+            Map<String, Object> timings = timingsOf(entry);
+            stored.forEach(timings::putIfAbsent);
+        }
+    }
+
+    /**
+     * A milestone as held on {@code entry}, or null if it has not been recorded there.
+     */
+    public OffsetDateTime recordedAt(CleansedDataStore entry, String stage) {
+        Object at = entry.getContext() != null && entry.getContext().get(STAGE_TIMINGS) instanceof Map<?, ?> timings
+                ? timings.get(stage)
+                : null;
+        return at instanceof String value ? OffsetDateTime.parse(value) : null;
+    }
+
+    /**
+     * Milestones of a page plus derived durations in milliseconds since cleansing, or null if the page does
+     * not exist.
+     */
+    public Map<String, Object> report(UUID cleansedDataStoreId) {
+        CleansedDataStore entry = cleansedDataStoreRepository.findById(cleansedDataStoreId).orElse(null);
+        if (entry == null) {
+            return null;
+        }
+        Map<String, Object> stored = cleansedDataStoreRepository.findStageTimings(cleansedDataStoreId);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("cleansedDataStoreId", cleansedDataStoreId);
+        report.put("status", entry.getStatus());
+        report.put("cleansedAt", entry.getCleansedAt());
+        if (entry.getContext() != null && entry.getContext().get("priority") != null) {
+            report.put("priority", entry.getContext().get("priority"));
+        }
+        report.putAll(stored);
+        putDuration(report, "timeToEnqueueMs", entry.getCleansedAt(), stored.get(ENQUEUED));
+        putDuration(report, "timeToFirstEnrichmentMs", entry.getCleansedAt(), stored.get(FIRST_ENRICHMENT));
+        putDuration(report, "timeToSearchableMs", entry.getCleansedAt(), stored.get(SEARCHABLE));
+        return report;
+    }
+
+    private static void putDuration(Map<String, Object> report, String key, OffsetDateTime start, Object end) {
+        if (start != null && end instanceof String endAt) {
+            report.put(key, Duration.between(start, OffsetDateTime.parse(endAt)).toMillis());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> timingsOf(CleansedDataStore entry) {
+        Map<String, Object> context = entry.getContext();
+        if (context == null) {
+            context = new HashMap<>();
+            entry.setContext(context);
+        }
+        Object timings = context.get(STAGE_TIMINGS);
+        if (timings instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        Map<String, Object> created = new HashMap<>();
+        context.put(STAGE_TIMINGS, created);
+        return created;
+    }
+}
@@ -1,28 +1,148 @@
 package com.apple.springboot.service;
 
-import com.apple.springboot.model.ContentChunkWithDistance;
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.model.SearchCursor;
 import com.apple.springboot.repository.ContentChunkRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class VectorSearchService {
 
+    public record SearchPage(List<ChunkSearchResult> results, SearchCursor nextCursor) {
+    }
+
     @Autowired
     private ContentChunkRepository contentChunkRepository;
     @Autowired
     private BedrockEnrichmentService bedrockEnrichmentService;
+    @Autowired
+    private SearchResultCache searchResultCache;
+    @Autowired
+    private LocalVectorIndexService localVectorIndexService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.search.page.max-limit:100}")
+    private int maxPageLimit;
+    @Value("${app.search.stream.max-limit:5000}")
+    private int maxStreamLimit;
+    @Value("${app.search.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Not @Transactional: cache hits and the embedding call must not check out a JDBC connection.
+    public List<ChunkSearchResult> search(String query, String original_field_name, int limit, List<String> tags, List<String> keywords, Map<String, Object> contextMap, Double threshold) throws IOException {
+        String field_name = (original_field_name != null && !original_field_name.isEmpty()) ? original_field_name.toLowerCase() : null;
+        SearchResultCache.Key cacheKey = searchResultCache.keyFor(query, field_name, tags, keywords, contextMap, threshold, limit);
+        List<ChunkSearchResult> cached = searchResultCache.getResults(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        return runSearch(cacheKey, embed(query), field_name, limit, tags, keywords, contextMap, threshold);
+    }
+
+    /**
+     * Same as {@link #search} for a query whose embedding the caller already has (batch search).
+     */
+    public List<ChunkSearchResult> search(String query, float[] queryVector, String original_field_name, int limit, List<String> tags, List<String> keywords, Map<String, Object> contextMap, Double threshold) {
+        String field_name = (original_field_name != null && !original_field_name.isEmpty()) ? original_field_name.toLowerCase() : null;
+        SearchResultCache.Key cacheKey = searchResultCache.keyFor(query, field_name, tags, keywords, contextMap, threshold, limit);
+        List<ChunkSearchResult> cached = searchResultCache.getResults(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        return runSearch(cacheKey, queryVector, field_name, limit, tags, keywords, contextMap, threshold);
+    }
 
-    @Transactional(readOnly = true)
-    public List<ContentChunkWithDistance> search(String query, String original_field_name, int limit, List<String> tags, List<String> keywords, Map<String, Object> contextMap, Double threshold) throws IOException {
-        float[] queryVector = bedrockEnrichmentService.generateEmbedding(query);
+    private List<ChunkSearchResult> runSearch(SearchResultCache.Key cacheKey, float[] queryVector, String field_name, int limit, List<String> tags, List<String> keywords, Map<String, Object> contextMap, Double threshold) {
         String[] tagsArray = (tags != null && !tags.isEmpty()) ? tags.toArray(new String[0]) : null;
         String[] keywordsArray = (keywords != null && !keywords.isEmpty()) ? keywords.toArray(new String[0]) : null;
+        List<ChunkSearchResult> results = readOnlyTransaction.execute(status -> {
+            // Hot-locale requests are served by the in-process index when it is enabled and built
+            List<ChunkSearchResult> local = localVectorIndexService.search(queryVector, field_name, tagsArray, keywordsArray, contextMap, threshold, limit);
+            return local != null ? local
+                    : contentChunkRepository.findSimilarProjections(queryVector, field_name, tagsArray, keywordsArray, contextMap, threshold, limit);
+        });
+        searchResultCache.putResults(cacheKey, results);
+        return results;
+    }
+
+    /**
+     * One page of a vector search ordered by (distance, chunk id): a keyset query after {@code after}, or
+     * from the start when it is null. Every page, the first included, bypasses the result cache and the
+     * in-process index, whose order the next page's cursor could not continue from.
+     * {@code nextCursor} is null once a short page shows there is nothing more.
+     */
+    public SearchPage searchPage(String query, String original_field_name, int limit, List<String> tags, List<String> keywords, Map<String, Object> contextMap, Double threshold, SearchCursor after) throws IOException {
+        int pageLimit = pageLimit(limit);
         String field_name = (original_field_name != null && !original_field_name.isEmpty()) ? original_field_name.toLowerCase() : null;
-        return contentChunkRepository.findSimilar(queryVector, field_name, tagsArray, keywordsArray, contextMap, threshold, limit);
+        float[] queryVector = embed(query);
+        String[] tagsArray = (tags != null && !tags.isEmpty()) ? tags.toArray(new String[0]) : null;
+        String[] keywordsArray = (keywords != null && !keywords.isEmpty()) ? keywords.toArray(new String[0]) : null;
+        List<ChunkSearchResult> results = readOnlyTransaction.execute(status ->
+                contentChunkRepository.findSimilarProjections(queryVector, field_name, tagsArray, keywordsArray, contextMap, threshold, pageLimit, after));
+        SearchCursor nextCursor = results.size() == pageLimit ? SearchCursor.after(results.get(results.size() - 1)) : null;
+        return new SearchPage(results, nextCursor);
+    }
+
+    /**
+     * The requested page size clamped to 1..app.search.page.max-limit, for every endpoint that returns one page.
+     */
+    public int pageLimit(int requested) {
+        return Math.max(1, Math.min(requested, maxPageLimit));
+    }
+
+    /**
+     * The number of hits a stream export returns for the requested limit: the maximum when none is given.
+     *
+     * @throws IllegalArgumentException for a limit below 1 or above app.search.stream.max-limit
+     */
+    public int streamLimit(Integer requested) {
+        if (requested == null) {
+            return maxStreamLimit;
+        }
+        if (requested < 1 || requested > maxStreamLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxStreamLimit);
+        }
+        return requested;
+    }
+
+    /**
+     * Streams up to {@code limit} hits to {@code sink} as rows arrive from the database, inside one
+     * read-only transaction; nothing is cached and the full result never sits in memory.
+     */
+    public void streamSearch(float[] queryVector, String original_field_name, int limit, List<String> tags, List<String> keywords, Map<String, Object> contextMap, Double threshold, Consumer<ChunkSearchResult> sink) {
+        String field_name = (original_field_name != null && !original_field_name.isEmpty()) ? original_field_name.toLowerCase() : null;
+        int streamLimit = Math.max(1, Math.min(limit, maxStreamLimit));
+        String[] tagsArray = (tags != null && !tags.isEmpty()) ? tags.toArray(new String[0]) : null;
+        String[] keywordsArray = (keywords != null && !keywords.isEmpty()) ? keywords.toArray(new String[0]) : null;
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ChunkSearchResult> rows = contentChunkRepository.streamSimilarProjections(
+                    queryVector, field_name, tagsArray, keywordsArray, contextMap, threshold, streamLimit, streamFetchSize)) {
+                rows.forEach(sink);
+            }
+        });
+    }
+
+    // Query embedding through the embedding cache
+    public float[] embed(String query) throws IOException {
+        return searchResultCache.getEmbedding(query, () -> bedrockEnrichmentService.generateEmbedding(query));
     }
-}
\ No newline at end of file
+}
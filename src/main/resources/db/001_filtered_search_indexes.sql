@@ -0,0 +1,20 @@
+-- Indexes backing the filtered vector search in ContentChunkRepositoryImpl.findSimilar.
+-- spring.jpa.hibernate.ddl-auto=validate does not create these; apply once per database.
+
+-- ANN index used by the UNFILTERED and ITERATIVE_SCAN strategies (pgvector, cosine distance).
+CREATE INDEX IF NOT EXISTS idx_content_chunks_vector_hnsw
+    ON content_chunks USING hnsw (vector vector_cosine_ops);
+
+-- Join from the pre-filtered section set to its chunks (EXACT_PREFILTER strategy).
+CREATE INDEX IF NOT EXISTS idx_content_chunks_section_id
+    ON content_chunks (consolidated_enriched_section_id);
+
+-- Containment filters on tags/keywords (s.tags @> ..., s.keywords @> ...).
+CREATE INDEX IF NOT EXISTS idx_ces_tags_gin
+    ON consolidated_enriched_sections USING gin (tags);
+CREATE INDEX IF NOT EXISTS idx_ces_keywords_gin
+    ON consolidated_enriched_sections USING gin (keywords);
+
+-- Case-insensitive original_field_name filter.
+CREATE INDEX IF NOT EXISTS idx_ces_original_field_name_lower
+    ON consolidated_enriched_sections (LOWER(original_field_name));
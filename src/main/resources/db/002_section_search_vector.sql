@@ -0,0 +1,28 @@
+-- Stored full-text vector for consolidated_enriched_sections, used by the lexical branch of hybrid search.
+-- array_to_string is not IMMUTABLE, so this cannot be a generated column; a trigger keeps it current.
+-- The column is not mapped on the entity, so ddl-auto=validate is unaffected.
+
+ALTER TABLE consolidated_enriched_sections ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION ces_search_vector_update() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := to_tsvector('english',
+            COALESCE(NEW.summary, '') || ' ' ||
+            COALESCE(NEW.cleansed_text, '') || ' ' ||
+            COALESCE(array_to_string(NEW.tags, ' '), '') || ' ' ||
+            COALESCE(array_to_string(NEW.keywords, ' '), ''));
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_ces_search_vector ON consolidated_enriched_sections;
+CREATE TRIGGER trg_ces_search_vector
+    BEFORE INSERT OR UPDATE OF summary, cleansed_text, tags, keywords
+    ON consolidated_enriched_sections
+    FOR EACH ROW EXECUTE FUNCTION ces_search_vector_update();
+
+-- Backfill existing rows (fires the trigger).
+UPDATE consolidated_enriched_sections SET summary = summary WHERE search_vector IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_ces_search_vector_gin
+    ON consolidated_enriched_sections USING gin (search_vector);
@@ -0,0 +1,41 @@
+-- Weighted search_vector: summary and keywords rank above tags, which rank above the body text.
+-- Replaces the trigger function from 002_section_search_vector.sql; ts_rank_cd uses the weights.
+
+CREATE OR REPLACE FUNCTION ces_search_vector_update() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector :=
+            setweight(to_tsvector('english', COALESCE(NEW.summary, '')), 'A') ||
+            setweight(to_tsvector('english', COALESCE(array_to_string(NEW.keywords, ' '), '')), 'A') ||
+            setweight(to_tsvector('english', COALESCE(array_to_string(NEW.tags, ' '), '')), 'B') ||
+            setweight(to_tsvector('english', COALESCE(NEW.cleansed_text, '')), 'C');
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+-- Recompute existing rows with the weighted vector (fires the trigger) in id-keyset batches, each
+-- committed on its own, so no statement locks the whole table or leaves a dead copy of every row.
+-- The procedure commits, so CALL it outside an explicit transaction block (not under psql -1).
+CREATE OR REPLACE PROCEDURE ces_rebuild_search_vector(batch_size integer DEFAULT 5000)
+LANGUAGE plpgsql AS $$
+DECLARE
+    last_id    uuid;
+    batch_last uuid;
+BEGIN
+    LOOP
+        SELECT id INTO batch_last
+        FROM (SELECT id FROM consolidated_enriched_sections
+              WHERE last_id IS NULL OR id > last_id
+              ORDER BY id LIMIT batch_size) batch
+        ORDER BY id DESC LIMIT 1;
+        EXIT WHEN batch_last IS NULL;
+
+        UPDATE consolidated_enriched_sections SET summary = summary
+        WHERE (last_id IS NULL OR id > last_id) AND id <= batch_last;
+        last_id := batch_last;
+        COMMIT;
+    END LOOP;
+END
+$$;
+
+CALL ces_rebuild_search_vector();
+DROP PROCEDURE ces_rebuild_search_vector(integer);
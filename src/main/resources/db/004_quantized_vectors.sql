@@ -0,0 +1,35 @@
+-- Quantized ANN storage for content_chunks (pgvector >= 0.7), selected with app.search.quantization.mode.
+-- The full-precision vector column stays the source of truth and is used to re-rank ANN candidates.
+-- Once applied, the trigger and both indexes are maintained on every chunk write whatever the mode,
+-- none included. A deployment that stays on one mode can drop what it does not use (statements at the end).
+
+-- halfvec mode: 2 bytes per dimension, half the size of the vector(1024) HNSW index.
+ALTER TABLE content_chunks ADD COLUMN IF NOT EXISTS vector_half halfvec(1024);
+
+CREATE OR REPLACE FUNCTION content_chunks_vector_half_update() RETURNS trigger AS $$
+BEGIN
+    NEW.vector_half := CAST(NEW.vector AS halfvec(1024));
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_content_chunks_vector_half ON content_chunks;
+CREATE TRIGGER trg_content_chunks_vector_half
+    BEFORE INSERT OR UPDATE OF vector ON content_chunks
+    FOR EACH ROW EXECUTE FUNCTION content_chunks_vector_half_update();
+
+-- Existing rows are filled in batches by the application
+-- (app.search.quantization.backfill-on-startup=true) rather than by one long UPDATE here.
+CREATE INDEX IF NOT EXISTS idx_content_chunks_vector_half_hnsw
+    ON content_chunks USING hnsw (vector_half halfvec_cosine_ops);
+
+-- binary mode: 1 bit per dimension (128 bytes per chunk), Hamming distance. Expression index over the
+-- full vector, so it needs no backfill; the query must use the identical expression to hit it.
+CREATE INDEX IF NOT EXISTS idx_content_chunks_vector_binary_hnsw
+    ON content_chunks USING hnsw ((CAST(binary_quantize(vector) AS bit(1024))) bit_hamming_ops);
+
+-- Not using halfvec (re-run the halfvec section and the backfill before switching to it):
+--   DROP TRIGGER IF EXISTS trg_content_chunks_vector_half ON content_chunks;
+--   DROP INDEX IF EXISTS idx_content_chunks_vector_half_hnsw;
+-- Not using binary:
+--   DROP INDEX IF EXISTS idx_content_chunks_vector_binary_hnsw;
@@ -0,0 +1,37 @@
+-- Global refinement facet counts: number of current (not superseded) consolidated sections carrying each
+-- facet value. Maintained incrementally by ConsolidatedSectionService; facet_type uses the chip type names
+-- of RefinementService ("Tag", "Keyword", "original_field_name", "Context:envelope.locale", ...).
+
+CREATE TABLE IF NOT EXISTS facet_counts (
+    facet_type    text   NOT NULL,
+    facet_value   text   NOT NULL,
+    section_count bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (facet_type, facet_value)
+);
+
+-- Lookup of older versions of a section when a new version is consolidated
+CREATE INDEX IF NOT EXISTS idx_ces_source_path_field_version
+    ON consolidated_enriched_sections (source_uri, section_path, original_field_name, version);
+
+-- Initial population; the same statement backs FacetCountRepository.rebuild()
+INSERT INTO facet_counts (facet_type, facet_value, section_count)
+SELECT facet_type, facet_value, count(DISTINCT id)
+FROM (
+    SELECT id, 'original_field_name' AS facet_type, original_field_name AS facet_value
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+    UNION ALL SELECT id, 'Tag', unnest(tags)
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+    UNION ALL SELECT id, 'Keyword', unnest(keywords)
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+    UNION ALL SELECT id, 'Context:facets.sectionKey', context #>> '{facets,sectionKey}'
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+    UNION ALL SELECT id, 'Context:facets.eventType', context #>> '{facets,eventType}'
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+    UNION ALL SELECT id, 'Context:envelope.locale', context #>> '{envelope,locale}'
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+    UNION ALL SELECT id, 'Context:envelope.country', context #>> '{envelope,country}'
+        FROM consolidated_enriched_sections WHERE status IS DISTINCT FROM 'SUPERSEDED'
+) facets
+WHERE facet_value IS NOT NULL AND btrim(facet_value) <> ''
+GROUP BY facet_type, facet_value
+ON CONFLICT (facet_type, facet_value) DO UPDATE SET section_count = EXCLUDED.section_count;
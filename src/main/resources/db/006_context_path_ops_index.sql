@@ -0,0 +1,4 @@
+-- Serves the context filters compiled by ContextFilterCompiler (s.context @> '{"envelope":{"locale":"en_US"}}').
+-- jsonb_path_ops only supports containment, and is smaller and faster for it than the default jsonb_ops.
+CREATE INDEX IF NOT EXISTS idx_ces_context_path_ops_gin
+    ON consolidated_enriched_sections USING gin (context jsonb_path_ops);
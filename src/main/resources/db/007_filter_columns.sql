@@ -0,0 +1,26 @@
+-- Hot context facets promoted to typed columns on both tables (see ContextFilterCompiler.COLUMN_PATHS).
+-- New rows are populated by the application; existing rows by app.search.filter-columns.backfill-on-startup.
+-- Apply before deploying: the columns are mapped on the entities (ddl-auto=validate).
+
+ALTER TABLE consolidated_enriched_sections
+    ADD COLUMN IF NOT EXISTS locale        text,
+    ADD COLUMN IF NOT EXISTS country       text,
+    ADD COLUMN IF NOT EXISTS section_model text,
+    ADD COLUMN IF NOT EXISTS event_type    text;
+
+ALTER TABLE content_chunks
+    ADD COLUMN IF NOT EXISTS locale        text,
+    ADD COLUMN IF NOT EXISTS country       text,
+    ADD COLUMN IF NOT EXISTS section_model text,
+    ADD COLUMN IF NOT EXISTS event_type    text;
+
+CREATE INDEX IF NOT EXISTS idx_ces_locale        ON consolidated_enriched_sections (locale);
+CREATE INDEX IF NOT EXISTS idx_ces_country       ON consolidated_enriched_sections (country);
+CREATE INDEX IF NOT EXISTS idx_ces_section_model ON consolidated_enriched_sections (section_model);
+CREATE INDEX IF NOT EXISTS idx_ces_event_type    ON consolidated_enriched_sections (event_type);
+
+-- Chunk-level filters: exact pre-filtered scans and HNSW iterative scans filter on these without the section join
+CREATE INDEX IF NOT EXISTS idx_content_chunks_locale        ON content_chunks (locale);
+CREATE INDEX IF NOT EXISTS idx_content_chunks_country       ON content_chunks (country);
+CREATE INDEX IF NOT EXISTS idx_content_chunks_section_model ON content_chunks (section_model);
+CREATE INDEX IF NOT EXISTS idx_content_chunks_event_type    ON content_chunks (event_type);
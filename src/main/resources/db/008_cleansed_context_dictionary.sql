@@ -0,0 +1,7 @@
+-- Per-row dictionary of distinct item contexts (see CleansedContextDictionary). New cleansed_items entries
+-- carry a contextRef into it instead of a full inline context; rows written before this migration keep
+-- their inline contexts and are still read as-is.
+-- Apply before deploying: the column is mapped on the entity (ddl-auto=validate).
+
+ALTER TABLE cleansed_data_store
+    ADD COLUMN IF NOT EXISTS context_dictionary jsonb;
@@ -0,0 +1,9 @@
+-- Compressed raw payloads (see RawContentCodec). Encoded rows keep only raw_content_binary; raw_content_text
+-- and source_metadata stay NULL. Existing rows have a NULL content_encoding and are read as before.
+-- Apply before deploying: the columns are mapped on the entity (ddl-auto=validate).
+
+ALTER TABLE raw_data_store
+    ADD COLUMN IF NOT EXISTS content_encoding text,
+    ADD COLUMN IF NOT EXISTS raw_content_size integer,
+    ADD COLUMN IF NOT EXISTS delta_base_id    uuid REFERENCES raw_data_store (id),
+    ADD COLUMN IF NOT EXISTS delta_depth      integer;
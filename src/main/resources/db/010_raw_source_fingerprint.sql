@@ -0,0 +1,6 @@
+-- Fingerprint of the S3 object a raw row was ingested from (app.ingestion.fingerprint-dedup.enabled).
+-- Compared against the latest version of a source_uri only, so no extra index is needed.
+-- Apply before deploying: the column is mapped on the entity (ddl-auto=validate).
+
+ALTER TABLE raw_data_store
+    ADD COLUMN IF NOT EXISTS source_fingerprint text;
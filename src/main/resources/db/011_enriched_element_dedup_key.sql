@@ -0,0 +1,11 @@
+-- Idempotent enrichment: one enriched_content_elements row per (cleansed_data_id, item source path,
+-- original field name, usage path), identified by dedup_key (SHA-256, see EnrichmentPersistenceService.dedupKey).
+-- Redelivered SQS messages find the row and skip Bedrock; concurrent deliveries update it instead of inserting.
+-- Rows written before this migration keep a NULL key and are not deduplicated.
+-- Apply before deploying: the column is mapped on the entity (ddl-auto=validate).
+
+ALTER TABLE enriched_content_elements
+    ADD COLUMN IF NOT EXISTS dedup_key text;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_enriched_content_elements_dedup_key
+    ON enriched_content_elements (dedup_key);
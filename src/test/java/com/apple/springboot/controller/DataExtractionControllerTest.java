@@ -0,0 +1,77 @@
+package com.apple.springboot.controller;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import com.apple.springboot.service.DataIngestionService;
+import com.apple.springboot.service.EnrichmentPipelineService;
+import com.apple.springboot.service.PipelineExecution;
+import com.apple.springboot.service.StageTimingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DataExtractionControllerTest {
+
+    private final CleansedDataStoreRepository repository = mock(CleansedDataStoreRepository.class);
+    private final StageTimingService stageTimingService = new StageTimingService(repository);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new DataExtractionController(
+            mock(DataIngestionService.class), mock(EnrichmentPipelineService.class), repository, stageTimingService,
+            mock(PipelineExecution.class))).build();
+
+    private final CleansedDataStore page = new CleansedDataStore();
+    // The stageTimings object of the page's row
+    private final Map<String, Object> stored = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        page.setId(UUID.randomUUID());
+        page.setStatus("ENRICHED_COMPLETE");
+        page.setCleansedAt(OffsetDateTime.now().minusSeconds(5));
+        when(repository.findById(page.getId())).thenReturn(Optional.of(page));
+        when(repository.recordStageTiming(eq(page.getId()), anyString(), any()))
+                .thenAnswer(invocation -> stored.putIfAbsent(invocation.getArgument(1), invocation.getArgument(2).toString()) == null);
+        when(repository.findStageTimings(page.getId())).thenAnswer(invocation -> Map.copyOf(stored));
+    }
+
+    @Test
+    void stageTimingsReportTheRecordedMilestones() throws Exception {
+        stageTimingService.record(page, StageTimingService.ENQUEUED);
+        stageTimingService.record(page, StageTimingService.FIRST_ENRICHMENT);
+        String enqueuedAt = (String) stored.get(StageTimingService.ENQUEUED);
+        // A second writer does not move a milestone
+        stageTimingService.record(page, StageTimingService.ENQUEUED);
+
+        mockMvc.perform(get("/api/cleansed-data-timings/{id}", page.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ENRICHED_COMPLETE"))
+                .andExpect(jsonPath("$.enqueuedAt").value(enqueuedAt))
+                .andExpect(jsonPath("$.firstEnrichmentAt").exists())
+                .andExpect(jsonPath("$.searchableAt").doesNotExist())
+                .andExpect(jsonPath("$.timeToEnqueueMs").value(greaterThanOrEqualTo(5000)))
+                .andExpect(jsonPath("$.timeToFirstEnrichmentMs").exists())
+                .andExpect(jsonPath("$.timeToSearchableMs").doesNotExist());
+    }
+
+    @Test
+    void stageTimingsOfAnUnknownPageAreNotFound() throws Exception {
+        mockMvc.perform(get("/api/cleansed-data-timings/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+}
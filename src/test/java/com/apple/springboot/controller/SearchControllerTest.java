@@ -0,0 +1,83 @@
+package com.apple.springboot.controller;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.service.BatchSearchService;
+import com.apple.springboot.service.FacetCountService;
+import com.apple.springboot.service.HybridSearchService;
+import com.apple.springboot.service.LocalVectorIndexService;
+import com.apple.springboot.service.QuantizedSearchService;
+import com.apple.springboot.service.RefinementService;
+import com.apple.springboot.service.VectorSearchService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SearchControllerTest {
+
+    private final VectorSearchService vectorSearchService = mock(VectorSearchService.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SearchController(
+            mock(RefinementService.class), vectorSearchService, mock(HybridSearchService.class),
+            mock(QuantizedSearchService.class), mock(LocalVectorIndexService.class), mock(BatchSearchService.class),
+            mock(FacetCountService.class), new ObjectMapper())).build();
+
+    @Test
+    void streamRejectsAnOutOfRangeLimitBeforeEmbedding() throws Exception {
+        when(vectorSearchService.streamLimit(50_000)).thenThrow(new IllegalArgumentException("limit must be between 1 and 10000"));
+
+        mockMvc.perform(post("/api/search/stream").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\":\"iphone\",\"limit\":50000}"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("limit must be between 1 and 10000"));
+        verify(vectorSearchService, never()).embed(any());
+    }
+
+    @Test
+    void streamWritesOneSearchResultPerLine() throws Exception {
+        when(vectorSearchService.streamLimit(2)).thenReturn(2);
+        when(vectorSearchService.embed("iphone")).thenReturn(new float[]{0.1f});
+        doAnswer(invocation -> {
+            Consumer<ChunkSearchResult> sink = invocation.getArgument(7);
+            sink.accept(hit("Hello", "copy", "/content/page/hero"));
+            sink.accept(hit("World", "title", "/content/page/footer"));
+            return null;
+        }).when(vectorSearchService).streamSearch(any(), any(), eq(2), any(), any(), any(), any(), any());
+
+        MvcResult result = mockMvc.perform(post("/api/search/stream").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\":\"iphone\",\"limit\":2}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"cleansedText\":\"Hello\",\"sourceFieldName\":\"copy\",\"sectionPath\":\"/content/page/hero\"}\n"
+                                + "{\"cleansedText\":\"World\",\"sourceFieldName\":\"title\",\"sectionPath\":\"/content/page/footer\"}\n"));
+    }
+
+    private static ChunkSearchResult hit(String cleansedText, String fieldName, String sectionPath) {
+        return new ChunkSearchResult(UUID.randomUUID(), UUID.randomUUID(), "chunk", sectionPath, "s3://bucket/page.json",
+                cleansedText, fieldName, List.of(), List.of(), Map.of(), 0.1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.apple.springboot.repository;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContentChunkRepositoryImplTest {
+
+    private static final float[] EMBEDDING = {0.1f, 0.2f};
+
+    private final ContentChunkRepositoryImpl repository = new ContentChunkRepositoryImpl();
+    private final EntityManager entityManager = mock(EntityManager.class);
+    // Every native statement issued, in order, and the query it was given
+    private final List<String> statements = new ArrayList<>();
+    private final List<Query> queries = new ArrayList<>();
+    private long matchingSections;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(repository, "entityManager", entityManager);
+        ReflectionTestUtils.setField(repository, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(repository, "exactCandidateLimit", 2000);
+        ReflectionTestUtils.setField(repository, "minOverfetchFactor", 4);
+        ReflectionTestUtils.setField(repository, "maxOverfetchFactor", 40);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> query(invocation.getArgument(0)));
+    }
+
+    @Test
+    void unfilteredSearchIsAPlainIndexScan() {
+        search(null);
+
+        assertThat(statements).singleElement().asString().startsWith("WITH nearest AS MATERIALIZED");
+    }
+
+    @Test
+    void selectiveFilterSearchesOnlyTheMatchingSections() {
+        matchingSections = 10;
+
+        search(new String[]{"iphone"});
+
+        assertThat(statements).hasSize(2);
+        assertThat(statements.get(0)).startsWith("SELECT count(*)");
+        assertThat(statements.get(1)).startsWith("WITH candidate_sections AS MATERIALIZED");
+    }
+
+    @Test
+    void broadFilterOverFetchesFromTheIndexAndFallsBackWhenShort() {
+        matchingSections = 2001;
+
+        search(new String[]{"iphone"});
+
+        assertThat(statements).hasSize(4);
+        assertThat(statements.get(1)).contains("pg_class");
+        assertThat(statements.get(2)).startsWith("WITH candidates AS MATERIALIZED");
+        // 100000 sections / 2001 matching rounds up to 50, capped at the max factor of 40
+        verify(queries.get(2)).setParameter("candidate_limit", 400);
+        // No rows came back, so the exact pass runs
+        assertThat(statements.get(3)).startsWith("WITH candidate_sections AS MATERIALIZED");
+    }
+
+    @Test
+    void firstPageOfAnUnfilteredSearchUsesTheKeysetPlan() {
+        repository.findSimilarProjections(EMBEDDING, null, null, null, null, null, 10, null);
+
+        // Same iterative scan the cursor pages continue with, not the plain ANN scan; a short page is the last
+        assertThat(statements).singleElement().asString().startsWith("WITH candidates AS MATERIALIZED");
+    }
+
+    @Test
+    void everyPlanSkipsSupersededSections() {
+        search(null);
+        matchingSections = 10;
+        search(new String[]{"iphone"});
+        matchingSections = 2001;
+        search(new String[]{"iphone"});
+        repository.findSimilarProjections(EMBEDDING, null, null, null, Map.of("envelope", Map.of("locale", "en_US")), null, 10);
+        repository.findLexicalProjections("iphone", null, null, null, null, 10);
+
+        assertThat(statements).filteredOn(sql -> !sql.contains("pg_class"))
+                .allSatisfy(sql -> assertThat(sql).containsAnyOf(
+                        "s.status IS DISTINCT FROM 'SUPERSEDED'", "superseded.status = 'SUPERSEDED'"));
+    }
+
+    private List<ChunkSearchResult> search(String[] tags) {
+        return repository.findSimilarProjections(EMBEDDING, null, tags, null, null, null, 10);
+    }
+
+    private Query query(String sql) {
+        Query query = mock(Query.class, RETURNS_SELF);
+        if (sql.startsWith("SELECT count(*)")) {
+            when(query.getSingleResult()).thenReturn(matchingSections);
+        } else if (sql.contains("pg_class")) {
+            when(query.getResultList()).thenReturn(List.of(100_000L));
+        } else {
+            when(query.getResultList()).thenReturn(List.of());
+        }
+        statements.add(sql);
+        queries.add(query);
+        return query;
+    }
+}
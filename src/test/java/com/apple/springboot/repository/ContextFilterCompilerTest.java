@@ -0,0 +1,77 @@
+package com.apple.springboot.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContextFilterCompilerTest {
+
+    private final ContextFilterCompiler compiler = new ContextFilterCompiler(new ObjectMapper());
+    private final Map<String, Object> params = new HashMap<>();
+
+    @Test
+    void columnFilterFallsBackToTheContextOfRowsNotYetBackfilled() {
+        ContextFilterCompiler.Compiled compiled = compiler.compile(
+                Map.of("envelope", Map.of("locale", List.of("en_US", "en_GB"))), params);
+
+        assertThat(compiled.sectionSql()).isEqualTo(" AND (s.locale = ANY(CAST(:ctx0 AS text[]))"
+                + " OR (s.locale IS NULL AND (s.context @> CAST(:ctx1 AS jsonb) OR s.context @> CAST(:ctx2 AS jsonb))))");
+        assertThat(compiled.chunkSql()).isEqualTo(" AND (c.locale = ANY(CAST(:ctx0 AS text[]))"
+                + " OR (c.locale IS NULL AND EXISTS (SELECT 1 FROM consolidated_enriched_sections parent"
+                + " WHERE parent.id = c.consolidated_enriched_section_id"
+                + " AND (parent.context @> CAST(:ctx1 AS jsonb) OR parent.context @> CAST(:ctx2 AS jsonb)))))");
+        assertThat(params).containsEntry("ctx1", "{\"envelope\":{\"locale\":\"en_US\"}}")
+                .containsEntry("ctx2", "{\"envelope\":{\"locale\":\"en_GB\"}}");
+        assertThat((String[]) params.get("ctx0")).containsExactly("en_US", "en_GB");
+    }
+
+    @Test
+    void pathsWithoutAColumnCompileToContainmentOnTheSectionOnly() {
+        ContextFilterCompiler.Compiled compiled = compiler.compile(
+                Map.of("facets", Map.of("sectionKey", "hero")), params);
+
+        assertThat(compiled.sectionSql()).isEqualTo(" AND (s.context @> CAST(:ctx0 AS jsonb))");
+        assertThat(compiled.chunkSql()).isNull();
+        assertThat(params).containsOnly(Map.entry("ctx0", "{\"facets\":{\"sectionKey\":\"hero\"}}"));
+    }
+
+    @Test
+    void pathsAreAndedAndNonStringValuesMatchAsStrings() {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("facets", Map.of("sectionIndex", 3));
+        filter.put("envelope", Map.of("sectionName", "hero"));
+        filter.put("usage", Map.of());
+
+        ContextFilterCompiler.Compiled compiled = compiler.compile(filter, params);
+
+        assertThat(compiled.sectionSql())
+                .isEqualTo(" AND (s.context @> CAST(:ctx0 AS jsonb)) AND (s.context @> CAST(:ctx1 AS jsonb))");
+        assertThat(params).containsEntry("ctx0", "{\"facets\":{\"sectionIndex\":\"3\"}}")
+                .containsEntry("ctx1", "{\"envelope\":{\"sectionName\":\"hero\"}}");
+    }
+
+    @Test
+    void emptyValueListsFilterNothing() {
+        ContextFilterCompiler.Compiled compiled = compiler.compile(
+                Map.of("envelope", Map.of("sectionName", List.of())), params);
+
+        assertThat(compiled.sectionSql()).isEmpty();
+        assertThat(params).isEmpty();
+    }
+
+    @Test
+    void pathsOutsideTheWhitelistAreRejected() {
+        assertThatThrownBy(() -> compiler.compile(Map.of("envelope", Map.of("locale) OR (1=1", "x")), params))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("envelope.locale) OR (1=1");
+        assertThatThrownBy(() -> compiler.compile(Map.of("envelope", "en_US"), params))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
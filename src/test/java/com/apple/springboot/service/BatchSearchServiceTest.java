@@ -0,0 +1,39 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.BatchSearchRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchSearchServiceTest {
+
+    private final VectorSearchService vectorSearchService = mock(VectorSearchService.class);
+    private final BatchSearchService service = new BatchSearchService(vectorSearchService, 200, 2, 2);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void eachDistinctQueryIsSearchedOnceWithTheCappedLimit() throws Exception {
+        when(vectorSearchService.pageLimit(1_000_000)).thenReturn(100);
+        when(vectorSearchService.embed(anyString())).thenReturn(new float[]{0.1f});
+        BatchSearchRequest request = new BatchSearchRequest();
+        request.setQueries(List.of("iphone", "ipad", "iphone"));
+
+        assertThat(service.search(request, 1_000_000)).containsOnlyKeys("iphone", "ipad");
+
+        verify(vectorSearchService, times(2)).search(anyString(), any(float[].class), any(), eq(100), any(), any(), any(), any());
+    }
+}
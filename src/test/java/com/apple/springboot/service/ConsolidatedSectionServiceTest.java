@@ -0,0 +1,118 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.model.ConsolidatedEnrichedSection;
+import com.apple.springboot.model.EnrichedContentElement;
+import com.apple.springboot.repository.ConsolidatedEnrichedSectionRepository;
+import com.apple.springboot.repository.ContentHashRepository;
+import com.apple.springboot.repository.EnrichedContentElementRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsolidatedSectionServiceTest {
+
+    private final EnrichedContentElementRepository enrichedRepository = mock(EnrichedContentElementRepository.class);
+    private final ConsolidatedEnrichedSectionRepository consolidatedRepository = mock(ConsolidatedEnrichedSectionRepository.class);
+    private final FacetCountService facetCountService = mock(FacetCountService.class);
+    private final LocalVectorIndexService localVectorIndexService = mock(LocalVectorIndexService.class);
+    private final ConsolidatedSectionService service = new ConsolidatedSectionService(enrichedRepository,
+            consolidatedRepository, mock(ContentHashRepository.class), facetCountService, localVectorIndexService);
+
+    private final CleansedDataStore page = new CleansedDataStore();
+    private final ConsolidatedEnrichedSection previous = new ConsolidatedEnrichedSection();
+
+    @BeforeEach
+    void setUp() {
+        page.setId(UUID.randomUUID());
+        page.setVersion(2);
+        EnrichedContentElement item = new EnrichedContentElement();
+        item.setItemSourcePath("/content/page/hero");
+        item.setItemOriginalFieldName("copy");
+        item.setCleansedText("Hello world");
+        item.setSourceUri("s3://bucket/page.json");
+        item.setStatus("ENRICHED");
+        when(enrichedRepository.findAllByCleansedDataId(page.getId())).thenReturn(List.of(item));
+        // Written before statuses were set: a NULL status is still current
+        when(consolidatedRepository.findPreviousVersionsWithStatusNot(eq("s3://bucket/page.json"), eq("/content/page/hero"),
+                eq("copy"), eq(2), eq(FacetCountService.SUPERSEDED_STATUS))).thenReturn(List.of(previous));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void facetDeltasAreAppliedOnlyAfterCommit() {
+        service.saveFromCleansedEntry(page);
+
+        assertThat(previous.getStatus()).isEqualTo(FacetCountService.SUPERSEDED_STATUS);
+        verify(facetCountService, never()).recordChanges(any(), any());
+        verify(localVectorIndexService).removeAfterCommit(List.of(previous));
+
+        commit();
+
+        ArgumentCaptor<Collection<ConsolidatedEnrichedSection>> added = captor();
+        ArgumentCaptor<Collection<ConsolidatedEnrichedSection>> removed = captor();
+        verify(facetCountService).recordChanges(added.capture(), removed.capture());
+        assertThat(added.getValue()).singleElement().extracting(ConsolidatedEnrichedSection::getCleansedText).isEqualTo("Hello world");
+        assertThat(removed.getValue()).containsExactly(previous);
+    }
+
+    @Test
+    void failedFacetUpdateDoesNotFailTheCommittedConsolidation() {
+        doThrow(new IllegalStateException("deadlock detected")).when(facetCountService).recordChanges(any(), any());
+
+        service.saveFromCleansedEntry(page);
+        commit();
+
+        verify(facetCountService).recordChanges(any(), any());
+    }
+
+    @Test
+    void rolledBackConsolidationIsNotCounted() {
+        service.saveFromCleansedEntry(page);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(facetCountService, never()).recordChanges(any(), any());
+    }
+
+    @Test
+    void replayedFinalizationKeepsTheSectionsAlreadyConsolidated() {
+        when(consolidatedRepository.existsByCleansedDataIdAndVersion(page.getId(), 2)).thenReturn(true);
+
+        service.saveFromCleansedEntry(page);
+
+        verify(consolidatedRepository, never()).save(any());
+        assertThat(previous.getStatus()).isNull();
+    }
+
+    private static void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Collection<ConsolidatedEnrichedSection>> captor() {
+        return ArgumentCaptor.forClass(Collection.class);
+    }
+}
@@ -0,0 +1,134 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.model.EnrichedContentElement;
+import com.apple.springboot.repository.EnrichedContentElementRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnrichmentPersistenceServiceTest {
+
+    private final EnrichedContentElementRepository repository = mock(EnrichedContentElementRepository.class);
+    private final EnrichmentPersistenceService service = new EnrichmentPersistenceService(repository, new ObjectMapper(),
+            mock(PlatformTransactionManager.class));
+
+    private final CleansedDataStore page = new CleansedDataStore();
+    private final CleansedItemDetail item = new CleansedItemDetail("/content/page/hero", "copy", "Hello world", "hero", null);
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        page.setId(UUID.randomUUID());
+        page.setSourceUri("s3://bucket/page.json");
+        key = EnrichmentPersistenceService.dedupKey(page.getId(), item);
+        when(repository.findByDedupKey(key)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void dedupKeyIdentifiesTheItemOfThePage() {
+        assertThat(EnrichmentPersistenceService.dedupKey(page.getId(), item)).isEqualTo(key).hasSize(64);
+        assertThat(EnrichmentPersistenceService.dedupKey(UUID.randomUUID(), item)).isNotEqualTo(key);
+        assertThat(EnrichmentPersistenceService.dedupKey(page.getId(),
+                new CleansedItemDetail("/content/page/hero", "title", "Hello world", "hero", null))).isNotEqualTo(key);
+    }
+
+    @Test
+    void onlyEnrichedRowsCountAsProcessed() {
+        when(repository.existsByDedupKeyAndStatus(key, "ENRICHED")).thenReturn(true);
+
+        assertThat(service.isProcessed(key)).isTrue();
+        assertThat(service.isProcessed("other")).isFalse();
+        verify(repository).existsByDedupKeyAndStatus("other", "ENRICHED");
+    }
+
+    @Test
+    void firstWriteInsertsARowWithTheDedupKey() {
+        service.saveEnrichedElement(item, page, bedrockResponse(), "ENRICHED");
+
+        EnrichedContentElement saved = savedElement();
+        assertThat(saved.getDedupKey()).isEqualTo(key);
+        assertThat(saved.getStatus()).isEqualTo("ENRICHED");
+        assertThat(saved.getSummary()).isEqualTo("A greeting");
+        assertThat(saved.getCleansedDataId()).isEqualTo(page.getId());
+    }
+
+    @Test
+    void retryOverwritesTheErrorRowOfAnEarlierDelivery() {
+        EnrichedContentElement errorRow = new EnrichedContentElement();
+        errorRow.setDedupKey(key);
+        errorRow.setStatus("ERROR_ENRICHMENT_FAILED");
+        when(repository.findByDedupKey(key)).thenReturn(Optional.of(errorRow));
+
+        service.saveEnrichedElement(item, page, bedrockResponse(), "ENRICHED");
+
+        assertThat(savedElement()).isSameAs(errorRow);
+        assertThat(errorRow.getStatus()).isEqualTo("ENRICHED");
+    }
+
+    @Test
+    void errorNeverOverwritesAnEnrichedRow() {
+        EnrichedContentElement enriched = new EnrichedContentElement();
+        enriched.setDedupKey(key);
+        enriched.setStatus("ENRICHED");
+        when(repository.findByDedupKey(key)).thenReturn(Optional.of(enriched));
+
+        service.saveErrorEnrichedElement(item, page, "ERROR_UNEXPECTED", "boom");
+
+        verify(repository, never()).saveAndFlush(any());
+        assertThat(enriched.getStatus()).isEqualTo("ENRICHED");
+    }
+
+    @Test
+    void uniqueViolationFromAConcurrentDeliveryUpdatesItsRow() {
+        EnrichedContentElement concurrent = new EnrichedContentElement();
+        concurrent.setDedupKey(key);
+        concurrent.setStatus("ENRICHED");
+        when(repository.findByDedupKey(key)).thenReturn(Optional.empty(), Optional.of(concurrent));
+        when(repository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.saveEnrichedElement(item, page, bedrockResponse(), "ENRICHED");
+
+        ArgumentCaptor<EnrichedContentElement> saved = ArgumentCaptor.forClass(EnrichedContentElement.class);
+        verify(repository, times(2)).saveAndFlush(saved.capture());
+        assertThat(saved.getAllValues().get(0)).isNotSameAs(concurrent);
+        assertThat(saved.getAllValues().get(1)).isSameAs(concurrent);
+        assertThat(concurrent.getSummary()).isEqualTo("A greeting");
+    }
+
+    private EnrichedContentElement savedElement() {
+        ArgumentCaptor<EnrichedContentElement> saved = ArgumentCaptor.forClass(EnrichedContentElement.class);
+        verify(repository).saveAndFlush(saved.capture());
+        return saved.getValue();
+    }
+
+    private static Map<String, Object> bedrockResponse() {
+        return new HashMap<>(Map.of(
+                "enrichedWithModel", "test-model",
+                "standardEnrichments", Map.of(
+                        "summary", "A greeting",
+                        "sentiment", "positive",
+                        "classification", "marketing",
+                        "keywords", List.of("hello"),
+                        "tags", List.of("greeting"))));
+    }
+}
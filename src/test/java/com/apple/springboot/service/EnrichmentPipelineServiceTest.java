@@ -0,0 +1,75 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.model.EnrichmentPriority;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnrichmentPipelineServiceTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(2);
+
+    private final CleansedDataStoreRepository repository = mock(CleansedDataStoreRepository.class);
+    private final FairEnrichmentScheduler scheduler = mock(FairEnrichmentScheduler.class);
+    private final EnrichmentPipelineService service = new EnrichmentPipelineService(repository, new ObjectMapper(), scheduler,
+            new PipelineMetrics(new SimpleMeterRegistry()), mock(StageTimingService.class), true);
+
+    private final CleansedDataStore page = new CleansedDataStore();
+
+    @BeforeEach
+    void setUp() {
+        page.setId(UUID.randomUUID());
+        page.setStatus("ENRICHMENT_QUEUED");
+        page.setCleansedItems(List.of(
+                Map.of("sourcePath", "/a", "originalFieldName", "copy", "cleansedContent", "first"),
+                Map.of("sourcePath", "/b", "originalFieldName", "copy", "cleansedContent", "second"),
+                Map.of("sourcePath", "/c", "originalFieldName", "copy", "cleansedContent", "third")));
+        page.setContext(new HashMap<>(Map.of("dispatchedCount", 1, "expectedEnrichmentCount", 3, "priority", "HIGH")));
+        when(scheduler.instanceId()).thenReturn("instance-a");
+        when(scheduler.dispatchLease()).thenReturn(LEASE);
+        when(repository.findIdsWithUnfinishedDispatch(LEASE)).thenReturn(List.of(page.getId()));
+        when(repository.findById(page.getId())).thenReturn(Optional.of(page));
+    }
+
+    @Test
+    void claimedPageResumesFromItsDispatchedCount() {
+        when(repository.claimDispatch(page.getId(), "instance-a", LEASE)).thenReturn(true);
+
+        service.resumeDispatch();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CleansedItemDetail>> items = ArgumentCaptor.forClass(List.class);
+        verify(scheduler).schedule(eq(page.getId()), items.capture(), eq(1), eq(EnrichmentPriority.HIGH));
+        assertThat(items.getValue()).extracting(item -> item.sourcePath).containsExactly("/a", "/b", "/c");
+    }
+
+    @Test
+    void pageClaimedByAnotherInstanceIsNotResumed() {
+        when(repository.claimDispatch(page.getId(), "instance-a", LEASE)).thenReturn(false);
+
+        service.resumeDispatch();
+
+        verify(scheduler, never()).schedule(any(), any(), anyInt(), any());
+        verify(repository, never()).findById(page.getId());
+    }
+}
@@ -0,0 +1,241 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.model.ConsolidatedEnrichedSection;
+import com.apple.springboot.model.EnrichmentMessage;
+import com.apple.springboot.model.EnrichmentPriority;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import com.apple.springboot.repository.ContentChunkRepository;
+import com.apple.springboot.repository.EnrichedContentElementRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class EnrichmentProcessorTest {
+
+    private final BedrockEnrichmentService bedrock = mock(BedrockEnrichmentService.class);
+    private final CleansedDataStoreRepository cleansedRepository = mock(CleansedDataStoreRepository.class);
+    private final EnrichedContentElementRepository enrichedRepository = mock(EnrichedContentElementRepository.class);
+    private final ConsolidatedSectionService consolidatedSectionService = mock(ConsolidatedSectionService.class);
+    private final TextChunkingService textChunkingService = mock(TextChunkingService.class);
+    private final PipelineExecution pipelineExecution = mock(PipelineExecution.class);
+    private final EnrichmentPersistenceService persistenceService = mock(EnrichmentPersistenceService.class);
+    private final PipelineTracing pipelineTracing = mock(PipelineTracing.class);
+    private final ContentChunkRepository contentChunkRepository = mock(ContentChunkRepository.class);
+
+    private final EnrichmentProcessor processor = new EnrichmentProcessor(bedrock, cleansedRepository, enrichedRepository,
+            consolidatedSectionService, textChunkingService, contentChunkRepository, pipelineExecution,
+            persistenceService, mock(AIResponseValidator.class), new ObjectMapper(), mock(SearchResultCache.class),
+            mock(LocalVectorIndexService.class), new PipelineMetrics(new SimpleMeterRegistry()), pipelineTracing,
+            mock(StageTimingService.class), mock(PlatformTransactionManager.class), mock(FairEnrichmentScheduler.class),
+            900_000L);
+
+    private final CleansedDataStore page = new CleansedDataStore();
+    private final CleansedItemDetail item = new CleansedItemDetail("/content/page/hero", "copy", "Hello world", "hero", null);
+    private final EnrichmentMessage message = new EnrichmentMessage(item, null, EnrichmentPriority.NORMAL);
+
+    @BeforeEach
+    void setUp() {
+        page.setId(UUID.randomUUID());
+        page.setSourceUri("s3://bucket/page.json");
+        page.setStatus("ENRICHMENT_QUEUED");
+        page.setCleansedItems(List.of(Map.of("cleansedContent", "Hello world")));
+        page.setContext(new HashMap<>(Map.of("expectedEnrichmentCount", 1)));
+        message.setCleansedDataStoreId(page.getId());
+        when(cleansedRepository.findById(page.getId())).thenReturn(Optional.of(page));
+        when(pipelineTracing.startSpan(anyString())).thenReturn(mock(Span.class));
+        when(consolidatedSectionService.getSectionsFor(page)).thenReturn(List.of());
+        when(cleansedRepository.renewFinalizationLease(eq(page.getId()), anyString())).thenReturn(true);
+    }
+
+    @AfterEach
+    void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    void redeliveryOfAnEnrichedItemSkipsBedrock() {
+        when(persistenceService.isProcessed(EnrichmentPersistenceService.dedupKey(page.getId(), item))).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataId(page.getId())).thenReturn(0L);
+
+        processor.process(message);
+
+        verifyNoInteractions(bedrock);
+        verify(persistenceService, never()).saveEnrichedElement(any(), any(), any(), any());
+        verify(cleansedRepository, never()).claimFinalization(any(), any(), any());
+    }
+
+    @Test
+    void itemWhoseEarlierDeliveryFailedIsEnrichedAgain() throws Exception {
+        when(persistenceService.isProcessed(anyString())).thenReturn(false);
+        when(pipelineExecution.call(eq(PipelineExecution.Dependency.BEDROCK), eq(EnrichmentPriority.NORMAL), any()))
+                .thenAnswer(invocation -> invocation.<PipelineExecution.RemoteCall<?, ?>>getArgument(2).call());
+        when(bedrock.enrichItem(any(), any())).thenReturn(new HashMap<>(Map.of("error", "throttled")));
+
+        processor.process(message);
+
+        verify(bedrock).enrichItem(any(), any());
+        verify(persistenceService).saveErrorEnrichedElement(eq(item), eq(page), eq("ERROR_ENRICHMENT_FAILED"), anyString());
+    }
+
+    @Test
+    void failedFinalizationIsReleasedAndFinalizedByTheRedelivery() {
+        when(persistenceService.isProcessed(anyString())).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataId(page.getId())).thenReturn(1L);
+        when(enrichedRepository.countByCleansedDataIdAndStatus(page.getId(), "ENRICHED")).thenReturn(1L);
+        when(cleansedRepository.claimFinalization(eq(page.getId()), anyString(), any())).thenReturn(true);
+        doThrow(new IllegalStateException("connection reset")).doNothing()
+                .when(consolidatedSectionService).saveFromCleansedEntry(page);
+
+        assertThatThrownBy(() -> processor.process(message)).hasMessage("connection reset");
+        verify(cleansedRepository).releaseFinalization(eq(page.getId()), anyString());
+        verify(cleansedRepository, never()).save(page);
+
+        // The message was not deleted, so SQS delivers it again
+        processor.process(message);
+
+        verify(cleansedRepository, times(2)).claimFinalization(eq(page.getId()), anyString(), any());
+        verify(cleansedRepository, times(1)).releaseFinalization(eq(page.getId()), anyString());
+        verify(cleansedRepository).save(page);
+        assertThat(page.getStatus()).isEqualTo("ENRICHED_COMPLETE");
+    }
+
+    @Test
+    void interruptedFinalizationIsReleased() throws Exception {
+        ConsolidatedEnrichedSection section = new ConsolidatedEnrichedSection();
+        section.setCleansedText("Hello world");
+        when(consolidatedSectionService.getSectionsFor(page)).thenReturn(List.of(section));
+        when(textChunkingService.chunkIfNeeded("Hello world")).thenReturn(List.of("Hello world"));
+        doThrow(new InterruptedException()).when(pipelineExecution).forEachInScope(any(), any());
+        when(persistenceService.isProcessed(anyString())).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataId(page.getId())).thenReturn(1L);
+        when(cleansedRepository.claimFinalization(eq(page.getId()), anyString(), any())).thenReturn(true);
+
+        assertThatThrownBy(() -> processor.process(message)).isInstanceOf(IllegalStateException.class);
+
+        verify(cleansedRepository).releaseFinalization(eq(page.getId()), anyString());
+        verify(cleansedRepository, never()).save(page);
+    }
+
+    @Test
+    void interruptionWhileEmbeddingReleasesTheClaim() throws Exception {
+        when(consolidatedSectionService.getSectionsFor(page)).thenReturn(List.of(section("Hello world")));
+        when(textChunkingService.chunkIfNeeded("Hello world")).thenReturn(List.of("Hello world"));
+        doAnswer(invocation -> {
+            for (Object chunk : invocation.<List<?>>getArgument(0)) {
+                invocation.<PipelineExecution.ItemTask<Object>>getArgument(1).run(chunk);
+            }
+            return null;
+        }).when(pipelineExecution).forEachInScope(any(), any());
+        when(pipelineExecution.call(eq(PipelineExecution.Dependency.BEDROCK), any(), any()))
+                .thenThrow(new CancellationException("Interrupted waiting for a BEDROCK permit"));
+        when(persistenceService.isProcessed(anyString())).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataId(page.getId())).thenReturn(1L);
+        when(cleansedRepository.claimFinalization(eq(page.getId()), anyString(), any())).thenReturn(true);
+
+        assertThatThrownBy(() -> processor.process(message)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        verify(cleansedRepository).releaseFinalization(eq(page.getId()), anyString());
+        verify(cleansedRepository, never()).save(page);
+    }
+
+    @Test
+    void failedChunkSaveLeavesThePageToBeFinalizedAgain() throws Exception {
+        when(consolidatedSectionService.getSectionsFor(page)).thenReturn(List.of(section("Hello world")));
+        when(textChunkingService.chunkIfNeeded("Hello world")).thenReturn(List.of("Hello world"));
+        doAnswer(invocation -> {
+            for (Object chunk : invocation.<List<?>>getArgument(0)) {
+                invocation.<PipelineExecution.ItemTask<Object>>getArgument(1).run(chunk);
+            }
+            return null;
+        }).when(pipelineExecution).forEachInScope(any(), any());
+        when(pipelineExecution.call(eq(PipelineExecution.Dependency.BEDROCK), any(), any())).thenReturn(new float[]{0.1f});
+        when(contentChunkRepository.saveAll(any())).thenThrow(new IllegalStateException("value too long"));
+        when(persistenceService.isProcessed(anyString())).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataId(page.getId())).thenReturn(1L);
+        when(cleansedRepository.claimFinalization(eq(page.getId()), anyString(), any())).thenReturn(true);
+
+        assertThatThrownBy(() -> processor.process(message)).isInstanceOf(IllegalStateException.class);
+
+        verify(contentChunkRepository).saveAll(any());
+        verify(cleansedRepository).releaseFinalization(eq(page.getId()), anyString());
+        verify(cleansedRepository, never()).save(page);
+    }
+
+    @Test
+    void finalizerThatLostItsClaimWritesNothing() {
+        when(persistenceService.isProcessed(anyString())).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataId(page.getId())).thenReturn(1L);
+        when(cleansedRepository.claimFinalization(eq(page.getId()), anyString(), any())).thenReturn(true);
+        // The lease expired while embedding and the sweep handed the page to another finalizer
+        when(cleansedRepository.renewFinalizationLease(eq(page.getId()), anyString())).thenReturn(false);
+
+        assertThatThrownBy(() -> processor.process(message)).isInstanceOf(IllegalStateException.class);
+
+        verify(cleansedRepository, never()).save(page);
+        assertThat(page.getStatus()).isEqualTo("ENRICHMENT_QUEUED");
+    }
+
+    @Test
+    void replayedFinalizationOnlyChunksSectionsWithoutChunks() throws Exception {
+        ConsolidatedEnrichedSection chunked = section("Chunked before the failure");
+        ConsolidatedEnrichedSection unchunked = section("Not chunked yet");
+        when(consolidatedSectionService.getSectionsFor(page)).thenReturn(List.of(chunked, unchunked));
+        when(contentChunkRepository.findSectionIdsWithChunks(List.of(chunked.getId(), unchunked.getId())))
+                .thenReturn(Set.of(chunked.getId()));
+        when(textChunkingService.chunkIfNeeded(anyString())).thenAnswer(invocation -> List.of(invocation.<String>getArgument(0)));
+
+        assertThat(processor.runFinalizationSteps(page, EnrichmentPriority.NORMAL, "owner")).isTrue();
+
+        verify(textChunkingService, never()).chunkIfNeeded("Chunked before the failure");
+        verify(pipelineExecution).forEachInScope(argThat(pending -> pending.size() == 1), any());
+    }
+
+    @Test
+    void expiredClaimIsFinalizedBySweep() {
+        when(cleansedRepository.findIdsWithExpiredFinalization(any())).thenReturn(List.of(page.getId()));
+        when(cleansedRepository.claimFinalization(eq(page.getId()), anyString(), any())).thenReturn(true);
+        when(enrichedRepository.countByCleansedDataIdAndStatus(page.getId(), "ENRICHED")).thenReturn(1L);
+
+        processor.finalizeExpiredClaims();
+
+        verify(consolidatedSectionService).saveFromCleansedEntry(page);
+        verify(cleansedRepository).save(page);
+        assertThat(page.getStatus()).isEqualTo("ENRICHED_COMPLETE");
+    }
+
+    private static ConsolidatedEnrichedSection section(String cleansedText) {
+        ConsolidatedEnrichedSection section = new ConsolidatedEnrichedSection();
+        section.setId(UUID.randomUUID());
+        section.setCleansedText(cleansedText);
+        return section;
+    }
+}
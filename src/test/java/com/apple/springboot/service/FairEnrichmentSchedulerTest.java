@@ -0,0 +1,173 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.CleansedDataStore;
+import com.apple.springboot.model.EnrichmentMessage;
+import com.apple.springboot.model.EnrichmentPriority;
+import com.apple.springboot.repository.CleansedDataStoreRepository;
+import com.apple.springboot.repository.EnrichedContentElementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FairEnrichmentSchedulerTest {
+
+    private static final int WINDOW = 2;
+
+    private final SqsService sqsService = mock(SqsService.class);
+    private final EnrichedContentElementRepository enrichedRepository = mock(EnrichedContentElementRepository.class);
+    private final CleansedDataStoreRepository cleansedRepository = mock(CleansedDataStoreRepository.class);
+    private final EnrichmentPersistenceService persistenceService = mock(EnrichmentPersistenceService.class);
+    private final FairEnrichmentScheduler scheduler = new FairEnrichmentScheduler(sqsService, enrichedRepository,
+            cleansedRepository, persistenceService, mock(PipelineExecution.class), new PipelineMetrics(new SimpleMeterRegistry()),
+            WINDOW, 10L, 0L, 120_000L);
+
+    private final List<String> sent = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(sqsService.traceAttributes()).thenReturn(Map.of());
+        when(sqsService.sendMessage(any(), any(), any())).thenAnswer(invocation -> {
+            sent.add(invocation.<EnrichmentMessage>getArgument(0).getCleansedItemDetail().sourcePath);
+            return SqsService.SendResult.SENT;
+        });
+    }
+
+    @Test
+    void pagesAreServedRoundRobinWithinTheirWindow() throws InterruptedException {
+        UUID large = UUID.randomUUID();
+        UUID small = UUID.randomUUID();
+        scheduler.schedule(large, items("large", 5), 0, EnrichmentPriority.NORMAL);
+        scheduler.schedule(small, items("small", 2), 0, EnrichmentPriority.NORMAL);
+
+        dispatch(4);
+        assertThat(sent).containsExactly("large-0", "small-0", "large-1", "small-1");
+
+        // Both windows are full: nothing more goes out until an item of the large page completes
+        scheduler.itemCompleted(large);
+        dispatch(2);
+        assertThat(sent).containsExactly("large-0", "small-0", "large-1", "small-1", "large-2");
+    }
+
+    @Test
+    void highPriorityPagesGoFirst() throws InterruptedException {
+        scheduler.schedule(UUID.randomUUID(), items("normal", 2), 0, EnrichmentPriority.NORMAL);
+        scheduler.schedule(UUID.randomUUID(), items("high", 2), 0, EnrichmentPriority.HIGH);
+
+        dispatch(4);
+
+        assertThat(sent).containsExactly("high-0", "high-1", "normal-0", "normal-1");
+    }
+
+    @Test
+    void resumedPageStartsAfterTheItemsAlreadyDispatched() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        when(enrichedRepository.countByCleansedDataId(id)).thenReturn(2L);
+        scheduler.schedule(id, items("page", 3), 2, EnrichmentPriority.NORMAL);
+
+        // The items sent before the restart fill the window until reconciliation finds them processed
+        dispatch(2);
+
+        assertThat(sent).containsExactly("page-2");
+        verify(cleansedRepository).recordDispatchedCount(id, 3);
+    }
+
+    @Test
+    void failedSendIsRetriedAndNotCountedAsDispatched() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        doReturn(SqsService.SendResult.FAILED).doAnswer(invocation -> {
+            sent.add(invocation.<EnrichmentMessage>getArgument(0).getCleansedItemDetail().sourcePath);
+            return SqsService.SendResult.SENT;
+        }).when(sqsService).sendMessage(any(), any(), any());
+        scheduler.schedule(id, items("page", 2), 0, EnrichmentPriority.NORMAL);
+
+        dispatch(3);
+
+        ArgumentCaptor<EnrichmentMessage> attempts = ArgumentCaptor.forClass(EnrichmentMessage.class);
+        verify(sqsService, times(3)).sendMessage(attempts.capture(), any(), any());
+        assertThat(attempts.getAllValues()).extracting(m -> m.getCleansedItemDetail().sourcePath)
+                .containsExactly("page-0", "page-0", "page-1");
+        assertThat(sent).containsExactly("page-0", "page-1");
+        verify(cleansedRepository).recordDispatchedCount(id, 2);
+    }
+
+    @Test
+    void failedSendDoesNotUseAWindowSlot() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        doReturn(SqsService.SendResult.FAILED).when(sqsService).sendMessage(any(), any(), any());
+        scheduler.schedule(id, items("page", 5), 0, EnrichmentPriority.NORMAL);
+
+        dispatch(WINDOW + 1);
+
+        // Every attempt was for the first item: failures never filled the window
+        verify(sqsService, times(WINDOW + 1)).sendMessage(any(), any(), any());
+        verify(cleansedRepository, never()).recordDispatchedCount(eq(id), anyLong());
+    }
+
+    @Test
+    void rejectedItemIsRecordedAsFailedAndSkipped() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        CleansedDataStore page = new CleansedDataStore();
+        page.setId(id);
+        when(cleansedRepository.findById(id)).thenReturn(Optional.of(page));
+        doReturn(SqsService.SendResult.REJECTED).doAnswer(invocation -> {
+            sent.add(invocation.<EnrichmentMessage>getArgument(0).getCleansedItemDetail().sourcePath);
+            return SqsService.SendResult.SENT;
+        }).when(sqsService).sendMessage(any(), any(), any());
+        List<CleansedItemDetail> items = items("page", 3);
+        scheduler.schedule(id, items, 0, EnrichmentPriority.NORMAL);
+
+        dispatch(3);
+
+        // The rejected item is not retried and does not hold a window slot
+        verify(persistenceService).saveErrorEnrichedElement(eq(items.get(0)), eq(page), eq("ERROR_SQS_REJECTED"), anyString());
+        assertThat(sent).containsExactly("page-1", "page-2");
+        verify(cleansedRepository).recordDispatchedCount(id, 3);
+    }
+
+    @Test
+    void pageTakenOverByAnotherInstanceIsDropped() throws InterruptedException {
+        UUID kept = UUID.randomUUID();
+        UUID lost = UUID.randomUUID();
+        when(cleansedRepository.renewDispatchLease(kept, scheduler.instanceId())).thenReturn(true);
+        when(cleansedRepository.renewDispatchLease(lost, scheduler.instanceId())).thenReturn(false);
+        scheduler.schedule(kept, items("kept", 2), 0, EnrichmentPriority.NORMAL);
+        scheduler.schedule(lost, items("lost", 2), 0, EnrichmentPriority.NORMAL);
+
+        scheduler.renewLeases();
+        dispatch(2);
+
+        assertThat(sent).containsExactly("kept-0", "kept-1");
+    }
+
+    private void dispatch(int times) throws InterruptedException {
+        for (int i = 0; i < times; i++) {
+            scheduler.dispatchNext();
+        }
+    }
+
+    private static List<CleansedItemDetail> items(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new CleansedItemDetail(prefix + "-" + i, "copy", "text " + i, null, null))
+                .toList();
+    }
+}
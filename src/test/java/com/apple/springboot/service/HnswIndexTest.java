@@ -0,0 +1,80 @@
+package com.apple.springboot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final int COUNT = 200;
+
+    private final HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final List<UUID> ids = new ArrayList<>();
+    private final List<float[]> vectors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < COUNT; i++) {
+            UUID id = UUID.randomUUID();
+            float[] vector = randomVector();
+            ids.add(id);
+            vectors.add(vector);
+            index.add(id, vector);
+        }
+    }
+
+    @Test
+    void exactMatchIsTheNearestNeighbor() {
+        List<HnswIndex.Neighbor> neighbors = index.search(vectors.get(7), 5, 32);
+
+        assertThat(neighbors).hasSize(5);
+        assertThat(neighbors.get(0).id()).isEqualTo(ids.get(7));
+        assertThat(neighbors.get(0).distance()).isCloseTo(0.0, within(1e-5));
+    }
+
+    @Test
+    void removedIdsAreNeverReturnedAndTheResultStaysFull() {
+        float[] query = vectors.get(0);
+        List<UUID> nearest = index.search(query, 10, 32).stream().map(HnswIndex.Neighbor::id).toList();
+        nearest.forEach(index::remove);
+
+        List<HnswIndex.Neighbor> neighbors = index.search(query, 10, 10);
+
+        assertThat(neighbors).hasSize(10);
+        assertThat(neighbors).extracting(HnswIndex.Neighbor::id).doesNotContainAnyElementsOf(nearest);
+        assertThat(index.tombstones()).isEqualTo(10);
+    }
+
+    @Test
+    void removedIdIsNotAddedAgain() {
+        UUID removed = ids.get(3);
+        UUID notYetIndexed = UUID.randomUUID();
+
+        assertThat(index.remove(removed)).isTrue();
+        assertThat(index.remove(removed)).isFalse();
+        assertThat(index.remove(notYetIndexed)).isFalse();
+
+        assertThat(index.add(removed, vectors.get(3))).isFalse();
+        assertThat(index.add(notYetIndexed, vectors.get(3))).isFalse();
+        assertThat(index.search(vectors.get(3), COUNT, COUNT)).extracting(HnswIndex.Neighbor::id)
+                .doesNotContain(removed, notYetIndexed)
+                .hasSize(COUNT - 1);
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
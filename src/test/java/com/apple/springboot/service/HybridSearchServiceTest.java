@@ -0,0 +1,77 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.apple.springboot.model.SearchRequest;
+import com.apple.springboot.repository.ContentChunkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HybridSearchServiceTest {
+
+    private final VectorSearchService vectorSearchService = mock(VectorSearchService.class);
+    private final ContentChunkRepository contentChunkRepository = mock(ContentChunkRepository.class);
+    private final HybridSearchService service = new HybridSearchService(vectorSearchService, contentChunkRepository,
+            mock(PlatformTransactionManager.class), 60, 50, 2);
+
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+    private final UUID c = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void sectionsInBothRankingsOutscoreSectionsInOne() {
+        List<ChunkSearchResult> fused = service.fuse(
+                List.of(hit(a, 0.1), hit(b, 0.2)),
+                List.of(hit(b, 0), hit(c, 0)), 10);
+
+        // b: 1/62 + 1/61, a: 1/61, c: 1/62
+        assertThat(fused).extracting(ChunkSearchResult::getSectionId).containsExactly(b, a, c);
+        // The vector row represents a section found by both branches
+        assertThat(fused.get(0).getDistance()).isEqualTo(0.2);
+    }
+
+    @Test
+    void onlyTheBestChunkOfASectionIsRanked() {
+        // a's second chunk neither scores for a nor pushes b down to rank 3
+        List<ChunkSearchResult> fused = service.fuse(
+                List.of(hit(a, 0.1), hit(a, 0.15), hit(b, 0.2)),
+                List.of(hit(b, 0)), 1);
+
+        assertThat(fused).extracting(ChunkSearchResult::getSectionId).containsExactly(b);
+    }
+
+    @Test
+    void branchDepthIsCappedByTheMaxPageSize() throws Exception {
+        when(vectorSearchService.pageLimit(1_000_000)).thenReturn(100);
+        SearchRequest request = new SearchRequest();
+        request.setQuery("iphone");
+
+        service.search(request, 1_000_000);
+
+        verify(vectorSearchService).search(eq("iphone"), any(), eq(100), any(), any(), any(), any());
+        verify(contentChunkRepository).findLexicalProjections(eq("iphone"), any(), any(), any(), any(), eq(100));
+    }
+
+    private static ChunkSearchResult hit(UUID sectionId, double distance) {
+        ChunkSearchResult hit = new ChunkSearchResult();
+        hit.setChunkId(UUID.randomUUID());
+        hit.setSectionId(sectionId);
+        hit.setDistance(distance);
+        return hit;
+    }
+}
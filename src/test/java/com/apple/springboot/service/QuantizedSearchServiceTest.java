@@ -0,0 +1,39 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.repository.ContentChunkRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuantizedSearchServiceTest {
+
+    private final ContentChunkRepository repository = mock(ContentChunkRepository.class);
+    private final QuantizedSearchService service = new QuantizedSearchService(repository,
+            mock(PlatformTransactionManager.class), "halfvec", false, 1000);
+
+    @Test
+    void probeChunkIsNotCountedAsARecalledNeighbour() {
+        UUID probe = UUID.randomUUID();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        when(repository.sampleVectors(1)).thenReturn(Map.of(probe, new float[]{0.1f}));
+        when(repository.findNearestChunkIds(any(), eq(3), eq(true))).thenReturn(List.of(probe, a, b));
+        // The ANN path finds the probe itself and one of its two true neighbours
+        when(repository.findNearestChunkIds(any(), eq(3), eq(false))).thenReturn(List.of(probe, a, c));
+
+        Map<String, Object> report = service.measureRecall(1, 2);
+
+        assertThat(report).containsEntry("recall", 0.5);
+        service.shutdown();
+    }
+}
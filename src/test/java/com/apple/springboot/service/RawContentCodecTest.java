@@ -0,0 +1,125 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.RawDataStore;
+import com.apple.springboot.repository.RawDataStoreRepository;
+import com.github.luben.zstd.ZstdDictTrainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RawContentCodecTest {
+
+    private final RawDataStoreRepository repository = mock(RawDataStoreRepository.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void plainRowsKeepTheirText() {
+        RawContentCodec codec = codec(false, "", false);
+        RawDataStore row = new RawDataStore();
+
+        codec.encode(row, page(1), null);
+
+        assertThat(row.getContentEncoding()).isNull();
+        assertThat(row.storedContentText()).isEqualTo(page(1));
+        assertThat(codec.decode(row)).isEqualTo(page(1));
+        assertThat(codec.storesSourceMetadata()).isTrue();
+    }
+
+    @Test
+    void compressedRowsRoundTrip() {
+        RawContentCodec codec = codec(true, "", false);
+        RawDataStore row = new RawDataStore();
+        row.setSourceMetadata("{}");
+
+        codec.encode(row, page(1), null);
+
+        assertThat(row.getContentEncoding()).isEqualTo(RawContentCodec.ZSTD);
+        assertThat(row.storedContentText()).isNull();
+        assertThat(row.getSourceMetadata()).isNull();
+        assertThat(row.storedContentBinary().length).isLessThan(page(1).length());
+        assertThat(codec.decode(row)).isEqualTo(page(1));
+    }
+
+    @Test
+    void dictionaryRowsRoundTrip() throws IOException {
+        RawContentCodec codec = codec(true, trainDictionary(), false);
+        RawDataStore row = new RawDataStore();
+
+        codec.encode(row, page(1), null);
+
+        assertThat(row.getContentEncoding()).isEqualTo(RawContentCodec.ZSTD_DICT);
+        assertThat(codec.decode(row)).isEqualTo(page(1));
+    }
+
+    @Test
+    void deltaRowsRoundTripThroughTheirBase() {
+        RawContentCodec codec = codec(true, "", true);
+        RawDataStore previous = new RawDataStore();
+        previous.setId(UUID.randomUUID());
+        codec.encode(previous, page(1), null);
+        when(repository.findById(previous.getId())).thenReturn(Optional.of(previous));
+        RawDataStore row = new RawDataStore();
+        row.setId(UUID.randomUUID());
+
+        codec.encode(row, page(2), previous);
+
+        assertThat(row.getContentEncoding()).isEqualTo(RawContentCodec.ZSTD_DELTA);
+        assertThat(row.getDeltaBaseId()).isEqualTo(previous.getId());
+        assertThat(row.getDeltaDepth()).isEqualTo(1);
+        assertThat(row.storedContentBinary().length).isLessThan(previous.storedContentBinary().length);
+        assertThat(codec.decode(row)).isEqualTo(page(2));
+    }
+
+    @Test
+    void deltaChainStopsAtMaxDepth() {
+        RawContentCodec codec = codec(true, "", true);
+        RawDataStore previous = new RawDataStore();
+        previous.setId(UUID.randomUUID());
+        codec.encode(previous, page(1), null);
+        previous.setDeltaDepth(5);
+        RawDataStore row = new RawDataStore();
+
+        codec.encode(row, page(2), previous);
+
+        assertThat(row.getContentEncoding()).isEqualTo(RawContentCodec.ZSTD);
+        assertThat(row.getDeltaBaseId()).isNull();
+        assertThat(codec.decode(row)).isEqualTo(page(2));
+    }
+
+    private RawContentCodec codec(boolean enabled, String dictionaryPath, boolean delta) {
+        return new RawContentCodec(repository, new DefaultResourceLoader(), enabled, 9, dictionaryPath, delta, 5);
+    }
+
+    private String trainDictionary() throws IOException {
+        ZstdDictTrainer trainer = new ZstdDictTrainer(1024 * 1024, 16 * 1024);
+        for (int i = 0; i < 500; i++) {
+            trainer.addSample(page(i).getBytes(StandardCharsets.UTF_8));
+        }
+        Path dictionary = tempDir.resolve("raw.dict");
+        Files.write(dictionary, trainer.trainSamples());
+        return dictionary.toUri().toString();
+    }
+
+    // A page payload whose versions differ in one field
+    private static String page(int version) {
+        StringBuilder json = new StringBuilder("{\"version\":").append(version).append(",\"sections\":[");
+        for (int i = 0; i < 40; i++) {
+            json.append(i > 0 ? "," : "").append("{\"sectionKey\":\"section-").append(i)
+                    .append("\",\"copy\":\"Introducing the all-new product, section ").append(i).append(".\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.apple.springboot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class S3StorageServiceTest {
+
+    private final S3Client s3Client = mock(S3Client.class);
+    private final PipelineExecution pipelineExecution = mock(PipelineExecution.class);
+    private final S3StorageService service = new S3StorageService(s3Client, pipelineExecution);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(pipelineExecution.call(eq(PipelineExecution.Dependency.S3), any()))
+                .thenAnswer(invocation -> invocation.<PipelineExecution.RemoteCall<?, ?>>getArgument(1).call());
+    }
+
+    @Test
+    void fingerprintCombinesETagSizeAndLastModified() {
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder()
+                .eTag("\"abc\"").contentLength(42L).lastModified(Instant.parse("2026-01-01T00:00:00Z")).build());
+
+        assertThat(service.objectFingerprint("bucket", "page.json")).isEqualTo("\"abc\":42:2026-01-01T00:00:00Z");
+    }
+
+    @Test
+    void missingObjectHasNoFingerprint() {
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(s3Exception(404));
+
+        assertThat(service.objectFingerprint("bucket", "page.json")).isNull();
+    }
+
+    @Test
+    void failedHeadFallsBackToTheDownload() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(s3Exception(403))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        assertThat(service.objectFingerprint("bucket", "page.json")).isNull();
+        assertThat(service.objectFingerprint("bucket", "page.json")).isNull();
+    }
+
+    private static S3Exception s3Exception(int status) {
+        return (S3Exception) S3Exception.builder().statusCode(status).message("status " + status).build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.EnrichmentMessage;
+import com.apple.springboot.model.EnrichmentPriority;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SQSEnrichmentListenerTest {
+
+    private static final String QUEUE = "https://sqs.local/enrichment";
+
+    // As configured by Spring Boot: messages are deserialized through constructor parameter names
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SqsClient sqsClient = mock(SqsClient.class);
+    private final EnrichmentProcessor processor = mock(EnrichmentProcessor.class);
+    private final PipelineTracing pipelineTracing = mock(PipelineTracing.class);
+    private final PipelineExecution pipelineExecution = new PipelineExecution(RateLimiter.create(1000),
+            new PipelineMetrics(new SimpleMeterRegistry()), false, 0.25, true, 2, 16, 32, 32);
+
+    private final CountDownLatch finalizing = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        when(pipelineTracing.startConsumerSpan(anyString(), anyMap())).thenReturn(mock(Span.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        finalizing.countDown();
+        pipelineExecution.shutdown();
+    }
+
+    @Test
+    void slowMessageDoesNotHoldUpTheNextReceive() throws Exception {
+        UUID slowPage = UUID.randomUUID();
+        UUID nextPage = UUID.randomUUID();
+        Message slow = message("slow", slowPage);
+        Message next = message("next", nextPage);
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(slow).build())
+                .thenReturn(ReceiveMessageResponse.builder().messages(next).build());
+        // The first message's delivery runs its page's finalization, which takes until the latch opens
+        doAnswer(invocation -> {
+            if (slowPage.equals(invocation.<EnrichmentMessage>getArgument(0).getCleansedDataStoreId())) {
+                finalizing.await(10, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(processor).process(any());
+        SQSEnrichmentListener listener = listener(10);
+
+        listener.pollQueue(QUEUE);
+        listener.pollQueue(QUEUE);
+
+        verify(sqsClient, timeout(5000)).deleteMessage(deleteOf(next));
+        assertThat(finalizing.getCount()).isEqualTo(1);
+        finalizing.countDown();
+        verify(sqsClient, timeout(5000)).deleteMessage(deleteOf(slow));
+    }
+
+    @Test
+    void receivesOnlyAsManyMessagesAsThereAreFreeSlots() {
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(message("a", UUID.randomUUID()), message("b", UUID.randomUUID())).build())
+                .thenReturn(ReceiveMessageResponse.builder().build());
+        doAnswer(invocation -> {
+            finalizing.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(processor).process(any());
+        SQSEnrichmentListener listener = listener(3);
+
+        listener.pollQueue(QUEUE);
+        listener.pollQueue(QUEUE);
+
+        ArgumentCaptor<ReceiveMessageRequest> requests = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(sqsClient, times(2)).receiveMessage(requests.capture());
+        assertThat(requests.getAllValues()).extracting(ReceiveMessageRequest::maxNumberOfMessages).containsExactly(3, 1);
+    }
+
+    @Test
+    void processingContinuesTheTraceOfTheSender() throws Exception {
+        io.opentelemetry.api.trace.Tracer otelTracer = SdkTracerProvider.builder().build().get("test");
+        Tracer tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> { });
+        PipelineTracing tracing = new PipelineTracing(tracer,
+                new OtelPropagator(ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer));
+        SqsService sqsService = new SqsService(sqsClient, objectMapper, QUEUE, "",
+                new PipelineMetrics(new SimpleMeterRegistry()), tracing, pipelineExecution);
+
+        // The ingest request sends an item inside its own span
+        Span ingest = tracer.nextSpan().name("ingest").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(ingest)) {
+            sqsService.sendMessage(new EnrichmentMessage(new CleansedItemDetail("/content/a", "copy", "text", null, null),
+                    UUID.randomUUID(), EnrichmentPriority.NORMAL));
+        } finally {
+            ingest.end();
+        }
+        ArgumentCaptor<SendMessageRequest> sent = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(sqsClient).sendMessage(sent.capture());
+        assertThat(sent.getValue().messageAttributes().get("traceparent").stringValue()).contains(ingest.context().traceId());
+
+        // The listener receives it as SQS would deliver it and processes it inside a span of the same trace
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(Message.builder().receiptHandle("traced").body(sent.getValue().messageBody())
+                        .messageAttributes(sent.getValue().messageAttributes()).build())
+                .build());
+        CompletableFuture<Span> processing = new CompletableFuture<>();
+        doAnswer(invocation -> processing.complete(tracer.currentSpan())).when(processor).process(any());
+
+        new SQSEnrichmentListener(sqsClient, objectMapper, processor, tracing, pipelineExecution, sqsService, 1, 0, 0, 10)
+                .pollQueue(QUEUE);
+
+        Span span = processing.get(5, TimeUnit.SECONDS);
+        assertThat(span.context().traceId()).isEqualTo(ingest.context().traceId());
+        assertThat(span.context().spanId()).isNotEqualTo(ingest.context().spanId());
+    }
+
+    private SQSEnrichmentListener listener(int maxInFlight) {
+        return new SQSEnrichmentListener(sqsClient, objectMapper, processor, pipelineTracing, pipelineExecution,
+                mock(SqsService.class), 1, 0, 0, maxInFlight);
+    }
+
+    private Message message(String receiptHandle, UUID pageId) {
+        try {
+            EnrichmentMessage body = new EnrichmentMessage(
+                    new CleansedItemDetail("/content/" + receiptHandle, "copy", "text", null, null), pageId, EnrichmentPriority.NORMAL);
+            return Message.builder().receiptHandle(receiptHandle).body(objectMapper.writeValueAsString(body)).build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DeleteMessageRequest deleteOf(Message message) {
+        return DeleteMessageRequest.builder().queueUrl(QUEUE).receiptHandle(message.receiptHandle()).build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.apple.springboot.service;
+
+import com.apple.springboot.model.ChunkSearchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    private final SearchResultCache cache = new SearchResultCache(new ObjectMapper(), 3600, 100, 60, 100, new SimpleMeterRegistry());
+
+    @Test
+    void callersCannotChangeCachedResults() throws Exception {
+        SearchResultCache.Key key = cache.keyFor("iphone", null, null, null, null, null, 10);
+        ChunkSearchResult hit = new ChunkSearchResult(UUID.randomUUID(), UUID.randomUUID(), "chunk", "/content/page/hero",
+                "s3://bucket/page.json", "Hello", "copy", new ArrayList<>(List.of("a")), new ArrayList<>(), new HashMap<>(), 0.1);
+        cache.putResults(key, List.of(hit));
+
+        // The list the search returned and every later hit belong to their callers
+        hit.setDistance(0.9);
+        ChunkSearchResult first = cache.getResults(key).get(0);
+        first.setCleansedText("changed");
+        first.getTags().add("b");
+
+        ChunkSearchResult second = cache.getResults(key).get(0);
+        assertThat(second.getDistance()).isEqualTo(0.1);
+        assertThat(second.getCleansedText()).isEqualTo("Hello");
+        assertThat(second.getTags()).containsExactly("a");
+
+        float[] embedding = cache.getEmbedding("iphone", () -> new float[]{0.5f});
+        embedding[0] = 0;
+        assertThat(cache.getEmbedding("iphone", () -> new float[]{1f})).containsExactly(0.5f);
+    }
+}